@@ -0,0 +1,96 @@
+package bench;
+
+import main.DexClassData;
+import main.DexClassDefs;
+import main.DexFileHeader;
+import main.second.DexCodeItemView;
+import main.second.DexInstructionCursor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * class_data 缓存与指令游标的吞吐量基准。setup 中解码一遍所有类的 class_data，
+ * 收集全部方法的 code_item 偏移。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClassDataBenchmark {
+
+    @Param({"small", "medium", "65k"})
+    public String profile;
+
+    private ByteBuffer buffer;
+    private DexClassDefs classDefs;
+    private int[] codeOffs;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        buffer = DexInputs.map(profile);
+        DexFileHeader header = new DexFileHeader();
+        header.parse(buffer);
+        classDefs = new DexClassDefs();
+        classDefs.parse(buffer, header);
+
+        int codeCount = 0;
+        int[] offs = new int[64];
+        for (int i = 0; i < classDefs.getClassDefCount(); i++) {
+            DexClassData data = classDefs.getClassData(i);
+            for (int m = 0; data != null && m < data.getMethodCount(); m++) {
+                if (data.getMethodCodeOff(m) != 0) {
+                    if (codeCount == offs.length) {
+                        offs = Arrays.copyOf(offs, codeCount * 2);
+                    }
+                    offs[codeCount++] = data.getMethodCodeOff(m);
+                }
+            }
+        }
+        codeOffs = Arrays.copyOf(offs, codeCount);
+    }
+
+    /**
+     * 通过 getClassData 重复查询所有类，setup 之后全部命中缓存
+     */
+    @Benchmark
+    public void classDataCached(Blackhole bh) {
+        for (int i = 0; i < classDefs.getClassDefCount(); i++) {
+            bh.consume(classDefs.getClassData(i));
+        }
+    }
+
+    /**
+     * 用同一个游标遍历所有方法的全部指令
+     */
+    @Benchmark
+    public int instructions() {
+        DexCodeItemView code = new DexCodeItemView(buffer);
+        DexInstructionCursor insn = new DexInstructionCursor();
+        int sum = 0;
+        for (int off : codeOffs) {
+            insn.reset(code.moveTo(off));
+            while (insn.next()) {
+                sum += insn.getOpcode() + insn.getIndex();
+            }
+        }
+        return sum;
+    }
+}
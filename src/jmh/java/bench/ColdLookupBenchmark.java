@@ -0,0 +1,82 @@
+package bench;
+
+import main.DexFile;
+import main.DexFileOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 刚打开的 DexFile 上第一次按名称查找的耗时（SingleShotTime）。每次迭代前重新解析 DexFile，字符串缓存为空：
+ * 线性查找需要逐个解码字符串，二分查找只比较 MUTF-8 字节，不经过字符串缓存。
+ * 单次调用的结果受计时精度影响较大，应看多次迭代的分布。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 20)
+@Measurement(iterations = 100)
+@Fork(1)
+public class ColdLookupBenchmark {
+
+    @Param({"small", "medium", "65k"})
+    public String profile;
+
+    private ByteBuffer buffer;
+    private String descriptor;
+    private DexFile dexFile;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        buffer = DexInputs.map(profile);
+        DexFile dex = new DexFile(buffer, new DexFileOptions());
+        int classIdx = dex.getClassDefs().newView().moveTo(dex.getClassDefs().getClassDefCount() / 2).getClassIdx();
+        descriptor = dex.getTypeIds().getTypeName(classIdx, dex.getStringIds());
+    }
+
+    @Setup(Level.Iteration)
+    public void open() throws IOException {
+        dexFile = new DexFile(buffer, new DexFileOptions());
+    }
+
+    @Benchmark
+    public int findString() {
+        return dexFile.findString(descriptor);
+    }
+
+    @Benchmark
+    public int findClassDef() {
+        return dexFile.findClassDef(descriptor);
+    }
+
+    /**
+     * 对比：按顺序解码字符串直到找到目标
+     */
+    @Benchmark
+    public int linearFindString() {
+        return linearFindString(dexFile, descriptor);
+    }
+
+    static int linearFindString(DexFile dexFile, String descriptor) {
+        int count = dexFile.getStringIds().getStringCount();
+        for (int i = 0; i < count; i++) {
+            if (dexFile.getStringIds().getStringByIndex(i).equals(descriptor)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
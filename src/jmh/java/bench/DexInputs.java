@@ -0,0 +1,61 @@
+package bench;
+
+import main.synthetic.DexProfile;
+import main.synthetic.SyntheticDexGenerator;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * 基准测试的输入文件。
+ *
+ * 每个规模（small / medium / 65k / huge）对应目录 dexdump.bench.dir（默认 target/bench-dex）下的
+ * 同名 .dex 文件，例如 target/bench-dex/65k.dex。
+ * 文件不存在时用 {@link SyntheticDexGenerator} 以固定种子生成，因此不同机器上的输入完全相同。
+ * 需要同一规模的另一份输入时（例如 DexDiff 基准）可以指定其他种子，文件名为 规模-种子.dex。
+ */
+public final class DexInputs {
+    public static final String DIR_PROPERTY = "dexdump.bench.dir";
+    public static final long SEED = 20240917L;
+
+    private DexInputs() {}
+
+    public static Path path(String profile) {
+        return path(profile, SEED);
+    }
+
+    public static Path path(String profile, long seed) {
+        String name = seed == SEED ? profile : profile + "-" + seed;
+        return Paths.get(System.getProperty(DIR_PROPERTY, "target/bench-dex"), name + ".dex");
+    }
+
+    /**
+     * 映射指定规模的输入文件，文件不存在时先生成
+     */
+    public static ByteBuffer map(String profile) throws IOException {
+        return map(profile, SEED);
+    }
+
+    /**
+     * 映射指定规模、指定种子的输入文件，文件不存在时先生成
+     */
+    public static ByteBuffer map(String profile, long seed) throws IOException {
+        Path path = path(profile, seed);
+        if (!Files.isRegularFile(path)) {
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            new SyntheticDexGenerator(seed, DexProfile.named(profile)).writeTo(path);
+        }
+        try (FileInputStream fis = new FileInputStream(path.toFile());
+             FileChannel channel = fis.getChannel()) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return buffer;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package bench;
+
+import main.DexDiff;
+import main.DexDiffVisitor;
+import main.DexFile;
+import main.DexFileOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DexDiff 的吞吐量基准。新文件与旧文件规模相同、种子不同（DexInputs.SEED + 1），
+ * 各表的归并和类的比较都会产生大量差异；另外比较同一文件的两次加载，作为没有差异的对照。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DiffBenchmark {
+
+    @Param({"small", "medium", "65k"})
+    public String profile;
+
+    private DexFile oldDexFile;
+    private DexFile newDexFile;
+    private DexFile sameDexFile;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        oldDexFile = new DexFile(DexInputs.map(profile), new DexFileOptions());
+        newDexFile = new DexFile(DexInputs.map(profile, DexInputs.SEED + 1), new DexFileOptions());
+        sameDexFile = new DexFile(DexInputs.map(profile), new DexFileOptions());
+    }
+
+    /**
+     * 比较同一规模、不同种子生成的两个文件
+     */
+    @Benchmark
+    public long diff() {
+        return DexDiff.diff(oldDexFile, newDexFile, new DexDiffVisitor() {
+        });
+    }
+
+    /**
+     * 比较两个独立加载的同一文件：没有差异，但每个类和每个方法的代码都要计算哈希
+     */
+    @Benchmark
+    public long diffUnchanged() {
+        return DexDiff.diff(oldDexFile, sameDexFile, new DexDiffVisitor() {
+        });
+    }
+}
@@ -0,0 +1,70 @@
+package bench;
+
+import main.DexClassHierarchy;
+import main.DexFile;
+import main.DexFileOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 类层次索引的吞吐量基准：建立索引，以及固定种子生成的 4096 个随机类型对的 isAssignable 查询。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HierarchyBenchmark {
+
+    @Param({"small", "medium", "65k"})
+    public String profile;
+
+    private DexFile dexFile;
+    private DexClassHierarchy hierarchy;
+    private int[] assignablePairs;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dexFile = new DexFile(DexInputs.map(profile), new DexFileOptions());
+        hierarchy = DexClassHierarchy.build(dexFile);
+        Random random = new Random(DexInputs.SEED);
+        assignablePairs = new int[2 * 4096];
+        for (int i = 0; i < assignablePairs.length; i++) {
+            assignablePairs[i] = random.nextInt(hierarchy.getNodeCount());
+        }
+    }
+
+    @Benchmark
+    public DexClassHierarchy classHierarchy() {
+        return DexClassHierarchy.build(dexFile);
+    }
+
+    /**
+     * 4096 次随机类型对的 isAssignable
+     */
+    @Benchmark
+    public int isAssignable() {
+        int hits = 0;
+        for (int i = 0; i < assignablePairs.length; i += 2) {
+            if (hierarchy.isAssignable(assignablePairs[i], assignablePairs[i + 1])) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+}
@@ -0,0 +1,96 @@
+package bench;
+
+import main.DexClassDefs;
+import main.DexFile;
+import main.DexFileOptions;
+import main.DexIndexCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 磁盘索引缓存的吞吐量基准：从索引载入与直接解析对比。
+ * 索引写在临时目录中，setup 时预先写好，每次载入都命中；trial 结束后删除整个目录。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IndexCacheBenchmark {
+
+    @Param({"small", "medium", "65k"})
+    public String profile;
+
+    private String path;
+    private Path indexDir;
+    private DexFileOptions indexed;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        DexInputs.map(profile); // 输入文件不存在时先生成
+        path = DexInputs.path(profile).toString();
+        indexDir = Files.createTempDirectory("dexidx");
+        indexed = new DexFileOptions();
+        indexed.setIndexCache(new DexIndexCache(indexDir));
+        new DexFile(path, indexed);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(indexDir)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * 从磁盘索引载入，与 ParseBenchmark.dexFileSequential 对比
+     */
+    @Benchmark
+    public DexFile dexFileIndexed() throws IOException {
+        return new DexFile(path, indexed);
+    }
+
+    /**
+     * 打开文件并取出所有类的 class_data：未使用索引时逐个解码 LEB128
+     */
+    @Benchmark
+    public void dexFileAllClassData(Blackhole bh) throws IOException {
+        DexClassDefs defs = new DexFile(path).getClassDefs();
+        for (int i = 0; i < defs.getClassDefCount(); i++) {
+            bh.consume(defs.getClassData(i));
+        }
+    }
+
+    /**
+     * 打开文件并取出所有类的 class_data：从映射的索引中复制
+     */
+    @Benchmark
+    public void dexFileIndexedAllClassData(Blackhole bh) throws IOException {
+        DexClassDefs defs = new DexFile(path, indexed).getClassDefs();
+        for (int i = 0; i < defs.getClassDefCount(); i++) {
+            bh.consume(defs.getClassData(i));
+        }
+    }
+}
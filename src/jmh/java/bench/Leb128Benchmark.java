@@ -0,0 +1,126 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import utils.DexdumpUtils;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DexdumpUtils 中 LEB128 解码的基准。输入为固定种子生成的一串 LEB128 值，
+ * maxBytes 控制编码长度分布（1 表示全部为单字节值，5 表示覆盖整个 32 位范围）。
+ * 每个变体都与原有的相对读取 {@link #relative()} 对比；同一串字节既可以按 ULEB128 也可以按
+ * SLEB128 / ULEB128p1 解释，各变体读取的字节数相同。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Leb128Benchmark {
+    private static final int COUNT = 4096;
+
+    @Param({"1", "2", "5"})
+    public int maxBytes;
+
+    private ByteBuffer buffer;
+    private int[] values;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        ByteBuffer out = ByteBuffer.allocate(COUNT * 5);
+        for (int i = 0; i < COUNT; i++) {
+            int bits = 7 * (1 + random.nextInt(maxBytes));
+            int value = bits >= 32 ? random.nextInt() : random.nextInt(1 << bits);
+            do {
+                int b = value & 0x7F;
+                value >>>= 7;
+                out.put((byte) (value != 0 ? b | 0x80 : b));
+            } while (value != 0);
+        }
+        out.flip();
+        buffer = out;
+        values = new int[COUNT];
+    }
+
+    /**
+     * 逐字节相对读取（原有实现）
+     */
+    @Benchmark
+    public int relative() {
+        ByteBuffer b = buffer.duplicate();
+        int sum = 0;
+        for (int i = 0; i < COUNT; i++) {
+            sum += DexdumpUtils.readUnsignedLeb128(b);
+        }
+        return sum;
+    }
+
+    /**
+     * 绝对偏移读取，返回打包的（长度, 数值）
+     */
+    @Benchmark
+    public int absolute() {
+        ByteBuffer b = buffer;
+        int pos = 0;
+        int sum = 0;
+        for (int i = 0; i < COUNT; i++) {
+            long leb = DexdumpUtils.readUnsignedLeb128At(b, pos);
+            pos += DexdumpUtils.lebLength(leb);
+            sum += DexdumpUtils.lebValue(leb);
+        }
+        return sum;
+    }
+
+    /**
+     * 有符号 LEB128
+     */
+    @Benchmark
+    public int signed() {
+        int pos = 0;
+        int sum = 0;
+        for (int i = 0; i < COUNT; i++) {
+            long leb = DexdumpUtils.readSignedLeb128At(buffer, pos);
+            pos += DexdumpUtils.lebLength(leb);
+            sum += DexdumpUtils.lebValue(leb);
+        }
+        return sum;
+    }
+
+    /**
+     * ULEB128p1
+     */
+    @Benchmark
+    public int p1() {
+        int pos = 0;
+        int sum = 0;
+        for (int i = 0; i < COUNT; i++) {
+            long leb = DexdumpUtils.readUnsignedLeb128p1At(buffer, pos);
+            pos += DexdumpUtils.lebLength(leb);
+            sum += DexdumpUtils.lebValue(leb);
+        }
+        return sum;
+    }
+
+    /**
+     * 批量解码到 int[]
+     */
+    @Benchmark
+    public int[] bulk() {
+        DexdumpUtils.readUnsignedLeb128s(buffer, 0, values, 0, COUNT);
+        return values;
+    }
+}
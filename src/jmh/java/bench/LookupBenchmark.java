@@ -0,0 +1,93 @@
+package bench;
+
+import main.DexClassDefs;
+import main.DexFile;
+import main.DexFileOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按名称查找的延迟基准：findString / findType / findClassDef 的二分查找，
+ * 与逐个比较字符串的线性查找对比。每次调用依次查找一批 256 个类描述符（固定种子随机选取），
+ * DexFile 在 trial 开始时打开一次。刚打开的文件上第一次查找的耗时见 {@link ColdLookupBenchmark}。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupBenchmark {
+    private static final int KEYS = 256;
+
+    @Param({"small", "medium", "65k"})
+    public String profile;
+
+    private DexFile dexFile;
+    private String[] descriptors;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dexFile = new DexFile(DexInputs.map(profile), new DexFileOptions());
+        DexClassDefs classDefs = dexFile.getClassDefs();
+        Random random = new Random(DexInputs.SEED);
+        descriptors = new String[KEYS];
+        for (int i = 0; i < descriptors.length; i++) {
+            int classIdx = classDefs.newView().moveTo(random.nextInt(classDefs.getClassDefCount())).getClassIdx();
+            descriptors[i] = dexFile.getTypeIds().getTypeName(classIdx, dexFile.getStringIds());
+        }
+    }
+
+    @Benchmark
+    public int findString() {
+        int sum = 0;
+        for (String descriptor : descriptors) {
+            sum += dexFile.findString(descriptor);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int findType() {
+        int sum = 0;
+        for (String descriptor : descriptors) {
+            sum += dexFile.findType(descriptor);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int findClassDef() {
+        int sum = 0;
+        for (String descriptor : descriptors) {
+            sum += dexFile.findClassDef(descriptor);
+        }
+        return sum;
+    }
+
+    /**
+     * 对比：按顺序取出字符串逐个比较，直到找到目标
+     */
+    @Benchmark
+    public int linearFindString() {
+        int sum = 0;
+        for (String descriptor : descriptors) {
+            sum += ColdLookupBenchmark.linearFindString(dexFile, descriptor);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,189 @@
+package bench;
+
+import main.DexClassData;
+import main.DexClassDefs;
+import main.DexFieldIds;
+import main.DexFile;
+import main.DexFileHeader;
+import main.DexFileOptions;
+import main.DexMethodIds;
+import main.DexProtoIds;
+import main.DexSectionType;
+import main.DexStringIds;
+import main.DexTypeIds;
+import main.second.DexClassDefView;
+import utils.Mutf8InternPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 各解析阶段的吞吐量基准。每个阶段单独计时，输入为 small / medium / 65k 三种规模的 dex，
+ * 通过 mvn -Pjmh compile exec:exec 运行时默认附带 GC profiler，可同时得到分配速率。
+ *
+ * 这里只包含头部、各 id 表和整个文件的解析；class_data 缓存与指令遍历、校验、索引缓存、
+ * 交叉引用、类层次和 DexDiff 各有单独的基准类，setup 只准备各自需要的数据。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParseBenchmark {
+
+    @Param({"small", "medium", "65k"})
+    public String profile;
+
+    private String path;
+    private ByteBuffer buffer;
+    private DexFileHeader header;
+    private int[] classDataOffs;
+    private final Mutf8InternPool internPool = new Mutf8InternPool();
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        path = DexInputs.path(profile).toString();
+        buffer = DexInputs.map(profile);
+        header = new DexFileHeader();
+        header.parse(buffer);
+        DexClassDefs classDefs = new DexClassDefs();
+        classDefs.parse(buffer, header);
+
+        classDataOffs = new int[classDefs.getClassDefCount()];
+        DexClassDefView view = classDefs.newView();
+        for (int i = 0; i < classDataOffs.length; i++) {
+            classDataOffs[i] = view.moveTo(i).getClassDataOff();
+        }
+    }
+
+    @Benchmark
+    public DexFileHeader header() throws IOException {
+        DexFileHeader h = new DexFileHeader();
+        h.parse(buffer);
+        return h;
+    }
+
+    @Benchmark
+    public DexStringIds stringIds() {
+        DexStringIds ids = new DexStringIds();
+        ids.parse(buffer, header);
+        return ids;
+    }
+
+    /**
+     * 解析字符串偏移表并解码整个字符串池
+     */
+    @Benchmark
+    public DexStringIds stringIdsDecodeAll() {
+        DexStringIds ids = new DexStringIds(Long.MAX_VALUE);
+        ids.parse(buffer, header);
+        ids.decodeAll(null);
+        return ids;
+    }
+
+    /**
+     * 经过共享驻留池解码整个字符串池。第一次迭代之后全部命中，衡量按 MUTF-8 字节查找的开销
+     */
+    @Benchmark
+    public DexStringIds stringIdsDecodeAllInterned() {
+        DexStringIds ids = new DexStringIds(Long.MAX_VALUE);
+        ids.setInternPool(internPool);
+        ids.parse(buffer, header);
+        ids.decodeAll(null);
+        return ids;
+    }
+
+    @Benchmark
+    public DexTypeIds typeIds() {
+        DexTypeIds ids = new DexTypeIds();
+        ids.parse(buffer, header);
+        return ids;
+    }
+
+    @Benchmark
+    public DexProtoIds protoIds() {
+        DexProtoIds ids = new DexProtoIds();
+        ids.parse(buffer, header);
+        return ids;
+    }
+
+    /**
+     * 解析原型表并取出所有参数列表，分配量随不同的 type_list 个数而不是原型个数增长
+     */
+    @Benchmark
+    public void protoIdsAllParameters(Blackhole bh) {
+        DexProtoIds ids = new DexProtoIds();
+        ids.parse(buffer, header);
+        for (int i = 0; i < ids.getProtoCount(); i++) {
+            bh.consume(ids.getParameters(i));
+        }
+    }
+
+    @Benchmark
+    public DexFieldIds fieldIds() {
+        DexFieldIds ids = new DexFieldIds();
+        ids.parse(buffer, header);
+        return ids;
+    }
+
+    @Benchmark
+    public DexMethodIds methodIds() {
+        DexMethodIds ids = new DexMethodIds();
+        ids.parse(buffer, header);
+        return ids;
+    }
+
+    @Benchmark
+    public DexClassDefs classDefs() {
+        DexClassDefs defs = new DexClassDefs();
+        defs.parse(buffer, header);
+        return defs;
+    }
+
+    /**
+     * 解析所有类的 class_data_item
+     */
+    @Benchmark
+    public void classData(Blackhole bh) {
+        for (int off : classDataOffs) {
+            bh.consume(DexClassData.parse(buffer, off));
+        }
+    }
+
+    /**
+     * 只加载 string_ids 和 type_ids，其余区段跳过
+     */
+    @Benchmark
+    public DexFile dexFileSelective() throws IOException {
+        DexFileOptions options = new DexFileOptions();
+        options.setSections(DexSectionType.STRING_ID_ITEM, DexSectionType.TYPE_ID_ITEM);
+        return new DexFile(path, options);
+    }
+
+    @Benchmark
+    public DexFile dexFileSequential() throws IOException {
+        return new DexFile(path);
+    }
+
+    @Benchmark
+    public DexFile dexFileParallel() throws IOException {
+        DexFileOptions options = new DexFileOptions();
+        options.setParallel(true);
+        return new DexFile(path, options);
+    }
+}
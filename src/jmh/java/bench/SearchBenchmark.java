@@ -0,0 +1,104 @@
+package bench;
+
+import main.DexFileHeader;
+import main.DexStringIds;
+import main.DexStringSearch;
+import main.second.DexStringMatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 字符串池搜索基准：1000 个子串 / 前缀模式，Aho-Corasick 字节扫描与逐个解码后 contains 的对比。
+ * 输入文件只映射一次，每次调用前只重新解析 string_ids，字符串缓存为空。
+ * 默认只运行 65k；约 420 MB 的 huge 需要显式指定 -p profile=huge，第一次运行时会生成到输入目录下。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    @Param({"65k"})
+    public String profile;
+
+    private ByteBuffer buffer;
+    private DexFileHeader header;
+    private String[] literals;
+    private DexStringSearch search;
+    private DexStringIds stringIds;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        buffer = DexInputs.map(profile);
+        header = new DexFileHeader();
+        header.parse(buffer);
+        DexStringIds ids = new DexStringIds();
+        ids.parse(buffer, header);
+        Random random = new Random(DexInputs.SEED);
+        literals = new String[1000];
+        search = new DexStringSearch();
+        for (int i = 0; i < literals.length; i++) {
+            // 一半取自字符串池（会命中），一半是随机的指示符
+            String s = ids.getStringByIndex(random.nextInt(ids.getStringCount()));
+            literals[i] = i % 2 == 0 && s.length() > 4 ? s.substring(1, Math.min(s.length(), 12))
+                    : "AKIA" + Long.toHexString(random.nextLong());
+            if (i % 4 == 0) {
+                search.addPrefix(literals[i]);
+            } else {
+                search.addLiteral(literals[i]);
+            }
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void open() {
+        stringIds = new DexStringIds();
+        stringIds.parse(buffer, header);
+    }
+
+    @Benchmark
+    public List<DexStringMatch> automatonSequential() {
+        return search.search(stringIds, null);
+    }
+
+    @Benchmark
+    public List<DexStringMatch> automatonParallel() {
+        return search.search(stringIds, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 对比：解码每个字符串后逐个模式 contains / startsWith
+     */
+    @Benchmark
+    public int decodeAndContains() {
+        int hits = 0;
+        for (int i = 0; i < stringIds.getStringCount(); i++) {
+            String s = stringIds.getStringByIndex(i);
+            for (int p = 0; p < literals.length; p++) {
+                if (p % 4 == 0 ? s.startsWith(literals[p]) : s.contains(literals[p])) {
+                    hits++;
+                }
+            }
+        }
+        return hits;
+    }
+}
@@ -0,0 +1,72 @@
+package bench;
+
+import main.DexFile;
+import main.DexFileOptions;
+import main.DexVerifier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * checksum 与 signature 校验的吞吐量基准，以及开启校验后的整个文件解析。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VerifyBenchmark {
+
+    @Param({"small", "medium", "65k"})
+    public String profile;
+
+    private String path;
+    private ByteBuffer buffer;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        buffer = DexInputs.map(profile);
+        path = DexInputs.path(profile).toString();
+    }
+
+    @Benchmark
+    public int checksumSequential() {
+        return DexVerifier.adler32(buffer, DexVerifier.CHECKSUM_OFFSET, buffer.limit(), null);
+    }
+
+    @Benchmark
+    public int checksumParallel() {
+        return DexVerifier.adler32(buffer, DexVerifier.CHECKSUM_OFFSET, buffer.limit(), ForkJoinPool.commonPool());
+    }
+
+    @Benchmark
+    public byte[] signature() {
+        return DexVerifier.sha1(buffer, DexVerifier.SIGNATURE_OFFSET, buffer.limit());
+    }
+
+    /**
+     * 并行解析并同时校验 checksum 和 signature，与 ParseBenchmark.dexFileParallel 对比可以得到校验增加的墙钟时间
+     */
+    @Benchmark
+    public DexFile dexFileParallelVerified() throws IOException {
+        DexFileOptions options = new DexFileOptions();
+        options.setParallel(true);
+        options.setVerify(true);
+        return new DexFile(path, options);
+    }
+}
@@ -0,0 +1,53 @@
+package bench;
+
+import main.DexFile;
+import main.DexFileOptions;
+import main.DexXrefIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 扫描所有方法并建立调用图和交叉引用索引的吞吐量基准，顺序与并行对比。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XrefBenchmark {
+
+    @Param({"small", "medium", "65k"})
+    public String profile;
+
+    private DexFile dexFile;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dexFile = new DexFile(DexInputs.map(profile), new DexFileOptions());
+    }
+
+    @Benchmark
+    public DexXrefIndex xrefSequential() {
+        return DexXrefIndex.build(dexFile, null);
+    }
+
+    @Benchmark
+    public DexXrefIndex xrefParallel() {
+        return DexXrefIndex.build(dexFile, ForkJoinPool.commonPool());
+    }
+}
@@ -1,71 +1,184 @@
 package main;
 
+import main.output.DumpSink;
+import main.output.TextDumpSink;
 import main.second.EncodedField;
 import main.second.EncodedMethod;
 import utils.DexdumpUtils;
 
+import java.io.StringWriter;
 import java.nio.ByteBuffer;
-import java.util.ArrayList;
+import java.nio.IntBuffer;
+import java.util.AbstractList;
 import java.util.List;
+import java.util.Objects;
 
+/**
+ * DexClassData 表示一个 class_data_item。
+ *
+ * 字段和方法索引在文件中按列表增量编码（每个列表的第一项为绝对值），解析时直接累加为真实索引，
+ * 并以平行的 int[] 存放：
+ * - 字段：fieldIndices / fieldAccessFlags，前 staticFieldsSize 项为静态字段，其余为实例字段；
+ * - 方法：methodIndices / methodAccessFlags / methodCodeOffs，前 directMethodsSize 项为 direct 方法，其余为 virtual 方法。
+ *
+ * 解析完成后不再修改，可以在线程间共享（见 {@link DexClassDefs#getClassData(int)} 的缓存）。
+ * getStaticFields() 等列表视图在访问时创建 EncodedField / EncodedMethod，仅用于兼容和输出。
+ */
 public class DexClassData {
-    private int staticFieldsSize;
-    private int instanceFieldsSize;
-    private int directMethodsSize;
-    private int virtualMethodsSize;
+    private final int staticFieldsSize;
+    private final int directMethodsSize;
 
-    private List<EncodedField> staticFields = new ArrayList<>();
-    private List<EncodedField> instanceFields = new ArrayList<>();
-    private List<EncodedMethod> directMethods = new ArrayList<>();
-    private List<EncodedMethod> virtualMethods = new ArrayList<>();
+    private final int[] fieldIndices;
+    private final int[] fieldAccessFlags;
+    private final int[] methodIndices;
+    private final int[] methodAccessFlags;
+    private final int[] methodCodeOffs;
+    private int byteSize;                 // class_data_item 在文件中占用的字节数
+
+    private DexClassData(int staticFieldsSize, int instanceFieldsSize, int directMethodsSize, int virtualMethodsSize) {
+        this.staticFieldsSize = staticFieldsSize;
+        this.directMethodsSize = directMethodsSize;
+        int fieldCount = staticFieldsSize + instanceFieldsSize;
+        int methodCount = directMethodsSize + virtualMethodsSize;
+        this.fieldIndices = new int[fieldCount];
+        this.fieldAccessFlags = new int[fieldCount];
+        this.methodIndices = new int[methodCount];
+        this.methodAccessFlags = new int[methodCount];
+        this.methodCodeOffs = new int[methodCount];
+    }
+
+    /**
+     * 由已解码的各列直接构造，用于从 DexIndexCache 的索引中读取
+     */
+    private DexClassData(int staticFieldsSize, int directMethodsSize, int[] fieldIndices, int[] fieldAccessFlags,
+                         int[] methodIndices, int[] methodAccessFlags, int[] methodCodeOffs, int byteSize) {
+        this.staticFieldsSize = staticFieldsSize;
+        this.directMethodsSize = directMethodsSize;
+        this.fieldIndices = fieldIndices;
+        this.fieldAccessFlags = fieldAccessFlags;
+        this.methodIndices = methodIndices;
+        this.methodAccessFlags = methodAccessFlags;
+        this.methodCodeOffs = methodCodeOffs;
+        this.byteSize = byteSize;
+    }
 
     /**
-     * 解析 class_data_item，从 offset 处开始
+     * 解析 class_data_item，从 offset 处开始。
+     * 使用绝对偏移读取，不修改 buffer 的 position，可以在多个线程中共享同一个 buffer。
+     *
+     * @return 解析结果，offset 为 0（没有 class data）时返回 null
+     * @throws RuntimeException 如果数据越界或计数非法
      */
     public static DexClassData parse(ByteBuffer buffer, int offset) {
         if(offset == 0) {
             return null; // 无 class data
         }
-        buffer.position(offset);
-        DexClassData data = new DexClassData();
-        data.staticFieldsSize = DexdumpUtils.readUnsignedLeb128(buffer);
-        data.instanceFieldsSize = DexdumpUtils.readUnsignedLeb128(buffer);
-        data.directMethodsSize = DexdumpUtils.readUnsignedLeb128(buffer);
-        data.virtualMethodsSize = DexdumpUtils.readUnsignedLeb128(buffer);
-
-        // 注意：下面的解析需要依赖于 delta 编码的累加逻辑，
-        // 这里只给出简单示例，实际实现时需要参照 DEX 格式详细解析。
-        for (int i = 0; i < data.staticFieldsSize; i++) {
-            int fieldIdxDelta = DexdumpUtils.readUnsignedLeb128(buffer);
-            int accessFlags = DexdumpUtils.readUnsignedLeb128(buffer);
-            data.staticFields.add(new EncodedField(fieldIdxDelta, accessFlags));
-        }
-        for (int i = 0; i < data.instanceFieldsSize; i++) {
-            int fieldIdxDelta = DexdumpUtils.readUnsignedLeb128(buffer);
-            int accessFlags = DexdumpUtils.readUnsignedLeb128(buffer);
-            data.instanceFields.add(new EncodedField(fieldIdxDelta, accessFlags));
+        int[] sizes = new int[4];
+        int pos = DexdumpUtils.readUnsignedLeb128s(buffer, offset, sizes, 0, 4);
+        // 每个字段至少占 2 字节、每个方法至少占 3 字节，计数不可能超过剩余数据量
+        long minBytes = 2L * ((sizes[0] & 0xFFFFFFFFL) + (sizes[1] & 0xFFFFFFFFL))
+                + 3L * ((sizes[2] & 0xFFFFFFFFL) + (sizes[3] & 0xFFFFFFFFL));
+        if (minBytes > buffer.limit() - pos) {
+            throw new RuntimeException("Invalid class_data_item at offset " + offset + ": counts exceed file size");
         }
-        for (int i = 0; i < data.directMethodsSize; i++) {
-            int methodIdxDelta = DexdumpUtils.readUnsignedLeb128(buffer);
-            int accessFlags = DexdumpUtils.readUnsignedLeb128(buffer);
-            int codeOff = DexdumpUtils.readUnsignedLeb128(buffer);
-            data.directMethods.add(new EncodedMethod(methodIdxDelta, accessFlags, codeOff));
+        DexClassData data = new DexClassData(sizes[0], sizes[1], sizes[2], sizes[3]);
+
+        long leb;
+        int fieldIdx = 0;
+        for (int i = 0; i < data.fieldIndices.length; i++) {
+            if (i == data.staticFieldsSize) {
+                fieldIdx = 0; // 实例字段列表重新从绝对索引开始
+            }
+            leb = DexdumpUtils.readUnsignedLeb128At(buffer, pos);
+            pos += DexdumpUtils.lebLength(leb);
+            fieldIdx += DexdumpUtils.lebValue(leb);
+            leb = DexdumpUtils.readUnsignedLeb128At(buffer, pos);
+            pos += DexdumpUtils.lebLength(leb);
+            data.fieldIndices[i] = fieldIdx;
+            data.fieldAccessFlags[i] = DexdumpUtils.lebValue(leb);
         }
-        for (int i = 0; i < data.virtualMethodsSize; i++) {
-            int methodIdxDelta = DexdumpUtils.readUnsignedLeb128(buffer);
-            int accessFlags = DexdumpUtils.readUnsignedLeb128(buffer);
-            int codeOff = DexdumpUtils.readUnsignedLeb128(buffer);
-            data.virtualMethods.add(new EncodedMethod(methodIdxDelta, accessFlags, codeOff));
+        int methodIdx = 0;
+        for (int i = 0; i < data.methodIndices.length; i++) {
+            if (i == data.directMethodsSize) {
+                methodIdx = 0;
+            }
+            leb = DexdumpUtils.readUnsignedLeb128At(buffer, pos);
+            pos += DexdumpUtils.lebLength(leb);
+            methodIdx += DexdumpUtils.lebValue(leb);
+            leb = DexdumpUtils.readUnsignedLeb128At(buffer, pos);
+            pos += DexdumpUtils.lebLength(leb);
+            data.methodIndices[i] = methodIdx;
+            data.methodAccessFlags[i] = DexdumpUtils.lebValue(leb);
+            leb = DexdumpUtils.readUnsignedLeb128At(buffer, pos);
+            pos += DexdumpUtils.lebLength(leb);
+            data.methodCodeOffs[i] = DexdumpUtils.lebValue(leb);
         }
+        data.byteSize = pos - offset;
         return data;
     }
 
+    /**
+     * 在索引中占用的 int 个数，见 writeIndexed
+     */
+    int getIndexedSize() {
+        return 5 + 2 * fieldIndices.length + 3 * methodIndices.length;
+    }
+
+    /**
+     * 按 DexIndexCache 的格式写入：4 个计数、byteSize，然后依次是各个平行数组
+     */
+    void writeIndexed(IntBuffer out) {
+        out.put(staticFieldsSize).put(getInstanceFieldsSize())
+                .put(directMethodsSize).put(getVirtualMethodsSize()).put(byteSize);
+        out.put(fieldIndices).put(fieldAccessFlags);
+        out.put(methodIndices).put(methodAccessFlags).put(methodCodeOffs);
+    }
+
+    /**
+     * 从索引中 pos 处读取 writeIndexed 写入的数据，只做数组复制，不解码 LEB128
+     */
+    static DexClassData readIndexed(IntBuffer in, int pos) {
+        IntBuffer src = in.duplicate();
+        src.position(pos);
+        int staticFields = src.get();
+        int fieldCount = staticFields + src.get();
+        int directMethods = src.get();
+        int methodCount = directMethods + src.get();
+        int byteSize = src.get();
+        if (fieldCount < 0 || methodCount < 0 || 2L * fieldCount + 3L * methodCount > src.remaining()) {
+            throw new RuntimeException("Invalid index entry at " + pos);
+        }
+        int[] fieldIndices = new int[fieldCount];
+        int[] fieldAccessFlags = new int[fieldCount];
+        int[] methodIndices = new int[methodCount];
+        int[] methodAccessFlags = new int[methodCount];
+        int[] methodCodeOffs = new int[methodCount];
+        src.get(fieldIndices).get(fieldAccessFlags);
+        src.get(methodIndices).get(methodAccessFlags).get(methodCodeOffs);
+        return new DexClassData(staticFields, directMethods, fieldIndices, fieldAccessFlags,
+                methodIndices, methodAccessFlags, methodCodeOffs, byteSize);
+    }
+
+    /**
+     * 估算解析结果的堆占用（字节），用于缓存淘汰
+     */
+    public long estimateSize() {
+        return 96L + 16L * 5 + 8L * fieldIndices.length + 12L * methodIndices.length;
+    }
+
+    /**
+     * class_data_item 在文件中占用的字节数
+     */
+    public int getByteSize() {
+        return byteSize;
+    }
+
     public int getStaticFieldsSize() {
         return staticFieldsSize;
     }
 
     public int getInstanceFieldsSize() {
-        return instanceFieldsSize;
+        return fieldIndices.length - staticFieldsSize;
     }
 
     public int getDirectMethodsSize() {
@@ -73,45 +186,145 @@ public class DexClassData {
     }
 
     public int getVirtualMethodsSize() {
-        return virtualMethodsSize;
+        return methodIndices.length - directMethodsSize;
+    }
+
+    /**
+     * 字段总数（静态字段在前）
+     */
+    public int getFieldCount() {
+        return fieldIndices.length;
+    }
+
+    /**
+     * 第 i 个字段在 field_ids 中的索引
+     */
+    public int getFieldIndex(int i) {
+        return fieldIndices[i];
+    }
+
+    public int getFieldAccessFlags(int i) {
+        return fieldAccessFlags[i];
+    }
+
+    public boolean isStaticField(int i) {
+        return i < staticFieldsSize;
+    }
+
+    /**
+     * 方法总数（direct 方法在前）
+     */
+    public int getMethodCount() {
+        return methodIndices.length;
+    }
+
+    /**
+     * 第 i 个方法在 method_ids 中的索引
+     */
+    public int getMethodIndex(int i) {
+        return methodIndices[i];
+    }
+
+    public int getMethodAccessFlags(int i) {
+        return methodAccessFlags[i];
+    }
+
+    /**
+     * 第 i 个方法 code_item 的偏移，abstract / native 方法为 0
+     */
+    public int getMethodCodeOff(int i) {
+        return methodCodeOffs[i];
+    }
+
+    public boolean isDirectMethod(int i) {
+        return i < directMethodsSize;
     }
 
     public List<EncodedField> getStaticFields() {
-        return staticFields;
+        return fieldList(0, staticFieldsSize);
     }
 
     public List<EncodedField> getInstanceFields() {
-        return instanceFields;
+        return fieldList(staticFieldsSize, fieldIndices.length);
     }
 
     public List<EncodedMethod> getDirectMethods() {
-        return directMethods;
+        return methodList(0, directMethodsSize);
     }
 
     public List<EncodedMethod> getVirtualMethods() {
-        return virtualMethods;
+        return methodList(directMethodsSize, methodIndices.length);
     }
 
-    @Override
-    public String toString() {
-        StringBuilder sb = new StringBuilder();
-        sb.append("ClassData:\n");
-        sb.append("  Static Fields (").append(staticFieldsSize).append("):\n");
-        for (EncodedField f : staticFields) {
-            sb.append("    ").append(f).append("\n");
+    /**
+     * 字段区间 [from, to) 的列表视图，增量按列表内的前一项重新计算
+     */
+    private List<EncodedField> fieldList(int from, int to) {
+        return new AbstractList<EncodedField>() {
+            @Override
+            public EncodedField get(int index) {
+                int i = from + Objects.checkIndex(index, to - from);
+                int prev = i == from ? 0 : fieldIndices[i - 1];
+                return new EncodedField(fieldIndices[i], fieldIndices[i] - prev, fieldAccessFlags[i]);
+            }
+
+            @Override
+            public int size() {
+                return to - from;
+            }
+        };
+    }
+
+    private List<EncodedMethod> methodList(int from, int to) {
+        return new AbstractList<EncodedMethod>() {
+            @Override
+            public EncodedMethod get(int index) {
+                int i = from + Objects.checkIndex(index, to - from);
+                int prev = i == from ? 0 : methodIndices[i - 1];
+                return new EncodedMethod(methodIndices[i], methodIndices[i] - prev,
+                        methodAccessFlags[i], methodCodeOffs[i]);
+            }
+
+            @Override
+            public int size() {
+                return to - from;
+            }
+        };
+    }
+
+    /**
+     * 将 class data 输出到指定的 sink，格式与 toString() 相同
+     */
+    public void writeTo(DumpSink sink) {
+        sink.append("ClassData:").newLine();
+        sink.append("  Static Fields (").append(getStaticFieldsSize()).append("):").newLine();
+        for (EncodedField f : getStaticFields()) {
+            f.writeTo(sink.append("    "));
+            sink.newLine();
         }
-        sb.append("  Instance Fields (").append(instanceFieldsSize).append("):\n");
-        for (EncodedField f : instanceFields) {
-            sb.append("    ").append(f).append("\n");
+        sink.append("  Instance Fields (").append(getInstanceFieldsSize()).append("):").newLine();
+        for (EncodedField f : getInstanceFields()) {
+            f.writeTo(sink.append("    "));
+            sink.newLine();
         }
-        sb.append("  Direct Methods (").append(directMethodsSize).append("):\n");
-        for (EncodedMethod m : directMethods) {
-            sb.append("    ").append(m).append("\n");
+        sink.append("  Direct Methods (").append(getDirectMethodsSize()).append("):").newLine();
+        for (EncodedMethod m : getDirectMethods()) {
+            m.writeTo(sink.append("    "));
+            sink.newLine();
         }
-        sb.append("  Virtual Methods (").append(virtualMethodsSize).append("):\n");
-        for (EncodedMethod m : virtualMethods) {
-            sb.append("    ").append(m).append("\n");
+        sink.append("  Virtual Methods (").append(getVirtualMethodsSize()).append("):").newLine();
+        for (EncodedMethod m : getVirtualMethods()) {
+            m.writeTo(sink.append("    "));
+            sink.newLine();
         }
-        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        StringWriter out = new StringWriter();
+        TextDumpSink sink = new TextDumpSink(out);
+        writeTo(sink);
+        sink.close();
+        return out.toString();
     }
 }
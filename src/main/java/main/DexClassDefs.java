@@ -1,19 +1,56 @@
 package main;
 
 import main.second.DexClassDef;
+import main.output.DumpSink;
+import main.output.TextDumpSink;
+import main.second.DexClassDefView;
+import utils.BoundedIndexCache;
+import utils.DexdumpUtils;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.util.ArrayList;
+import java.nio.IntBuffer;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * DexClassDefs 用于解析 DEX 文件中的类定义区域（class_defs）。
  *
- * 根据 DexFileHeader 中的 classDefsSize 与 classDefsOff，依次解析每个类定义项（32 字节）。
+ * 根据 DexFileHeader 中的 classDefsSize 与 classDefsOff 确定类定义区域（每项 32 字节）。
+ * 解析时只检查该区域是否完整位于文件内，不复制任何类定义项；
+ * 访问时通过可复用的 DexClassDefView 游标直接从映射的 buffer 中读取字段。
  */
 public class DexClassDefs {
-    private List<DexClassDef> classDefList = new ArrayList<>();
+    /**
+     * 默认的 class_data 缓存上限（按估算的堆占用字节数计）
+     */
+    public static final long DEFAULT_CLASS_DATA_CACHE_BYTES = 8L * 1024 * 1024;
+
+    private final long maxClassDataCacheBytes;
+
+    private ByteBuffer buffer;   // 小端序的 DEX 数据副本，只做绝对读取
+    private int classDefsOff;
+    private int classDefsSize;
+    private int typeIdsSize;
+    private volatile int[] classDefByType; // type 索引 -> class_def 索引，第一次按类型查找时建立
+    private ParseStats stats;              // 不为 null 且 isOnDemandEnabled 时记录按需解码 class_data 的统计信息
+    private DexTypeListCache typeLists;    // 接口列表，可与 DexProtoIds 共享
+    private int[] indexedClassData;        // 从索引载入时：每个类在 indexData 中的位置，-1 表示没有 class_data
+    private IntBuffer indexData;           // 从索引载入时：映射的 class_data 区
+    private BoundedIndexCache<DexClassData> classDataCache = new BoundedIndexCache<>(0, 0, DexClassData::estimateSize);
+
+    public DexClassDefs() {
+        this(DEFAULT_CLASS_DATA_CACHE_BYTES);
+    }
+
+    /**
+     * @param maxClassDataCacheBytes 已解析 class_data 缓存的上限（估算字节数），小于等于 0 表示不缓存
+     */
+    public DexClassDefs(long maxClassDataCacheBytes) {
+        this.maxClassDataCacheBytes = maxClassDataCacheBytes;
+    }
 
     /**
      * 解析类定义区域
@@ -22,30 +59,249 @@ public class DexClassDefs {
      * @param header 已解析的 DexFileHeader，其中包含 classDefsSize 和 classDefsOff 信息
      */
     public void parse(ByteBuffer buffer, DexFileHeader header) {
-        int classDefsSize = header.getClassDefsSize();
-        int classDefsOff = header.getClassDefsOff();
+        int size = header.getClassDefsSize();
+        int off = header.getClassDefsOff();
+
+        // 每个类定义项占用 32 字节，整个区域必须位于文件范围内
+        long end = (long) off + (long) size * DexClassDefView.ITEM_SIZE;
+        if (size < 0 || off < 0 || end > buffer.limit()) {
+            throw new RuntimeException("Invalid DEX file: class_defs [" + off + ", " + end
+                    + ") exceeds file size " + buffer.limit());
+        }
 
         // DEX 文件采用小端字节序
-        buffer.order(ByteOrder.LITTLE_ENDIAN);
-        buffer.position(classDefsOff);
+        this.buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        this.classDefsOff = off;
+        this.classDefsSize = size;
+        this.typeIdsSize = header.getTypeIdsSize();
+        this.classDefByType = null;
+        this.indexedClassData = null;
+        this.indexData = null;
+        this.classDataCache = new BoundedIndexCache<>(size, maxClassDataCacheBytes, DexClassData::estimateSize);
+        if (typeLists == null) {
+            typeLists = new DexTypeListCache(this.buffer, size);
+        }
+    }
+
+    /**
+     * 使用与其他区域（如 proto 的参数列表）共享的 type_list 缓存，需在 parse 之前调用
+     */
+    void setTypeListCache(DexTypeListCache typeLists) {
+        this.typeLists = typeLists;
+    }
+
+    /**
+     * 获取类直接实现的接口列表，interfaces_off 相同的类返回同一个实例
+     *
+     * @param index class_def 索引
+     * @return 接口列表，没有接口时返回 DexTypeList.EMPTY
+     */
+    public DexTypeList getInterfaces(int index) {
+        if (index < 0 || index >= classDefsSize) {
+            throw new IndexOutOfBoundsException("class_def index " + index + " out of range [0, " + classDefsSize + ")");
+        }
+        return typeLists.get(buffer.getInt(classDefsOff + index * DexClassDefView.ITEM_SIZE + 12));
+    }
+
+    /**
+     * 获取类定义数量
+     */
+    public int getClassDefCount() {
+        return classDefsSize;
+    }
 
-        // 每个类定义项占用 32 字节
+    /**
+     * 创建一个新的游标，调用方通过 moveTo 定位后读取字段
+     */
+    public DexClassDefView newView() {
+        return new DexClassDefView(buffer, classDefsOff, classDefsSize);
+    }
+
+    /**
+     * 按顺序遍历所有类定义项。整个遍历过程复用同一个游标，不分配其他对象；
+     * 回调中不要保存游标的引用。
+     */
+    public void forEach(Consumer<DexClassDefView> action) {
+        DexClassDefView view = newView();
         for (int i = 0; i < classDefsSize; i++) {
-            int classIdx = buffer.getInt();
-            int accessFlags = buffer.getInt();
-            int superclassIdx = buffer.getInt();
-            int interfacesOff = buffer.getInt();
-            int sourceFileIdx = buffer.getInt();
-            int annotationsOff = buffer.getInt();
-            int classDataOff = buffer.getInt();
-            int staticValuesOff = buffer.getInt();
-            classDefList.add(new DexClassDef(classIdx, accessFlags, superclassIdx, interfacesOff,
-                    sourceFileIdx, annotationsOff, classDataOff, staticValuesOff));
+            action.accept(view.moveTo(i));
         }
     }
 
+    /**
+     * 以推送方式遍历所有类及其字段和方法。
+     *
+     * class_data_item 直接从映射的 buffer 中流式解码，全程只复用一个游标，
+     * 不创建 DexClassData、EncodedField、EncodedMethod 等对象。
+     *
+     * @param visitor 回调
+     */
+    public void accept(DexClassVisitor visitor) {
+        DexClassDefView def = newView();
+        int[] sizes = new int[4]; // class_data_item 头部的四个计数，各个类复用
+        for (int i = 0; i < classDefsSize; i++) {
+            def.moveTo(i);
+            if (visitor.visitClass(def)) {
+                int classDataOff = def.getClassDataOff();
+                if (classDataOff != 0) {
+                    visitClassData(classDataOff, sizes, visitor);
+                }
+            }
+            visitor.visitClassEnd(def);
+        }
+    }
+
+    private void visitClassData(int offset, int[] sizes, DexClassVisitor visitor) {
+        int pos = DexdumpUtils.readUnsignedLeb128s(buffer, offset, sizes, 0, 4);
+        int staticFieldsSize = sizes[0];
+        int instanceFieldsSize = sizes[1];
+        int directMethodsSize = sizes[2];
+        int virtualMethodsSize = sizes[3];
+        long leb;
+
+        for (int list = 0; list < 2; list++) {
+            int count = list == 0 ? staticFieldsSize : instanceFieldsSize;
+            int fieldIdx = 0; // 每个列表的第一个元素存放的是绝对索引，之后为增量
+            for (int i = 0; i < count; i++) {
+                leb = DexdumpUtils.readUnsignedLeb128At(buffer, pos);
+                pos += DexdumpUtils.lebLength(leb);
+                fieldIdx += DexdumpUtils.lebValue(leb);
+                leb = DexdumpUtils.readUnsignedLeb128At(buffer, pos);
+                pos += DexdumpUtils.lebLength(leb);
+                visitor.visitField(fieldIdx, DexdumpUtils.lebValue(leb), list == 0);
+            }
+        }
+        for (int list = 0; list < 2; list++) {
+            int count = list == 0 ? directMethodsSize : virtualMethodsSize;
+            int methodIdx = 0;
+            for (int i = 0; i < count; i++) {
+                leb = DexdumpUtils.readUnsignedLeb128At(buffer, pos);
+                pos += DexdumpUtils.lebLength(leb);
+                methodIdx += DexdumpUtils.lebValue(leb);
+                leb = DexdumpUtils.readUnsignedLeb128At(buffer, pos);
+                pos += DexdumpUtils.lebLength(leb);
+                int accessFlags = DexdumpUtils.lebValue(leb);
+                leb = DexdumpUtils.readUnsignedLeb128At(buffer, pos);
+                pos += DexdumpUtils.lebLength(leb);
+                visitor.visitMethod(methodIdx, accessFlags, DexdumpUtils.lebValue(leb), list == 0);
+            }
+        }
+    }
+
+    /**
+     * 复制指定的类定义项
+     *
+     * @param index 类定义索引
+     * @return 对应的 DexClassDef 对象，若索引非法则返回 null
+     */
+    public DexClassDef getClassDef(int index) {
+        if (index < 0 || index >= classDefsSize) {
+            return null;
+        }
+        return newView().moveTo(index).toClassDef();
+    }
+
+    /**
+     * 获取指定类的 class_data。第一次访问时解码（索引增量已累加），结果放入按 class_def 索引的有界缓存，
+     * 之后对同一个类的查询直接返回缓存中的同一个对象。
+     *
+     * @param index class_def 索引
+     * @return 解析结果；该类没有 class_data 时返回 null
+     * @throws IndexOutOfBoundsException 如果索引非法
+     */
+    public DexClassData getClassData(int index) {
+        if (index < 0 || index >= classDefsSize) {
+            throw new IndexOutOfBoundsException("class_def index " + index);
+        }
+        DexClassData data = classDataCache.get(index);
+        if (data == null) {
+            int classDataOff = buffer.getInt(classDefsOff + index * DexClassDefView.ITEM_SIZE + 24);
+            if (classDataOff == 0) {
+                return null;
+            }
+            ParseStats.Timer timer = stats != null && stats.isOnDemandEnabled() ? stats.start("class_data") : null;
+            data = indexData != null
+                    ? DexClassData.readIndexed(indexData, indexedClassData[index])
+                    : DexClassData.parse(buffer, classDataOff);
+            if (timer != null) {
+                timer.end(data.getFieldCount() + data.getMethodCount(), data.getByteSize());
+            }
+            data = classDataCache.put(index, data);
+        }
+        return data;
+    }
+
+    /**
+     * 在 parse 之后载入 DexIndexCache 索引中的类型映射和已解码的 class_data，
+     * 之后 getClassData 从映射的索引中复制数组，不再解码 class_data_item
+     */
+    void loadIndex(int[] classDefByType, int[] positions, IntBuffer classData) {
+        this.classDefByType = classDefByType;
+        this.indexedClassData = positions;
+        this.indexData = classData;
+    }
+
+    /**
+     * 设置统计信息的记录目标，getClassData 每次解码时记录一次 class_data 阶段
+     */
+    void setParseStats(ParseStats stats) {
+        this.stats = stats;
+    }
+
+    /**
+     * 获取当前缓存的 class_data 的估算占用（字节）
+     */
+    public long getCachedClassDataBytes() {
+        return classDataCache.getWeight();
+    }
+
+    /**
+     * 查找定义了指定类型的 class_def。
+     *
+     * class_defs 按继承关系而不是按类型排序，因此第一次调用时扫描一遍 class_idx，
+     * 建立 type 索引到 class_def 索引的 int[] 映射（只读取每项的前 4 个字节），之后每次查找为 O(1)。
+     * 多个线程同时第一次调用时可能各自建立一次映射，结果相同。
+     *
+     * @param typeIdx 类型索引
+     * @return class_def 索引；该类型不在本 DEX 文件中定义时返回 -1
+     */
+    public int findClassDefByType(int typeIdx) {
+        if (typeIdx < 0 || typeIdx >= typeIdsSize) {
+            return -1;
+        }
+        int[] map = classDefByType;
+        if (map == null) {
+            map = new int[typeIdsSize];
+            Arrays.fill(map, -1);
+            for (int i = 0; i < classDefsSize; i++) {
+                int classIdx = buffer.getInt(classDefsOff + i * DexClassDefView.ITEM_SIZE);
+                if (classIdx >= 0 && classIdx < typeIdsSize) {
+                    map[classIdx] = i;
+                }
+            }
+            classDefByType = map;
+        }
+        return map[typeIdx];
+    }
+
+    /**
+     * 获取类定义列表视图，DexClassDef 在访问时创建
+     */
     public List<DexClassDef> getClassDefList() {
-        return classDefList;
+        return new AbstractList<DexClassDef>() {
+            @Override
+            public DexClassDef get(int index) {
+                if (index < 0 || index >= classDefsSize) {
+                    throw new IndexOutOfBoundsException("class_def index " + index);
+                }
+                return getClassDef(index);
+            }
+
+            @Override
+            public int size() {
+                return classDefsSize;
+            }
+        };
     }
 
     /**
@@ -59,8 +315,18 @@ public class DexClassDefs {
      * @param dexTypeIds 已解析的 DexTypeIds（包含所有类型信息）
      */
     public void printClassDefs(DexStringIds dexStringIds, DexTypeIds dexTypeIds) {
-        for (int i = 0; i < classDefList.size(); i++) {
-            DexClassDef def = classDefList.get(i);
+        DumpSink sink = TextDumpSink.stdout();
+        printClassDefs(dexStringIds, dexTypeIds, sink);
+        sink.flush();
+    }
+
+    /**
+     * 将类定义信息输出到指定的 sink
+     */
+    public void printClassDefs(DexStringIds dexStringIds, DexTypeIds dexTypeIds, DumpSink sink) {
+        DexClassDefView def = newView();
+        for (int i = 0; i < classDefsSize; i++) {
+            def.moveTo(i);
             // 获取类名（描述符），注意：classIdx 是指向 DexTypeIds 的索引
             String classDescriptor = dexTypeIds.getTypeName(def.getClassIdx(), dexStringIds);
 
@@ -72,58 +338,74 @@ public class DexClassDefs {
             String sourceFile = (def.getSourceFileIdx() < 0 || def.getSourceFileIdx() >= dexStringIds.getStringCount())
                     ? "null" : dexStringIds.getStringByIndex(def.getSourceFileIdx());
 
-            System.out.println("Class " + i + ": " + classDescriptor);
-            System.out.println("  Superclass: " + superclassDescriptor);
-            System.out.println("  Source File: " + sourceFile);
-            System.out.println("  Access Flags: 0x" + Integer.toHexString(def.getAccessFlags()));
-            System.out.println();
+            sink.append("Class ").append(i).append(": ").append(classDescriptor).newLine();
+            sink.append("  Superclass: ").append(superclassDescriptor).newLine();
+            sink.append("  Source File: ").append(sourceFile).newLine();
+            sink.append("  Access Flags: 0x").appendHex(def.getAccessFlags()).newLine();
+            sink.newLine();
         }
     }
 
 
     public void printFullClassInfo(DexStringIds dexStringIds, DexTypeIds dexTypeIds, ByteBuffer buffer) {
-        for (int i = 0; i < classDefList.size(); i++) {
-            DexClassDef def = classDefList.get(i);
+        DumpSink sink = TextDumpSink.stdout();
+        printFullClassInfo(dexStringIds, dexTypeIds, buffer, sink);
+        sink.flush();
+    }
+
+    /**
+     * 将所有类的完整信息（类头、字段和方法）输出到指定的 sink
+     */
+    public void printFullClassInfo(DexStringIds dexStringIds, DexTypeIds dexTypeIds, ByteBuffer buffer, DumpSink sink) {
+        DexClassDefView def = newView();
+        for (int i = 0; i < classDefsSize; i++) {
+            def.moveTo(i);
             // 解析类名和父类名
             String classDesc = dexTypeIds.getTypeName(def.getClassIdx(), dexStringIds);
             String superDesc = (def.getSuperclassIdx() < 0 || def.getSuperclassIdx() >= dexTypeIds.getTypeCount())
                     ? "Ljava/lang/Object;" : dexTypeIds.getTypeName(def.getSuperclassIdx(), dexStringIds);
-            // 转换为 Java 风格的名称（例如 "Lcom/example/MyClass;" -> "com.example.MyClass"）
-            String className = convertDescriptorToJavaName(classDesc);
-            String superName = convertDescriptorToJavaName(superDesc);
             // 获取源文件
             String sourceFile = (def.getSourceFileIdx() < 0 || def.getSourceFileIdx() >= dexStringIds.getStringCount())
                     ? "Unknown" : dexStringIds.getStringByIndex(def.getSourceFileIdx());
 
-            // 输出类头
-            System.out.println("--------------------------------------------------");
-            System.out.println("Class " + i + ": " + className);
-            System.out.println("  Superclass: " + superName);
-            System.out.println("  Source File: " + sourceFile);
-            System.out.println("  Access Flags: 0x" + Integer.toHexString(def.getAccessFlags()));
+            // 输出类头，类名转换为 Java 风格（例如 "Lcom/example/MyClass;" -> "com.example.MyClass"）
+            sink.append("--------------------------------------------------").newLine();
+            appendJavaName(sink.append("Class ").append(i).append(": "), classDesc).newLine();
+            appendJavaName(sink.append("  Superclass: "), superDesc).newLine();
+            sink.append("  Source File: ").append(sourceFile).newLine();
+            sink.append("  Access Flags: 0x").appendHex(def.getAccessFlags()).newLine();
 
             // 解析 class data（字段和方法）
             if (def.getClassDataOff() != 0) {
-                DexClassData classData = DexClassData.parse(buffer.duplicate(), def.getClassDataOff());
+                DexClassData classData = DexClassData.parse(buffer, def.getClassDataOff());
                 if (classData != null) {
-                    System.out.println("  [Class Data]");
-                    System.out.println(classData);
+                    sink.append("  [Class Data]").newLine();
+                    classData.writeTo(sink);
+                    sink.newLine();
                 }
             } else {
-                System.out.println("  [No Class Data]");
+                sink.append("  [No Class Data]").newLine();
             }
-            System.out.println("--------------------------------------------------\n");
+            sink.append("--------------------------------------------------").newLine().newLine();
         }
     }
 
 
-    private String convertDescriptorToJavaName(String descriptor) {
+    /**
+     * 把类型描述符按 Java 风格的名称写入 sink，不创建中间字符串
+     */
+    private DumpSink appendJavaName(DumpSink sink, String descriptor) {
         if (descriptor == null || descriptor.isEmpty()) {
-            return descriptor;
+            return sink.append(descriptor);
         }
-        if (descriptor.charAt(0) == 'L' && descriptor.charAt(descriptor.length()-1) == ';') {
-            return descriptor.substring(1, descriptor.length()-1).replace('/', '.');
+        int len = descriptor.length();
+        if (descriptor.charAt(0) == 'L' && descriptor.charAt(len - 1) == ';') {
+            for (int i = 1; i < len - 1; i++) {
+                char c = descriptor.charAt(i);
+                sink.append(c == '/' ? '.' : c);
+            }
+            return sink;
         }
-        return descriptor;
+        return sink.append(descriptor);
     }
 }
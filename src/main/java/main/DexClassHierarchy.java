@@ -0,0 +1,482 @@
+package main;
+
+import main.second.DexClassDefView;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * DexClassHierarchy 是一个或多个 DEX 文件（多 dex 应用的 classes*.dex）合在一起的类继承关系索引。
+ *
+ * 所有 dex 中出现的类型描述符去重后按字典序编号（节点），包括只被引用、没有定义的外部类型（如 Ljava/lang/Object;）。
+ * 同一个类在多个 dex 中定义时以第一个 dex 为准，与类加载器的查找顺序一致。
+ * 父类、接口、直接子类型都按 CSR 格式存成 int[]：第 i 个节点的数据位于 targets[offsets[i] .. offsets[i + 1])。
+ *
+ * 子类型查询基于 DFS 区间编号：沿父类关系构成的森林做先序遍历，节点 X 的所有子类的先序号
+ * 恰好是连续区间 [pre(X), last(X)]。接口的实现者（直接实现或经由子接口实现的类，及其所有子类）
+ * 是若干个这样的子树区间的并，构建时合并成按起点排序、互不相交的区间表，通常只有一到几个区间。因此：
+ * - isAssignable(X, Y) 对类是一次区间比较，对接口是在 Y 的区间表中二分查找；
+ * - getSubtypes(Y) 直接按区间取出先序数组的连续片段。
+ *
+ * 外部类型（只被引用的类）的父类未知，和数组类型一样视为直接继承 Ljava/lang/Object;。
+ * 数组类型的协变关系不在索引中。构建完成后只读，可以在线程间共享。
+ */
+public class DexClassHierarchy {
+    private static final int NO_INDEX = -1;
+    private static final int ACC_INTERFACE = 0x0200;
+    private static final String OBJECT_DESCRIPTOR = "Ljava/lang/Object;";
+
+    private final String[] descriptors;   // 节点的类型描述符，按字典序
+    private final int[][] typeToNode;     // [dex][type_ids 索引] → 节点
+    private final int[] dexIndexes;       // 定义该类的 dex，外部类型为 -1
+    private final int[] classDefIndexes;  // 在该 dex 中的 class_defs 索引
+    private final int[] accessFlags;
+    private final int[] superclasses;
+    private final int[] interfaceOffsets;
+    private final int[] interfaces;
+    private final int[] subtypeOffsets;   // 直接子类型：直接子类和直接实现者
+    private final int[] subtypes;
+    private final int[] preorder;         // 节点 → 先序号
+    private final int[] last;             // 节点 → 子树中最大的先序号
+    private final int[] order;            // 先序号 → 节点
+    private final int[] rangeOffsets;     // 每个节点的子类型区间表（包括自身所在的子树）
+    private final int[] rangeStarts;
+    private final int[] rangeEnds;
+
+    private DexClassHierarchy(String[] descriptors, int[][] typeToNode, int[] dexIndexes, int[] classDefIndexes,
+                              int[] accessFlags, int[] superclasses, int[] interfaceOffsets, int[] interfaces) {
+        int n = descriptors.length;
+        this.descriptors = descriptors;
+        this.typeToNode = typeToNode;
+        this.dexIndexes = dexIndexes;
+        this.classDefIndexes = classDefIndexes;
+        this.accessFlags = accessFlags;
+        this.superclasses = superclasses;
+        this.interfaceOffsets = interfaceOffsets;
+        this.interfaces = interfaces;
+
+        // 直接子类型 = 父类的反向边 + 接口的反向边
+        int[] counts = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            if (superclasses[i] != NO_INDEX) {
+                counts[superclasses[i] + 1]++;
+            }
+        }
+        for (int target : interfaces) {
+            counts[target + 1]++;
+        }
+        subtypeOffsets = prefixSum(counts);
+        subtypes = new int[subtypeOffsets[n]];
+        int[] fill = Arrays.copyOf(subtypeOffsets, n);
+        for (int i = 0; i < n; i++) {
+            if (superclasses[i] != NO_INDEX) {
+                subtypes[fill[superclasses[i]]++] = i;
+            }
+            for (int k = interfaceOffsets[i]; k < interfaceOffsets[i + 1]; k++) {
+                subtypes[fill[interfaces[k]]++] = i;
+            }
+        }
+
+        preorder = new int[n];
+        last = new int[n];
+        order = new int[n];
+        numberTree();
+
+        rangeOffsets = new int[n + 1];
+        int[][] ranges = buildRanges();
+        rangeStarts = ranges[0];
+        rangeEnds = ranges[1];
+    }
+
+    /**
+     * 为单个 DEX 文件建立继承关系索引
+     */
+    public static DexClassHierarchy build(DexFile dexFile) {
+        return build(Collections.singletonList(dexFile));
+    }
+
+    /**
+     * 为多个 DEX 文件建立合并的继承关系索引，需要各个 dex 加载 string_ids、type_ids 和 class_defs
+     *
+     * @param dexFiles 按类加载顺序排列的 dex（classes.dex、classes2.dex ...）
+     * @return 构建好的索引
+     */
+    public static DexClassHierarchy build(List<DexFile> dexFiles) {
+        int dexCount = dexFiles.size();
+
+        // 所有类型描述符合并去重。每个 dex 的 type_ids 已按描述符排序，拼接后排序只需归并这些有序段
+        String[][] names = new String[dexCount][];
+        int total = 0;
+        for (int d = 0; d < dexCount; d++) {
+            DexStringIds strings = dexFiles.get(d).getStringIds();
+            DexTypeIds types = dexFiles.get(d).getTypeIds();
+            names[d] = new String[types.getTypeCount()];
+            for (int t = 0; t < names[d].length; t++) {
+                names[d][t] = types.getTypeName(t, strings);
+            }
+            total += names[d].length;
+        }
+        String[] all = new String[total];
+        int pos = 0;
+        for (String[] dexNames : names) {
+            System.arraycopy(dexNames, 0, all, pos, dexNames.length);
+            pos += dexNames.length;
+        }
+        Arrays.sort(all);
+        int n = 0;
+        for (int i = 0; i < total; i++) {
+            if (n == 0 || !all[i].equals(all[n - 1])) {
+                all[n++] = all[i];
+            }
+        }
+        String[] descriptors = Arrays.copyOf(all, n);
+
+        int[][] typeToNode = new int[dexCount][];
+        for (int d = 0; d < dexCount; d++) {
+            typeToNode[d] = new int[names[d].length];
+            for (int t = 0; t < names[d].length; t++) {
+                typeToNode[d][t] = Arrays.binarySearch(descriptors, names[d][t]);
+            }
+        }
+
+        // 读取类定义：父类、访问标志，接口列表先按定义顺序暂存
+        int[] dexIndexes = new int[n];
+        int[] classDefIndexes = new int[n];
+        int[] flags = new int[n];
+        int[] superclasses = new int[n];
+        Arrays.fill(dexIndexes, NO_INDEX);
+        Arrays.fill(classDefIndexes, NO_INDEX);
+        Arrays.fill(superclasses, NO_INDEX);
+        int[] interfaceCounts = new int[n + 1];
+        int[][] declared = new int[n][];
+        for (int d = 0; d < dexCount; d++) {
+            DexClassDefs classDefs = dexFiles.get(d).getClassDefs();
+            DexClassDefView view = classDefs.newView();
+            int[] nodes = typeToNode[d];
+            for (int c = 0; c < classDefs.getClassDefCount(); c++) {
+                view.moveTo(c);
+                int node = lookup(nodes, view.getClassIdx());
+                if (node == NO_INDEX || dexIndexes[node] != NO_INDEX) {
+                    continue; // 非法的 class_idx，或已在前面的 dex 中定义
+                }
+                dexIndexes[node] = d;
+                classDefIndexes[node] = c;
+                flags[node] = view.getAccessFlags();
+                superclasses[node] = lookup(nodes, view.getSuperclassIdx());
+                DexTypeList list = classDefs.getInterfaces(c);
+                if (list.size() > 0) {
+                    int[] targets = new int[list.size()];
+                    int count = 0;
+                    for (int k = 0; k < targets.length; k++) {
+                        int target = lookup(nodes, list.getTypeIndex(k));
+                        if (target != NO_INDEX) {
+                            targets[count++] = target;
+                        }
+                    }
+                    declared[node] = count == targets.length ? targets : Arrays.copyOf(targets, count);
+                    interfaceCounts[node + 1] = count;
+                }
+            }
+        }
+        // 所有引用类型都可以赋给 Object：父类未知的外部类和数组类型挂在 Ljava/lang/Object; 之下
+        int object = Arrays.binarySearch(descriptors, OBJECT_DESCRIPTOR);
+        if (object >= 0) {
+            for (int i = 0; i < n; i++) {
+                char c = descriptors[i].charAt(0);
+                if (superclasses[i] == NO_INDEX && i != object && dexIndexes[i] == NO_INDEX && (c == 'L' || c == '[')) {
+                    superclasses[i] = object;
+                }
+            }
+        }
+        int[] interfaceOffsets = prefixSum(interfaceCounts);
+        int[] interfaces = new int[interfaceOffsets[n]];
+        for (int i = 0; i < n; i++) {
+            if (declared[i] != null) {
+                System.arraycopy(declared[i], 0, interfaces, interfaceOffsets[i], declared[i].length);
+            }
+        }
+        return new DexClassHierarchy(descriptors, typeToNode, dexIndexes, classDefIndexes, flags, superclasses,
+                interfaceOffsets, interfaces);
+    }
+
+    private static int lookup(int[] nodes, int typeIdx) {
+        return typeIdx >= 0 && typeIdx < nodes.length ? nodes[typeIdx] : NO_INDEX;
+    }
+
+    private static int[] prefixSum(int[] counts) {
+        for (int i = 1; i < counts.length; i++) {
+            counts[i] += counts[i - 1];
+        }
+        return counts;
+    }
+
+    /**
+     * 沿父类关系做非递归的先序遍历，给每个节点编号。
+     * 先从没有父类的节点开始；父类关系成环（非法数据）时，环上剩余的节点再各自作为根
+     */
+    private void numberTree() {
+        int n = descriptors.length;
+        int[] childOffsets = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            if (superclasses[i] != NO_INDEX) {
+                childOffsets[superclasses[i] + 1]++;
+            }
+        }
+        prefixSum(childOffsets);
+        int[] children = new int[childOffsets[n]];
+        int[] fill = Arrays.copyOf(childOffsets, n);
+        for (int i = 0; i < n; i++) {
+            if (superclasses[i] != NO_INDEX) {
+                children[fill[superclasses[i]]++] = i;
+            }
+        }
+
+        Arrays.fill(preorder, NO_INDEX);
+        int[] stack = new int[n];
+        int[] cursor = Arrays.copyOf(childOffsets, n); // 每个节点下一个要访问的子节点位置
+        int counter = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            for (int root = 0; root < n; root++) {
+                if (preorder[root] != NO_INDEX || (pass == 0 && superclasses[root] != NO_INDEX)) {
+                    continue;
+                }
+                int sp = 0;
+                stack[sp++] = root;
+                preorder[root] = counter;
+                order[counter++] = root;
+                while (sp > 0) {
+                    int v = stack[sp - 1];
+                    if (cursor[v] < childOffsets[v + 1]) {
+                        int c = children[cursor[v]++];
+                        if (preorder[c] == NO_INDEX) {
+                            preorder[c] = counter;
+                            order[counter++] = c;
+                            stack[sp++] = c;
+                        }
+                    } else {
+                        last[v] = counter - 1;
+                        sp--;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 为每个节点建立子类型区间表：自身的子树，加上所有直接或经由子接口实现它的类的子树，排序后合并
+     */
+    private int[][] buildRanges() {
+        int n = descriptors.length;
+        int[] marks = new int[n];
+        Arrays.fill(marks, NO_INDEX);
+        int[] queue = new int[n];
+        long[] spans = new long[16];
+        int[] starts = new int[n];
+        int[] ends = new int[n];
+        int size = 0;
+        for (int y = 0; y < n; y++) {
+            int count = 0;
+            spans[count++] = span(y);
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = y;
+            marks[y] = y;
+            while (head < tail) {
+                int w = queue[head++];
+                for (int k = subtypeOffsets[w]; k < subtypeOffsets[w + 1]; k++) {
+                    int z = subtypes[k];
+                    if (marks[z] == y || superclasses[z] == w) {
+                        continue; // 子类已包含在 w 的子树区间中，只需沿接口的实现关系扩展
+                    }
+                    marks[z] = y;
+                    queue[tail++] = z;
+                    if (count == spans.length) {
+                        spans = Arrays.copyOf(spans, count * 2);
+                    }
+                    spans[count++] = span(z);
+                }
+            }
+
+            if (count > 1) {
+                Arrays.sort(spans, 0, count);
+            }
+            rangeOffsets[y] = size;
+            for (int k = 0; k < count; k++) {
+                int start = (int) (spans[k] >>> 32);
+                int end = (int) spans[k];
+                if (size > rangeOffsets[y] && start <= ends[size - 1] + 1) {
+                    ends[size - 1] = Math.max(ends[size - 1], end);
+                    continue;
+                }
+                if (size == starts.length) {
+                    starts = Arrays.copyOf(starts, size * 2);
+                    ends = Arrays.copyOf(ends, size * 2);
+                }
+                starts[size] = start;
+                ends[size] = end;
+                size++;
+            }
+        }
+        rangeOffsets[n] = size;
+        return new int[][]{Arrays.copyOf(starts, size), Arrays.copyOf(ends, size)};
+    }
+
+    private long span(int node) {
+        return ((long) preorder[node] << 32) | last[node];
+    }
+
+    /**
+     * 节点（不同类型描述符）的个数
+     */
+    public int getNodeCount() {
+        return descriptors.length;
+    }
+
+    /**
+     * 按类型描述符查找节点
+     *
+     * @return 节点；所有 dex 中都没有该类型时返回 -1
+     */
+    public int findClass(String descriptor) {
+        int node = Arrays.binarySearch(descriptors, descriptor);
+        return node >= 0 ? node : NO_INDEX;
+    }
+
+    /**
+     * 某个 dex 中的 type_ids 索引对应的节点
+     *
+     * @param dexIndex 在 build 时传入的列表中的位置
+     * @param typeIdx  该 dex 中的 type_ids 索引
+     */
+    public int getNode(int dexIndex, int typeIdx) {
+        return lookup(typeToNode[dexIndex], typeIdx);
+    }
+
+    public String getDescriptor(int node) {
+        return descriptors[node];
+    }
+
+    /**
+     * 是否在某个 dex 中有类定义，只被引用的外部类型返回 false
+     */
+    public boolean isDefined(int node) {
+        return dexIndexes[node] != NO_INDEX;
+    }
+
+    /**
+     * 定义该类的 dex 在 build 时传入的列表中的位置，外部类型返回 -1
+     */
+    public int getDexIndex(int node) {
+        return dexIndexes[node];
+    }
+
+    /**
+     * 该类在所在 dex 中的 class_defs 索引，外部类型返回 -1
+     */
+    public int getClassDefIndex(int node) {
+        return classDefIndexes[node];
+    }
+
+    /**
+     * 类定义中的访问标志，外部类型返回 0
+     */
+    public int getAccessFlags(int node) {
+        return accessFlags[node];
+    }
+
+    public boolean isInterface(int node) {
+        return (accessFlags[node] & ACC_INTERFACE) != 0;
+    }
+
+    /**
+     * 父类节点，没有父类时返回 -1。外部类型和数组类型的父类未知，视为 Ljava/lang/Object;
+     */
+    public int getSuperclass(int node) {
+        return superclasses[node];
+    }
+
+    /**
+     * 类直接声明的接口个数
+     */
+    public int getInterfaceCount(int node) {
+        return interfaceOffsets[node + 1] - interfaceOffsets[node];
+    }
+
+    public int getInterface(int node, int i) {
+        return interfaces[interfaceOffsets[node] + i];
+    }
+
+    /**
+     * 直接子类型（直接子类和直接声明实现该接口的类型）的个数
+     */
+    public int getDirectSubtypeCount(int node) {
+        return subtypeOffsets[node + 1] - subtypeOffsets[node];
+    }
+
+    public int getDirectSubtype(int node, int i) {
+        return subtypes[subtypeOffsets[node] + i];
+    }
+
+    /**
+     * sub 类型的值是否可以赋给 sup 类型：两者相同，sup 是 sub 的祖先类，或 sub 直接或间接实现了接口 sup
+     */
+    public boolean isAssignable(int sub, int sup) {
+        int p = preorder[sub];
+        if (p >= preorder[sup] && p <= last[sup]) {
+            return true;
+        }
+        int low = rangeOffsets[sup];
+        int high = rangeOffsets[sup + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (rangeEnds[mid] < p) {
+                low = mid + 1;
+            } else if (rangeStarts[mid] > p) {
+                high = mid - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 按描述符判断可赋值关系，任一类型不在索引中时返回 false（两者相同时除外）
+     */
+    public boolean isAssignable(String sub, String sup) {
+        if (sub.equals(sup)) {
+            return true;
+        }
+        int subNode = findClass(sub);
+        int supNode = findClass(sup);
+        return subNode != NO_INDEX && supNode != NO_INDEX && isAssignable(subNode, supNode);
+    }
+
+    /**
+     * 所有子类型的个数（不包括自身）
+     */
+    public int getSubtypeCount(int node) {
+        int count = -1;
+        for (int k = rangeOffsets[node]; k < rangeOffsets[node + 1]; k++) {
+            count += rangeEnds[k] - rangeStarts[k] + 1;
+        }
+        return count;
+    }
+
+    /**
+     * 所有直接和间接的子类、实现者（不包括自身），按先序排列
+     */
+    public int[] getSubtypes(int node) {
+        int[] result = new int[getSubtypeCount(node)];
+        int pos = 0;
+        for (int k = rangeOffsets[node]; k < rangeOffsets[node + 1]; k++) {
+            for (int p = rangeStarts[k]; p <= rangeEnds[k]; p++) {
+                if (order[p] != node) {
+                    result[pos++] = order[p];
+                }
+            }
+        }
+        return result;
+    }
+}
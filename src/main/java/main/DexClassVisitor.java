@@ -0,0 +1,53 @@
+package main;
+
+import main.second.DexClassDefView;
+
+/**
+ * DexClassVisitor 是遍历类定义及其成员的推送式回调接口，配合 DexClassDefs.accept 使用。
+ *
+ * 遍历直接在映射的 buffer 上解码 class_data_item，不为类或成员创建集合对象，
+ * 因此内存占用与 dex 中类的数量无关。回调顺序为：
+ * visitClass → 静态字段 → 实例字段 → direct 方法 → virtual 方法 → visitClassEnd。
+ *
+ * 字段和方法索引已经按 delta 编码累加，可以直接用于 DexFieldIds / DexMethodIds。
+ * 传入的 DexClassDefView 是复用的游标，只在回调期间有效。
+ */
+public interface DexClassVisitor {
+
+    /**
+     * 开始访问一个类
+     *
+     * @param classDef 当前类定义（复用的游标）
+     * @return false 表示跳过该类的字段和方法（visitClassEnd 仍会被调用）
+     */
+    default boolean visitClass(DexClassDefView classDef) {
+        return true;
+    }
+
+    /**
+     * 访问一个字段
+     *
+     * @param fieldIdx    field_ids 中的索引
+     * @param accessFlags 访问标志
+     * @param isStatic    是否为静态字段
+     */
+    default void visitField(int fieldIdx, int accessFlags, boolean isStatic) {
+    }
+
+    /**
+     * 访问一个方法
+     *
+     * @param methodIdx   method_ids 中的索引
+     * @param accessFlags 访问标志
+     * @param codeOff     code_item 偏移，抽象和 native 方法为 0
+     * @param isDirect    是否为 direct 方法（static、private 或构造方法）
+     */
+    default void visitMethod(int methodIdx, int accessFlags, int codeOff, boolean isDirect) {
+    }
+
+    /**
+     * 结束访问一个类
+     */
+    default void visitClassEnd(DexClassDefView classDef) {
+    }
+}
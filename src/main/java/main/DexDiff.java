@@ -0,0 +1,636 @@
+package main;
+
+import main.output.DumpSink;
+import main.second.DexClassDefView;
+import main.second.DexCodeItemView;
+import main.second.DexInstructionCursor;
+import utils.DexdumpUtils;
+import utils.Mutf8;
+
+import java.nio.ByteBuffer;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * DexDiff 在线性时间内比较两个 DEX 文件（通常是同一应用的两个版本）的结构差异。
+ *
+ * string_ids、type_ids、proto_ids、field_ids、method_ids 在 DEX 中都按内容排序，
+ * 因此各表只需一次归并遍历：字符串直接比较两个文件中的 MUTF-8 字节，不解码；
+ * 之后的表按已经归并好的表比较，例如类型比较描述符字符串在归并序列中的名次（rank）。
+ * 两个文件中内容相同的项得到相同的名次，名次就是跨文件可比较的内容标识。
+ *
+ * 两个文件中同一内容的索引一般不同，所以类不能按原始字节比较。每个类计算一个 64 位哈希，
+ * 覆盖访问标志、父类、接口、源文件、class_data 中的成员及其访问标志，以及每个方法的 code_item：
+ * 寄存器数、指令（操作码、寄存器、字面量、跳转偏移、payload）和 try / catch，
+ * 其中所有 string / type / field / method / proto 索引都先换成名次再参与哈希。
+ * 哈希不同的类再逐个成员比较，报告定义有差异的字段和方法。
+ * 注解、static_values、debug_info 不参与比较；call_site 和 method_handle 索引按原值比较。
+ *
+ * 两个文件中的表都必须符合规范的排序，否则结果没有意义；这里不检查排序，未排序的表会被报告为大量的新增和删除。
+ * 整个比较是 O(两个文件的数据量)，除每个表一组 int[] 名次外不建立其他结构，差异通过 {@link DexDiffVisitor} 流式输出。
+ */
+public final class DexDiff {
+    private static final int NO_INDEX = -1;
+    private static final long HASH_SEED = 0xcbf29ce484222325L;
+
+    private final Side oldSide;
+    private final Side newSide;
+    private final DexDiffVisitor visitor;
+    private long differences;
+
+    private DexDiff(DexFile oldDex, DexFile newDex, DexDiffVisitor visitor) {
+        this.oldSide = new Side(oldDex);
+        this.newSide = new Side(newDex);
+        this.visitor = visitor;
+    }
+
+    /**
+     * 比较两个 DEX 文件，需要两边都加载 string_ids、type_ids、proto_ids、field_ids、method_ids 和 class_defs
+     *
+     * @param oldDex  旧文件
+     * @param newDex  新文件
+     * @param visitor 接收差异的回调
+     * @return 差异的条数（回调的次数）
+     * @throws RuntimeException 如果 class_data 或 code_item 数据非法
+     */
+    public static long diff(DexFile oldDex, DexFile newDex, DexDiffVisitor visitor) {
+        ParseStats.Timer timer = newDex.getParseStats().start("diff");
+        DexDiff diff = new DexDiff(oldDex, newDex, visitor);
+        diff.diffStrings();
+        diff.diffTypes();
+        diff.diffProtos();
+        diff.diffFields();
+        diff.diffMethods();
+        diff.diffClasses();
+        timer.end(diff.differences, 0);
+        return diff.differences;
+    }
+
+    /**
+     * 比较两个 DEX 文件，把差异以文本形式逐行写入 sink：
+     * "+" 新增，"-" 删除，"~" 修改；类的成员差异缩进两格列在类之后
+     *
+     * @return 差异的条数
+     */
+    public static long print(DexFile oldDex, DexFile newDex, DumpSink sink) {
+        return diff(oldDex, newDex, new DexDiffVisitor() {
+            @Override
+            public void added(DexSectionType section, int newIndex) {
+                line("", '+', section, newDex, newIndex);
+            }
+
+            @Override
+            public void removed(DexSectionType section, int oldIndex) {
+                line("", '-', section, oldDex, oldIndex);
+            }
+
+            @Override
+            public void changed(DexSectionType section, int oldIndex, int newIndex) {
+                String indent = section == DexSectionType.CLASS_DEF_ITEM ? "" : "  ";
+                if (oldIndex == NO_INDEX) {
+                    line(indent, '+', section, newDex, newIndex);
+                } else if (newIndex == NO_INDEX) {
+                    line(indent, '-', section, oldDex, oldIndex);
+                } else {
+                    line(indent, '~', section, newDex, newIndex);
+                }
+            }
+
+            private void line(String indent, char mark, DexSectionType section, DexFile dex, int index) {
+                sink.append(indent).append(mark).append(' ').append(describe(section, dex, index)).newLine();
+            }
+        });
+    }
+
+    /**
+     * 差异中一项的可读描述
+     */
+    private static String describe(DexSectionType section, DexFile dex, int index) {
+        DexStringIds strings = dex.getStringIds();
+        DexTypeIds types = dex.getTypeIds();
+        switch (section) {
+            case STRING_ID_ITEM:
+                return "string \"" + strings.getStringByIndex(index) + "\"";
+            case TYPE_ID_ITEM:
+                return "type " + types.getTypeName(index, strings);
+            case PROTO_ID_ITEM:
+                return "proto " + dex.getProtoIds().getProtoId(index).getMethodSignature(strings, types);
+            case FIELD_ID_ITEM: {
+                DexFieldIds fields = dex.getFieldIds();
+                return "field " + types.getTypeName(fields.getClassIdx(index), strings) + "->"
+                        + strings.getStringByIndex(fields.getNameIdx(index)) + ":"
+                        + types.getTypeName(fields.getTypeIdx(index), strings);
+            }
+            case METHOD_ID_ITEM: {
+                DexMethodIds methods = dex.getMethodIds();
+                return "method " + types.getTypeName(methods.getClassIdx(index), strings) + "->"
+                        + strings.getStringByIndex(methods.getNameIdx(index)) + " "
+                        + dex.getProtoIds().getProtoId(methods.getProtoIdx(index)).getMethodSignature(strings, types);
+            }
+            case CLASS_DEF_ITEM:
+                return "class " + types.getTypeName(dex.getClassDefs().newView().moveTo(index).getClassIdx(), strings);
+            default:
+                return section + " " + index;
+        }
+    }
+
+    private void diffStrings() {
+        merge(DexSectionType.STRING_ID_ITEM, oldSide.stringOffs.length, newSide.stringOffs.length,
+                (i, j) -> Mutf8.compare(oldSide.buffer, oldSide.stringOffs[i], oldSide.stringSizes[i],
+                        newSide.buffer, newSide.stringOffs[j], newSide.stringSizes[j]),
+                oldSide.stringRank, newSide.stringRank, oldSide.stringMatch, newSide.stringMatch);
+    }
+
+    private void diffTypes() {
+        merge(DexSectionType.TYPE_ID_ITEM, oldSide.typeDescs.length, newSide.typeDescs.length,
+                (i, j) -> Integer.compare(rank(oldSide.stringRank, oldSide.typeDescs[i]),
+                        rank(newSide.stringRank, newSide.typeDescs[j])),
+                oldSide.typeRank, newSide.typeRank, oldSide.typeMatch, newSide.typeMatch);
+    }
+
+    /**
+     * proto_ids 按返回类型、再按参数列表（逐项比较，较短的在前）排序
+     */
+    private void diffProtos() {
+        merge(DexSectionType.PROTO_ID_ITEM, oldSide.protoReturns.length, newSide.protoReturns.length,
+                (i, j) -> {
+                    int c = Integer.compare(rank(oldSide.typeRank, oldSide.protoReturns[i]),
+                            rank(newSide.typeRank, newSide.protoReturns[j]));
+                    return c != 0 ? c : compareTypeLists(oldSide.protoParams[i], newSide.protoParams[j]);
+                },
+                oldSide.protoRank, newSide.protoRank, oldSide.protoMatch, newSide.protoMatch);
+    }
+
+    /**
+     * field_ids 按所属类、名称、类型排序
+     */
+    private void diffFields() {
+        merge(DexSectionType.FIELD_ID_ITEM, oldSide.fieldNames.length, newSide.fieldNames.length,
+                (i, j) -> {
+                    int c = Integer.compare(rank(oldSide.typeRank, oldSide.fieldClasses[i] & 0xFFFF),
+                            rank(newSide.typeRank, newSide.fieldClasses[j] & 0xFFFF));
+                    if (c == 0) {
+                        c = Integer.compare(rank(oldSide.stringRank, oldSide.fieldNames[i]),
+                                rank(newSide.stringRank, newSide.fieldNames[j]));
+                    }
+                    if (c == 0) {
+                        c = Integer.compare(rank(oldSide.typeRank, oldSide.fieldTypes[i] & 0xFFFF),
+                                rank(newSide.typeRank, newSide.fieldTypes[j] & 0xFFFF));
+                    }
+                    return c;
+                },
+                oldSide.fieldRank, newSide.fieldRank, oldSide.fieldMatch, newSide.fieldMatch);
+    }
+
+    /**
+     * method_ids 按所属类、名称、原型排序
+     */
+    private void diffMethods() {
+        merge(DexSectionType.METHOD_ID_ITEM, oldSide.methodNames.length, newSide.methodNames.length,
+                (i, j) -> {
+                    int c = Integer.compare(rank(oldSide.typeRank, oldSide.methodClasses[i] & 0xFFFF),
+                            rank(newSide.typeRank, newSide.methodClasses[j] & 0xFFFF));
+                    if (c == 0) {
+                        c = Integer.compare(rank(oldSide.stringRank, oldSide.methodNames[i]),
+                                rank(newSide.stringRank, newSide.methodNames[j]));
+                    }
+                    if (c == 0) {
+                        c = Integer.compare(rank(oldSide.protoRank, oldSide.methodProtos[i] & 0xFFFF),
+                                rank(newSide.protoRank, newSide.methodProtos[j] & 0xFFFF));
+                    }
+                    return c;
+                },
+                oldSide.methodRank, newSide.methodRank, oldSide.methodMatch, newSide.methodMatch);
+    }
+
+    /**
+     * 归并遍历两个已排序的表：内容相同的项得到相同的名次并互相对应，只在一边出现的项报告为删除或新增
+     */
+    private void merge(DexSectionType section, int oldCount, int newCount, IntBinaryOperator compare,
+                       int[] oldRank, int[] newRank, int[] oldMatch, int[] newMatch) {
+        int i = 0;
+        int j = 0;
+        int rank = 0;
+        while (i < oldCount || j < newCount) {
+            int c = i == oldCount ? 1 : j == newCount ? -1 : compare.applyAsInt(i, j);
+            if (c < 0) {
+                oldRank[i] = rank++;
+                oldMatch[i] = NO_INDEX;
+                removed(section, i++);
+            } else if (c > 0) {
+                newRank[j] = rank++;
+                newMatch[j] = NO_INDEX;
+                added(section, j++);
+            } else {
+                oldRank[i] = rank;
+                newRank[j] = rank++;
+                oldMatch[i] = j;
+                newMatch[j] = i;
+                i++;
+                j++;
+            }
+        }
+    }
+
+    /**
+     * 按类型描述符的顺序遍历两个文件的类：只在一边定义的类报告为删除或新增，两边都有且哈希不同的类报告为修改
+     */
+    private void diffClasses() {
+        int oldCount = oldSide.typeDescs.length;
+        int newCount = newSide.typeDescs.length;
+        int i = 0;
+        int j = 0;
+        while (i < oldCount || j < newCount) {
+            int c = i == oldCount ? 1 : j == newCount ? -1 : Integer.compare(oldSide.typeRank[i], newSide.typeRank[j]);
+            int oldDef = c <= 0 ? oldSide.classDefs.findClassDefByType(i++) : NO_INDEX;
+            int newDef = c >= 0 ? newSide.classDefs.findClassDefByType(j++) : NO_INDEX;
+            if (oldDef == NO_INDEX && newDef == NO_INDEX) {
+                continue;
+            }
+            if (newDef == NO_INDEX) {
+                removed(DexSectionType.CLASS_DEF_ITEM, oldDef);
+            } else if (oldDef == NO_INDEX) {
+                added(DexSectionType.CLASS_DEF_ITEM, newDef);
+            } else if (classHash(oldSide, oldDef) != classHash(newSide, newDef)) {
+                changed(DexSectionType.CLASS_DEF_ITEM, oldDef, newDef);
+                diffMembers(oldDef, newDef);
+            }
+        }
+    }
+
+    /**
+     * 逐个比较两个版本的类中的字段和方法定义
+     */
+    private void diffMembers(int oldDef, int newDef) {
+        DexClassData oldData = classData(oldSide, oldDef);
+        DexClassData newData = classData(newSide, newDef);
+        int oldFields = oldData == null ? 0 : oldData.getFieldCount();
+        int newFields = newData == null ? 0 : newData.getFieldCount();
+        int[] oldOrder = memberOrder(oldSide.fieldRank, oldData, true);
+        int[] newOrder = memberOrder(newSide.fieldRank, newData, true);
+        int i = 0;
+        int j = 0;
+        while (i < oldFields || j < newFields) {
+            int oi = i < oldFields ? oldOrder[i] : NO_INDEX;
+            int nj = j < newFields ? newOrder[j] : NO_INDEX;
+            int oldIdx = oi == NO_INDEX ? NO_INDEX : oldData.getFieldIndex(oi);
+            int newIdx = nj == NO_INDEX ? NO_INDEX : newData.getFieldIndex(nj);
+            int c = oi == NO_INDEX ? 1 : nj == NO_INDEX ? -1
+                    : Integer.compare(rank(oldSide.fieldRank, oldIdx), rank(newSide.fieldRank, newIdx));
+            if (c < 0) {
+                memberOnlyIn(DexSectionType.FIELD_ID_ITEM, oldSide.fieldMatch, oldIdx, true);
+                i++;
+            } else if (c > 0) {
+                memberOnlyIn(DexSectionType.FIELD_ID_ITEM, newSide.fieldMatch, newIdx, false);
+                j++;
+            } else {
+                if (oldData.getFieldAccessFlags(oi) != newData.getFieldAccessFlags(nj)
+                        || oldData.isStaticField(oi) != newData.isStaticField(nj)) {
+                    changed(DexSectionType.FIELD_ID_ITEM, oldIdx, newIdx);
+                }
+                i++;
+                j++;
+            }
+        }
+
+        int oldMethods = oldData == null ? 0 : oldData.getMethodCount();
+        int newMethods = newData == null ? 0 : newData.getMethodCount();
+        oldOrder = memberOrder(oldSide.methodRank, oldData, false);
+        newOrder = memberOrder(newSide.methodRank, newData, false);
+        i = 0;
+        j = 0;
+        while (i < oldMethods || j < newMethods) {
+            int oi = i < oldMethods ? oldOrder[i] : NO_INDEX;
+            int nj = j < newMethods ? newOrder[j] : NO_INDEX;
+            int oldIdx = oi == NO_INDEX ? NO_INDEX : oldData.getMethodIndex(oi);
+            int newIdx = nj == NO_INDEX ? NO_INDEX : newData.getMethodIndex(nj);
+            int c = oi == NO_INDEX ? 1 : nj == NO_INDEX ? -1
+                    : Integer.compare(rank(oldSide.methodRank, oldIdx), rank(newSide.methodRank, newIdx));
+            if (c < 0) {
+                memberOnlyIn(DexSectionType.METHOD_ID_ITEM, oldSide.methodMatch, oldIdx, true);
+                i++;
+            } else if (c > 0) {
+                memberOnlyIn(DexSectionType.METHOD_ID_ITEM, newSide.methodMatch, newIdx, false);
+                j++;
+            } else {
+                if (oldData.getMethodAccessFlags(oi) != newData.getMethodAccessFlags(nj)
+                        || oldData.isDirectMethod(oi) != newData.isDirectMethod(nj)
+                        || codeHash(oldSide, oldData.getMethodCodeOff(oi)) != codeHash(newSide, newData.getMethodCodeOff(nj))) {
+                    changed(DexSectionType.METHOD_ID_ITEM, oldIdx, newIdx);
+                }
+                i++;
+                j++;
+            }
+        }
+    }
+
+    /**
+     * 只在一边的类中定义的成员：id 本身只在一个文件中时已经作为 id 的增删报告过，这里只报告 id 两边都有的情况
+     */
+    private void memberOnlyIn(DexSectionType section, int[] match, int index, boolean inOld) {
+        if (index < 0 || index >= match.length || match[index] == NO_INDEX) {
+            return;
+        }
+        if (inOld) {
+            changed(section, index, NO_INDEX);
+        } else {
+            changed(section, NO_INDEX, index);
+        }
+    }
+
+    /**
+     * 类中成员按名次排列的顺序。静态 / 实例字段（direct / virtual 方法）各自按索引升序，
+     * 名次与索引同序，所以把两段有序序列归并即可
+     *
+     * @return 成员在 class_data 中的位置，按名次升序
+     */
+    private static int[] memberOrder(int[] ranks, DexClassData data, boolean fields) {
+        if (data == null) {
+            return new int[0];
+        }
+        int split = fields ? data.getStaticFieldsSize() : data.getDirectMethodsSize();
+        int count = fields ? data.getFieldCount() : data.getMethodCount();
+        int[] order = new int[count];
+        int a = 0;
+        int b = split;
+        for (int k = 0; k < count; k++) {
+            if (b == count) {
+                order[k] = a++;
+            } else if (a == split) {
+                order[k] = b++;
+            } else {
+                int ra = rank(ranks, fields ? data.getFieldIndex(a) : data.getMethodIndex(a));
+                int rb = rank(ranks, fields ? data.getFieldIndex(b) : data.getMethodIndex(b));
+                order[k] = ra <= rb ? a++ : b++;
+            }
+        }
+        return order;
+    }
+
+    private static DexClassData classData(Side side, int def) {
+        int classDataOff = side.view.moveTo(def).getClassDataOff();
+        return classDataOff == 0 ? null : DexClassData.parse(side.buffer, classDataOff);
+    }
+
+    /**
+     * 类的内容哈希，所有索引都换成名次，因此两个文件中内容相同的类哈希相同
+     */
+    private static long classHash(Side side, int def) {
+        DexClassDefView view = side.view.moveTo(def);
+        long h = HASH_SEED;
+        h = mix(h, view.getAccessFlags());
+        h = mix(h, rank(side.typeRank, view.getSuperclassIdx()));
+        h = mixTypeList(h, side, view.getInterfacesOff());
+        h = mix(h, rank(side.stringRank, view.getSourceFileIdx()));
+        DexClassData data = classData(side, def);
+        if (data == null) {
+            return h;
+        }
+        h = mix(h, data.getStaticFieldsSize());
+        h = mix(h, data.getInstanceFieldsSize());
+        h = mix(h, data.getDirectMethodsSize());
+        h = mix(h, data.getVirtualMethodsSize());
+        for (int f = 0; f < data.getFieldCount(); f++) {
+            h = mix(h, rank(side.fieldRank, data.getFieldIndex(f)));
+            h = mix(h, data.getFieldAccessFlags(f));
+        }
+        for (int m = 0; m < data.getMethodCount(); m++) {
+            h = mix(h, rank(side.methodRank, data.getMethodIndex(m)));
+            h = mix(h, data.getMethodAccessFlags(m));
+            h = mix(h, codeHash(side, data.getMethodCodeOff(m)));
+        }
+        return h;
+    }
+
+    /**
+     * code_item 的内容哈希：寄存器数、指令和 try / catch，索引换成名次，不包括 debug_info
+     */
+    private static long codeHash(Side side, int codeOff) {
+        if (codeOff == 0) {
+            return 0;
+        }
+        DexCodeItemView code = side.code.moveTo(codeOff);
+        long h = HASH_SEED;
+        h = mix(h, code.getRegistersSize());
+        h = mix(h, code.getInsSize());
+        h = mix(h, code.getOutsSize());
+        h = mix(h, code.getInsnsSize());
+
+        DexInstructionCursor insn = side.insn.reset(code);
+        while (insn.next()) {
+            int opcode = insn.getOpcode();
+            h = mix(h, opcode);
+            if (insn.isPayload()) {
+                int size = insn.getPayloadSize();
+                h = mix(h, size);
+                if (opcode == DexOpcodes.FILL_ARRAY_DATA_PAYLOAD) {
+                    h = mix(h, insn.getArrayElementWidth());
+                    for (int e = 0; e < size; e++) {
+                        h = mix(h, insn.getArrayElement(e));
+                    }
+                } else {
+                    for (int e = 0; e < size; e++) {
+                        h = mix(h, insn.getSwitchKey(e));
+                        h = mix(h, insn.getSwitchTarget(e));
+                    }
+                }
+                continue;
+            }
+            int registers = insn.getRegisterCount();
+            h = mix(h, registers);
+            for (int r = 0; r < registers; r++) {
+                h = mix(h, insn.getRegister(r));
+            }
+            h = mix(h, insn.getLiteral());
+            h = mix(h, insn.getBranchOffset());
+            h = mix(h, resolve(side, insn.getIndexType(), insn.getIndex()));
+            if (insn.getFormat() == DexOpcodes.Format.F45cc || insn.getFormat() == DexOpcodes.Format.F4rcc) {
+                h = mix(h, rank(side.protoRank, insn.getSecondIndex()));
+            }
+        }
+
+        int tries = code.getTriesSize();
+        h = mix(h, tries);
+        if (tries > 0) {
+            ByteBuffer buffer = side.buffer;
+            int triesOff = code.getTriesOff();
+            int handlersOff = triesOff + tries * 8;
+            for (int t = 0; t < tries; t++) {
+                int item = triesOff + t * 8;
+                h = mix(h, buffer.getInt(item));
+                h = mix(h, buffer.getShort(item + 4) & 0xFFFF);
+                h = mixHandler(h, side, handlersOff + (buffer.getShort(item + 6) & 0xFFFF));
+            }
+        }
+        return h;
+    }
+
+    /**
+     * encoded_catch_handler：size（sleb128），若干 (type_idx, addr)，size <= 0 时再跟 catch_all_addr
+     */
+    private static long mixHandler(long h, Side side, int pos) {
+        long leb = DexdumpUtils.readSignedLeb128At(side.buffer, pos);
+        int size = DexdumpUtils.lebValue(leb);
+        pos += DexdumpUtils.lebLength(leb);
+        h = mix(h, size);
+        for (int k = 0; k < Math.abs(size); k++) {
+            leb = DexdumpUtils.readUnsignedLeb128At(side.buffer, pos);
+            pos += DexdumpUtils.lebLength(leb);
+            h = mix(h, rank(side.typeRank, DexdumpUtils.lebValue(leb)));
+            leb = DexdumpUtils.readUnsignedLeb128At(side.buffer, pos);
+            pos += DexdumpUtils.lebLength(leb);
+            h = mix(h, DexdumpUtils.lebValue(leb));
+        }
+        if (size <= 0) {
+            h = mix(h, DexdumpUtils.lebValue(DexdumpUtils.readUnsignedLeb128At(side.buffer, pos)));
+        }
+        return h;
+    }
+
+    private static long mixTypeList(long h, Side side, int offset) {
+        if (offset == 0) {
+            return mix(h, 0);
+        }
+        int size = side.buffer.getInt(offset);
+        h = mix(h, size);
+        for (int k = 0; k < size; k++) {
+            h = mix(h, rank(side.typeRank, side.buffer.getShort(offset + 4 + k * 2) & 0xFFFF));
+        }
+        return h;
+    }
+
+    /**
+     * 逐项比较两个 type_list 中类型的名次，较短的列表在前
+     */
+    private int compareTypeLists(int oldOff, int newOff) {
+        int oldSize = oldOff == 0 ? 0 : oldSide.buffer.getInt(oldOff);
+        int newSize = newOff == 0 ? 0 : newSide.buffer.getInt(newOff);
+        int n = Math.min(oldSize, newSize);
+        for (int k = 0; k < n; k++) {
+            int c = Integer.compare(rank(oldSide.typeRank, oldSide.buffer.getShort(oldOff + 4 + k * 2) & 0xFFFF),
+                    rank(newSide.typeRank, newSide.buffer.getShort(newOff + 4 + k * 2) & 0xFFFF));
+            if (c != 0) {
+                return c;
+            }
+        }
+        return Integer.compare(oldSize, newSize);
+    }
+
+    private static int resolve(Side side, DexOpcodes.IndexType type, int index) {
+        switch (type) {
+            case STRING:
+                return rank(side.stringRank, index);
+            case TYPE:
+                return rank(side.typeRank, index);
+            case FIELD:
+                return rank(side.fieldRank, index);
+            case METHOD:
+                return rank(side.methodRank, index);
+            case PROTO:
+                return rank(side.protoRank, index);
+            default:
+                return index;
+        }
+    }
+
+    /**
+     * 索引对应的名次，NO_INDEX 或越界的索引返回 -1
+     */
+    private static int rank(int[] ranks, int index) {
+        return index >= 0 && index < ranks.length ? ranks[index] : NO_INDEX;
+    }
+
+    private static long mix(long h, long value) {
+        h = (h ^ value) * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 32);
+    }
+
+    private void added(DexSectionType section, int newIndex) {
+        differences++;
+        visitor.added(section, newIndex);
+    }
+
+    private void removed(DexSectionType section, int oldIndex) {
+        differences++;
+        visitor.removed(section, oldIndex);
+    }
+
+    private void changed(DexSectionType section, int oldIndex, int newIndex) {
+        differences++;
+        visitor.changed(section, oldIndex, newIndex);
+    }
+
+    /**
+     * 比较中一个文件的数据：各个 id 表的原始数组，以及归并得到的名次和对应关系
+     */
+    private static final class Side {
+        final ByteBuffer buffer;
+        final DexClassDefs classDefs;
+        final DexClassDefView view;
+        final DexCodeItemView code;
+        final DexInstructionCursor insn = new DexInstructionCursor();
+
+        final int[] stringOffs;   // MUTF-8 数据的起始偏移（跳过 utf16_size）
+        final int[] stringSizes;  // utf16_size
+        final int[] typeDescs;
+        final int[] protoReturns;
+        final int[] protoParams;
+        final short[] fieldClasses;
+        final short[] fieldTypes;
+        final int[] fieldNames;
+        final short[] methodClasses;
+        final short[] methodProtos;
+        final int[] methodNames;
+
+        // 在两个文件归并序列中的名次；内容相同的项名次相同
+        final int[] stringRank;
+        final int[] typeRank;
+        final int[] protoRank;
+        final int[] fieldRank;
+        final int[] methodRank;
+
+        // 另一个文件中内容相同的项的索引，不存在时为 -1
+        final int[] stringMatch;
+        final int[] typeMatch;
+        final int[] protoMatch;
+        final int[] fieldMatch;
+        final int[] methodMatch;
+
+        Side(DexFile dex) {
+            buffer = dex.getBuffer();
+            classDefs = dex.getClassDefs();
+            view = classDefs.newView();
+            code = dex.newCodeItemView();
+
+            DexStringIds strings = dex.getStringIds();
+            int stringCount = strings.getStringCount();
+            stringOffs = new int[stringCount];
+            stringSizes = new int[stringCount];
+            for (int i = 0; i < stringCount; i++) {
+                int offset = strings.getStringDataOffset(i);
+                long leb = DexdumpUtils.readUnsignedLeb128At(buffer, offset);
+                stringOffs[i] = offset + DexdumpUtils.lebLength(leb);
+                stringSizes[i] = DexdumpUtils.lebValue(leb);
+            }
+            typeDescs = dex.getTypeIds().getDescriptorIdxs();
+            protoReturns = dex.getProtoIds().getReturnTypeIdxs();
+            protoParams = dex.getProtoIds().getParametersOffs();
+            fieldClasses = dex.getFieldIds().getClassIdxs();
+            fieldTypes = dex.getFieldIds().getTypeIdxs();
+            fieldNames = dex.getFieldIds().getNameIdxs();
+            methodClasses = dex.getMethodIds().getClassIdxs();
+            methodProtos = dex.getMethodIds().getProtoIdxs();
+            methodNames = dex.getMethodIds().getNameIdxs();
+
+            stringRank = new int[stringCount];
+            typeRank = new int[typeDescs.length];
+            protoRank = new int[protoReturns.length];
+            fieldRank = new int[fieldNames.length];
+            methodRank = new int[methodNames.length];
+            stringMatch = new int[stringCount];
+            typeMatch = new int[typeDescs.length];
+            protoMatch = new int[protoReturns.length];
+            fieldMatch = new int[fieldNames.length];
+            methodMatch = new int[methodNames.length];
+        }
+    }
+}
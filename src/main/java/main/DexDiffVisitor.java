@@ -0,0 +1,45 @@
+package main;
+
+/**
+ * DexDiffVisitor 是 DexDiff 输出差异的推送式回调接口，差异在比较过程中逐条产生，不在内存中汇总。
+ *
+ * 回调顺序为：
+ * string_ids → type_ids → proto_ids → field_ids → method_ids 的增删（各表内按排序顺序），
+ * 然后按类型描述符顺序输出类的增删和修改。
+ *
+ * 各个 id 表中的项按内容对应，内容相同即视为同一项，因此这些表只有 added / removed，没有 changed。
+ * 类按 class_idx 的描述符对应，对 CLASS_DEF_ITEM 的回调中索引为 class_defs 索引。
+ * 每个 changed(CLASS_DEF_ITEM) 之后紧跟该类中定义有差异的成员：
+ * changed(FIELD_ID_ITEM / METHOD_ID_ITEM, oldIndex, newIndex)，
+ * 某一侧的类没有定义该成员（但 id 在两个文件中都存在）时，对应的索引为 -1。
+ */
+public interface DexDiffVisitor {
+
+    /**
+     * 新文件中新增的项
+     *
+     * @param section  所在的表
+     * @param newIndex 在新文件中的索引
+     */
+    default void added(DexSectionType section, int newIndex) {
+    }
+
+    /**
+     * 旧文件中被删除的项
+     *
+     * @param section  所在的表
+     * @param oldIndex 在旧文件中的索引
+     */
+    default void removed(DexSectionType section, int oldIndex) {
+    }
+
+    /**
+     * 两个文件中都存在但内容不同的类或成员定义
+     *
+     * @param section  CLASS_DEF_ITEM、FIELD_ID_ITEM 或 METHOD_ID_ITEM
+     * @param oldIndex 在旧文件中的索引，成员在旧类中没有定义时为 -1
+     * @param newIndex 在新文件中的索引，成员在新类中没有定义时为 -1
+     */
+    default void changed(DexSectionType section, int oldIndex, int newIndex) {
+    }
+}
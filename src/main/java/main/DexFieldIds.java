@@ -4,11 +4,23 @@ import main.second.DexFieldId;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.util.ArrayList;
+import java.util.AbstractList;
 import java.util.List;
 
+/**
+ * DexFieldIds 用于解析 DEX 文件中的 field_ids 表。
+ *
+ * 每个字段 ID 项的结构（共 8 字节）：
+ *   [ class_idx (2 bytes) | type_idx (2 bytes) | name_idx (4 bytes) ]
+ *
+ * 各列分别存放在 short[] / int[] 中，访问方法直接返回基本类型；
+ * getFieldId / getFieldIds 只为兼容原有接口保留，每次访问都创建一个新的不可变 DexFieldId，
+ * 遍历整张表时应直接使用 getClassIdx / getTypeIdx / getNameIdx。
+ */
 public class DexFieldIds {
-    private List<DexFieldId> fieldIds = new ArrayList<>();
+    private short[] classIdxs = new short[0]; // 字段所属类（type_ids 索引，无符号）
+    private short[] typeIdxs = new short[0];  // 字段类型（type_ids 索引，无符号）
+    private int[] nameIdxs = new int[0];      // 字段名称（string_ids 索引）
 
     /**
      * 解析字段 ID 表
@@ -21,41 +33,103 @@ public class DexFieldIds {
         int fieldIdsOff = header.getFieldIdsOff();
 
         // 确保使用 little-endian（DEX 文件采用小端字节序）
-        buffer.order(ByteOrder.LITTLE_ENDIAN);
-        // 定位到字段 ID 表的起始位置
-        buffer.position(fieldIdsOff);
+        ByteBuffer data = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
 
+        short[] classes = new short[fieldIdsSize];
+        short[] types = new short[fieldIdsSize];
+        int[] names = new int[fieldIdsSize];
         // 每个字段 ID 项占 8 字节
         for (int i = 0; i < fieldIdsSize; i++) {
-            // 读取 class_idx（2 字节，无符号）
-            int classIdx = buffer.getShort() & 0xFFFF;
-            // 读取 type_idx（2 字节，无符号）
-            int typeIdx = buffer.getShort() & 0xFFFF;
-            // 读取 name_idx（4 字节，无符号）
-            int nameIdx = buffer.getInt();
-            fieldIds.add(new DexFieldId(classIdx, typeIdx, nameIdx));
+            int off = fieldIdsOff + i * 8;
+            classes[i] = data.getShort(off);
+            types[i] = data.getShort(off + 2);
+            names[i] = data.getInt(off + 4);
         }
+        classIdxs = classes;
+        typeIdxs = types;
+        nameIdxs = names;
     }
 
     /**
-     * 获取所有解析得到的字段 ID 项
+     * 从 DexIndexCache 的索引中载入各列，代替 parse
+     */
+    void load(short[] classIdxs, short[] typeIdxs, int[] nameIdxs) {
+        this.classIdxs = classIdxs;
+        this.typeIdxs = typeIdxs;
+        this.nameIdxs = nameIdxs;
+    }
+
+    // 以下三个方法返回内部的列（不复制），供 DexIndexCache 写入索引
+
+    short[] getClassIdxs() {
+        return classIdxs;
+    }
+
+    short[] getTypeIdxs() {
+        return typeIdxs;
+    }
+
+    int[] getNameIdxs() {
+        return nameIdxs;
+    }
+
+    /**
+     * 获取字段 ID 数量
+     */
+    public int getFieldCount() {
+        return nameIdxs.length;
+    }
+
+    /**
+     * 获取字段所属类的 type_ids 索引
+     */
+    public int getClassIdx(int index) {
+        return classIdxs[index] & 0xFFFF;
+    }
+
+    /**
+     * 获取字段类型的 type_ids 索引
+     */
+    public int getTypeIdx(int index) {
+        return typeIdxs[index] & 0xFFFF;
+    }
+
+    /**
+     * 获取字段名称的 string_ids 索引
+     */
+    public int getNameIdx(int index) {
+        return nameIdxs[index];
+    }
+
+    /**
+     * 获取所有字段 ID 项的列表视图，get 时创建 DexFieldId（每次访问都创建一个新的不可变副本，不是可复用的游标，只为兼容原有接口保留）
      *
      * @return 字段 ID 列表
      */
     public List<DexFieldId> getFieldIds() {
-        return fieldIds;
+        return new AbstractList<DexFieldId>() {
+            @Override
+            public DexFieldId get(int index) {
+                return new DexFieldId(getClassIdx(index), getTypeIdx(index), nameIdxs[index]);
+            }
+
+            @Override
+            public int size() {
+                return nameIdxs.length;
+            }
+        };
     }
 
     /**
-     * 根据索引获取某个字段 ID 项
+     * 根据索引获取某个字段 ID 项，每次访问都创建一个新的不可变副本，不是可复用的游标，只为兼容原有接口保留
      *
      * @param index 字段在列表中的索引
      * @return 对应的 DexFieldId 对象，若索引非法则返回 null
      */
     public DexFieldId getFieldId(int index) {
-        if (index < 0 || index >= fieldIds.size()) {
+        if (index < 0 || index >= nameIdxs.length) {
             return null;
         }
-        return fieldIds.get(index);
+        return new DexFieldId(getClassIdx(index), getTypeIdx(index), nameIdxs[index]);
     }
-}
\ No newline at end of file
+}
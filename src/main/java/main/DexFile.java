@@ -1,5 +1,7 @@
 package main;
 
+import main.output.DumpSink;
+import main.output.TextDumpSink;
 import main.second.*;
 
 import java.io.FileInputStream;
@@ -7,22 +9,37 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.channels.FileChannel;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * DexFile 类用于解析整个 DEX 文件。
  * 它包含一个 DexFileHeader 字段，同时可以解析其他部分（例如 String IDs、Type IDs、Method IDs、Class Definitions 等）。
+ *
+ * 线程安全：构造完成后 DexFile 及其各个区域对象都是只读的，所有解码路径都基于映射 buffer 的
+ * 绝对偏移读取，不依赖也不修改共享 buffer 的 position；字符串等按需解码的结果放在线程安全的缓存中。
+ * 因此同一个 DexFile 可以不加锁地交给多个线程同时查询。唯一的例外是 DexClassDefView 这类游标，
+ * 它们有自己的可变状态，每个线程应通过 DexClassDefs.newView() 创建自己的游标。
+ *
+ * 通过 DexFileOptions.setSections 可以只加载部分区段，未加载区段的 getter 抛出 IllegalStateException。
+ * 通过 DexFileOptions.setIndexCache 可以把解析结果保存到磁盘，再次打开同一个文件时从索引载入。
  */
-
 public class DexFile {
-    private DexFileHeader header; // DEX 文件头部信息
-    private DexStringIds stringIds; // 字符串 ID 区域
-    private DexTypeIds typeIds;     // 类型 ID 区域
-    private DexMethodIds methodIds; // 方法 ID 区域
-    private DexClassDefs classDefs; // 类定义区域
+    private final DexFileHeader header; // DEX 文件头部信息
+    private final DexStringIds stringIds; // 字符串 ID 区域
+    private final DexTypeIds typeIds;     // 类型 ID 区域
+    private final DexMethodIds methodIds; // 方法 ID 区域
+    private final DexClassDefs classDefs; // 类定义区域
+
+    private final DexProtoIds protoIds;   // 方法原型 ID 区域
+    private final DexFieldIds fieldIds;   // 字段 ID 区域
+    private final DexMapList mapList;     // map_list 区段目录
+    private final ParseStats stats;       // 各解析阶段的统计信息
 
-    private DexProtoIds protoIds; // 类定义区域
+    private final ByteBuffer buffer;      // 映射的 DEX 文件数据（只读）
 
     /**
      * 构造方法，通过文件路径读取并解析 DEX 文件。
@@ -31,59 +48,189 @@ public class DexFile {
      * @throws IOException 读取文件或解析错误
      */
     public DexFile(String filePath) throws IOException {
-        try (FileInputStream fis = new FileInputStream(filePath);
-             FileChannel channel = fis.getChannel()) {
-            // 将整个文件映射到内存中
-            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
-            buffer.order(ByteOrder.LITTLE_ENDIAN);
+        this(filePath, new DexFileOptions());
+    }
 
-            // 解析头部信息
-            header = new DexFileHeader();
-            header.parse(buffer);
+    /**
+     * 构造方法，按指定选项读取并解析 DEX 文件。
+     *
+     * @param filePath DEX 文件路径
+     * @param options  加载选项（是否并行解析、字符串缓存上限等）
+     * @throws IOException 读取文件或解析错误
+     */
+    public DexFile(String filePath, DexFileOptions options) throws IOException {
+        this(mapFile(filePath), options);
+    }
 
-            // 解析其他区域（这里仅作占位处理，实际实现需要根据 header 中的偏移量和大小进行解析）
-            stringIds = new DexStringIds();
-            stringIds.parse(buffer, header);
-            List<DexString> strings = stringIds.getStrings();
+    /**
+     * 构造方法，解析已经位于内存中的 DEX 数据。
+     * DEX 数据从 buffer 的 position 0 开始，buffer 的内容在 DexFile 的生命周期内不能被修改。
+     *
+     * @param buffer  DEX 文件数据
+     * @param options 加载选项
+     * @throws IOException 解析错误
+     */
+    public DexFile(ByteBuffer buffer, DexFileOptions options) throws IOException {
+        ByteBuffer data = buffer.asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+        data.position(0);
 
+        ParseStats stats = new ParseStats(options.isCollectStats());
 
-            typeIds = new DexTypeIds();
-            typeIds.parse(buffer, header);
+        // 解析头部信息
+        ParseStats.Timer timer = stats.start("header");
+        DexFileHeader header = new DexFileHeader();
+        header.parse(data);
+        timer.end(1, header.getHeaderSize());
 
+        timer = stats.start("map_list");
+        DexMapList mapList = new DexMapList();
+        mapList.parse(data, header);
+        timer.end(mapList.getSectionCount(), 4L + (long) mapList.getSectionCount() * DexMapList.ITEM_SIZE);
 
-            protoIds  =new  DexProtoIds ();
-            protoIds.parse(buffer,header);
-            System.out.println(protoIds.getAllProtoIds().size());
-            for (DexProtoId allProtoId : protoIds.getAllProtoIds()) {
-                String methodSignature = allProtoId.getMethodSignature(stringIds, typeIds);
-//                    System.out.println(methodSignature);
-            }
+        // 索引缓存命中时各区域从映射的索引中载入，不再读取 DEX 中的表
+        DexIndexCache indexCache = options.getIndexCache();
+        DexIndexCache.Index index = null;
+        if (indexCache != null) {
+            timer = stats.start("index_load");
+            index = indexCache.load(header, data.limit());
+            timer.end(index != null ? 1 : 0, 0);
+        }
+        DexIndexCache.Index cached = index;
+
+        // 解析其他区域（字符串只读取偏移表，内容在访问时才解码），未选择的区段保持为 null
+        DexStringIds stringIds = options.isSectionEnabled(DexSectionType.STRING_ID_ITEM)
+                ? new DexStringIds(options.getStringCacheBytes()) : null;
+        if (stringIds != null) {
+            stringIds.setInternPool(options.getInternPool());
+        }
+        DexTypeIds typeIds = options.isSectionEnabled(DexSectionType.TYPE_ID_ITEM) ? new DexTypeIds() : null;
+        DexProtoIds protoIds = options.isSectionEnabled(DexSectionType.PROTO_ID_ITEM) ? new DexProtoIds() : null;
+        DexFieldIds fieldIds = options.isSectionEnabled(DexSectionType.FIELD_ID_ITEM) ? new DexFieldIds() : null;
+        DexMethodIds methodIds = options.isSectionEnabled(DexSectionType.METHOD_ID_ITEM) ? new DexMethodIds() : null;
+        DexClassDefs classDefs = options.isSectionEnabled(DexSectionType.CLASS_DEF_ITEM)
+                ? new DexClassDefs(options.getClassDataCacheBytes()) : null;
+
+        // proto 的参数列表和 class_def 的接口列表共用一个 type_list 缓存，相同偏移的列表只解析一次
+        DexTypeListCache typeLists = new DexTypeListCache(data, header.getProtoIdsSize() + header.getClassDefsSize());
+        if (protoIds != null) {
+            protoIds.setTypeListCache(typeLists);
+        }
+        if (classDefs != null) {
+            classDefs.setTypeListCache(typeLists);
+        }
 
-            DexFieldIds dexFieldIds = new DexFieldIds();
-            dexFieldIds.parse(buffer, header);
-            for (DexFieldId fieldId : dexFieldIds.getFieldIds()) {
-                // 通过 fieldId.getClassIdx() 获取字段所属类
-                // 通过 fieldId.getTypeIdx() 获取字段类型
-                // 通过 fieldId.getNameIdx() 从 DexStringIds 获取字段名称
-
-                Integer classId = fieldId.getClassId();
-                Integer typeId = fieldId.getTypeId();
-                Integer nameId = fieldId.getNameId();
-                String className = typeIds.getTypeName(classId, stringIds);
-                String typeName = typeIds.getTypeName(typeId, stringIds);
-                String name = stringIds.getStringByIndex(nameId);
-//                System.out.println(className+"类中"+name+" 字段,的类型是"+typeName);
+        // 读取 header 之后各区域互不依赖，每个解析器都在自己的 buffer 副本上做绝对读取
+        List<Runnable> sections = new ArrayList<>(8);
+        if (stringIds != null) {
+            sections.add(() -> {
+                timed(stats, "string_ids", header.getStringIdsSize(), DexSectionType.STRING_ID_ITEM,
+                        cached != null ? () -> cached.loadStringIds(stringIds, data) : () -> stringIds.parse(data, header));
+                if (options.isPreloadStrings()) {
+                    ParseStats.Timer t = stats.start("string_data");
+                    stringIds.decodeAll(options.isParallel() ? options.getPool() : null);
+                    int i = mapList.find(DexSectionType.STRING_DATA_ITEM);
+                    t.end(stringIds.getStringCount(), i < 0 ? 0 : mapList.getByteSize(i));
+                }
+            });
+        }
+        if (typeIds != null) {
+            sections.add(() -> timed(stats, "type_ids", header.getTypeIdsSize(), DexSectionType.TYPE_ID_ITEM,
+                    cached != null ? () -> cached.loadTypeIds(typeIds) : () -> typeIds.parse(data, header)));
+        }
+        if (protoIds != null) {
+            sections.add(() -> timed(stats, "proto_ids", header.getProtoIdsSize(), DexSectionType.PROTO_ID_ITEM,
+                    cached != null ? () -> cached.loadProtoIds(protoIds, data) : () -> protoIds.parse(data, header)));
+        }
+        if (fieldIds != null) {
+            sections.add(() -> timed(stats, "field_ids", header.getFieldIdsSize(), DexSectionType.FIELD_ID_ITEM,
+                    cached != null ? () -> cached.loadFieldIds(fieldIds) : () -> fieldIds.parse(data, header)));
+        }
+        if (methodIds != null) {
+            sections.add(() -> timed(stats, "method_ids", header.getMethodIdsSize(), DexSectionType.METHOD_ID_ITEM,
+                    cached != null ? () -> cached.loadMethodIds(methodIds) : () -> methodIds.parse(data, header)));
+        }
+        if (classDefs != null) {
+            classDefs.setParseStats(stats);
+            sections.add(() -> timed(stats, "class_defs", header.getClassDefsSize(), DexSectionType.CLASS_DEF_ITEM,
+                    () -> {
+                        classDefs.parse(data, header);
+                        if (cached != null) {
+                            cached.loadClassDefs(classDefs);
+                        }
+                    }));
+        }
+        // 校验与区段解析互不依赖，作为两个独立任务一起调度，全部完成后再比较结果
+        DexVerifier verifier = options.isVerify() ? new DexVerifier(data, header) : null;
+        if (verifier != null) {
+            sections.add(() -> {
+                ParseStats.Timer t = stats.start("checksum");
+                verifier.computeChecksum(options.isParallel() ? options.getPool() : null);
+                t.end(1, data.limit() - DexVerifier.CHECKSUM_OFFSET);
+            });
+            sections.add(() -> {
+                ParseStats.Timer t = stats.start("signature");
+                verifier.computeSignature();
+                t.end(1, data.limit() - DexVerifier.SIGNATURE_OFFSET);
+            });
+        }
+        if (options.isParallel()) {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>(sections.size());
+            for (Runnable section : sections) {
+                tasks.add(ForkJoinTask.adapt(section));
             }
+            options.getPool().invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+        } else {
+            for (Runnable section : sections) {
+                section.run();
+            }
+        }
 
-            methodIds = new DexMethodIds();
-            methodIds.parse(buffer, header);
+        if (verifier != null) {
+            verifier.check();
+        }
 
+        // 未命中且所有区域都已加载时写入索引（需要解码全部 class_data）
+        if (indexCache != null && cached == null && stringIds != null && typeIds != null && protoIds != null
+                && fieldIds != null && methodIds != null && classDefs != null) {
+            timer = stats.start("index_store");
+            boolean stored = indexCache.store(header, data, stringIds, typeIds, protoIds, fieldIds, methodIds, classDefs);
+            timer.end(stored ? 1 : 0, data.limit());
+        }
 
-            classDefs = new DexClassDefs();
-            classDefs.parse(buffer, header);
+        // final 字段保证构造完成后对其他线程安全发布
+        this.header = header;
+        this.stringIds = stringIds;
+        this.typeIds = typeIds;
+        this.protoIds = protoIds;
+        this.fieldIds = fieldIds;
+        this.methodIds = methodIds;
+        this.classDefs = classDefs;
+        this.mapList = mapList;
+        this.stats = stats;
+        this.buffer = data;
+    }
 
-            classDefs.printFullClassInfo(stringIds, typeIds, buffer);
+    /**
+     * 执行一个定长表的解析并记录统计信息
+     */
+    private static void timed(ParseStats stats, String name, int count, DexSectionType type, Runnable parse) {
+        ParseStats.Timer timer = stats.start(name);
+        parse.run();
+        timer.end(count, (long) count * type.getItemSize());
+    }
 
+    /**
+     * 将整个文件只读映射到内存中
+     */
+    private static ByteBuffer mapFile(String filePath) throws IOException {
+        try (FileInputStream fis = new FileInputStream(filePath);
+             FileChannel channel = fis.getChannel()) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
         }
     }
 
@@ -91,37 +238,164 @@ public class DexFile {
         return header;
     }
 
+    /**
+     * 各解析阶段的统计信息（加载阶段；按需解码的 class_data 只在 DexFileOptions.setCollectStats(true) 或 JFR 录制时记录）
+     */
+    public ParseStats getParseStats() {
+        return stats;
+    }
+
+    /**
+     * map_list 区段目录
+     */
+    public DexMapList getMapList() {
+        return mapList;
+    }
+
+    /**
+     * 区段是否已加载（见 DexFileOptions.setSections）
+     */
+    public boolean isLoaded(DexSectionType type) {
+        switch (type) {
+            case HEADER_ITEM:
+            case MAP_LIST:
+                return true;
+            case STRING_ID_ITEM:
+                return stringIds != null;
+            case TYPE_ID_ITEM:
+                return typeIds != null;
+            case PROTO_ID_ITEM:
+                return protoIds != null;
+            case FIELD_ID_ITEM:
+                return fieldIds != null;
+            case METHOD_ID_ITEM:
+                return methodIds != null;
+            case CLASS_DEF_ITEM:
+                return classDefs != null;
+            default:
+                return false;
+        }
+    }
+
+    private static <T> T loaded(T section, DexSectionType type) {
+        if (section == null) {
+            throw new IllegalStateException("Section " + type + " was not loaded; enable it with DexFileOptions.setSections");
+        }
+        return section;
+    }
+
     public DexStringIds getStringIds() {
-        return stringIds;
+        return loaded(stringIds, DexSectionType.STRING_ID_ITEM);
     }
 
     public DexTypeIds getTypeIds() {
-        return typeIds;
+        return loaded(typeIds, DexSectionType.TYPE_ID_ITEM);
     }
 
     public DexMethodIds getMethodIds() {
-        return methodIds;
+        return loaded(methodIds, DexSectionType.METHOD_ID_ITEM);
     }
 
     public DexClassDefs getClassDefs() {
-        return classDefs;
+        return loaded(classDefs, DexSectionType.CLASS_DEF_ITEM);
+    }
+
+    public DexProtoIds getProtoIds() {
+        return loaded(protoIds, DexSectionType.PROTO_ID_ITEM);
+    }
+
+    public DexFieldIds getFieldIds() {
+        return loaded(fieldIds, DexSectionType.FIELD_ID_ITEM);
+    }
+
+    /**
+     * 按内容查找字符串索引，见 {@link DexStringIds#findString(CharSequence)}
+     */
+    public int findString(CharSequence s) {
+        return getStringIds().findString(s);
+    }
+
+    /**
+     * 按描述符查找类型索引，未找到时返回 -1
+     */
+    public int findType(CharSequence descriptor) {
+        return getTypeIds().findType(descriptor, getStringIds());
+    }
+
+    /**
+     * 按描述符查找本文件中定义该类的 class_def 索引，例如 findClassDef("Lcom/foo/Bar;")
+     *
+     * @return class_def 索引，未找到或该类不在本文件中定义时返回 -1
+     */
+    public int findClassDef(CharSequence descriptor) {
+        return getClassDefs().findClassDefByType(findType(descriptor));
+    }
+
+    /**
+     * 映射的 DEX 数据（小端序、只读），供同一个包中需要直接扫描 class_data / code_item 的索引使用
+     */
+    ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * 创建一个 code_item 游标，通过 moveTo(codeOff) 定位后用 DexInstructionCursor 遍历指令。
+     * 游标有可变状态，每个线程应创建自己的游标。
+     */
+    public DexCodeItemView newCodeItemView() {
+        return new DexCodeItemView(buffer);
+    }
+
+    /**
+     * 以推送方式遍历所有类及其字段和方法，见 {@link DexClassDefs#accept(DexClassVisitor)}
+     */
+    public void accept(DexClassVisitor visitor) {
+        getClassDefs().accept(visitor);
+    }
+
+    /**
+     * 打印所有类的完整信息（类头、字段和方法）
+     */
+    public void printFullClassInfo() {
+        DumpSink sink = TextDumpSink.stdout();
+        printFullClassInfo(sink);
+        sink.flush();
+    }
+
+    /**
+     * 将所有类的完整信息输出到指定的 sink
+     */
+    public void printFullClassInfo(DumpSink sink) {
+        getClassDefs().printFullClassInfo(getStringIds(), getTypeIds(), buffer, sink);
     }
 
     /**
      * 打印 DEX 文件的基本信息
      */
     public void printDexInfo() {
-        System.out.println("=== DEX Header Info ===");
-        header.printHeader();
-        System.out.println("\n=== Additional Sections ===");
-        System.out.println("String IDs Count: " + stringIds.getStringCount());
-        System.out.println("Type IDs Count: " + typeIds.getTypeCount());
+        DumpSink sink = TextDumpSink.stdout();
+        printDexInfo(sink);
+        sink.flush();
+    }
+
+    /**
+     * 将 DEX 文件的基本信息输出到指定的 sink
+     */
+    public void printDexInfo(DumpSink sink) {
+        sink.append("=== DEX Header Info ===").newLine();
+        header.printHeader(sink);
+        sink.newLine().append("=== Additional Sections ===").newLine();
+        sink.append("String IDs Count: ").append(header.getStringIdsSize()).newLine();
+        sink.append("Type IDs Count: ").append(header.getTypeIdsSize()).newLine();
     }
 
     public static void main(String[] args) {
         try {
             DexFile dexFile = new DexFile("C:\\Users\\Administrator\\Desktop\\吧中吧各个环境包\\classes.dex");
-            dexFile.printDexInfo();
+            DumpSink sink = TextDumpSink.stdout();
+            dexFile.printFullClassInfo(sink);
+            dexFile.printDexInfo(sink);
+            sink.flush();
         } catch(IOException e) {
             System.err.println("Error reading DEX file: " + e.getMessage());
         }
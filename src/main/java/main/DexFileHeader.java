@@ -1,5 +1,8 @@
 package main;
 
+import main.output.DumpSink;
+import main.output.TextDumpSink;
+
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
@@ -46,53 +49,53 @@ public class DexFileHeader {
 
     /**
      * 从 ByteBuffer 中解析 DEX 头部信息。
-     * 注意：传入的 ByteBuffer 的 position 应该在文件开头。
+     * 头部从 buffer 当前的 position 开始读取（通常为文件开头），
+     * 全部使用绝对偏移读取，不修改传入 buffer 的 position 和字节序。
      *
      * @param buffer 包含 DEX 文件数据的 ByteBuffer
      * @throws IOException 如果数据不足，则抛出异常
      */
     public void parse(ByteBuffer buffer) throws IOException {
-        // 保证使用小端字节序
-        buffer.order(ByteOrder.LITTLE_ENDIAN);
-
-        // 读取头部固定大小的数据
-        if (buffer.remaining() < HEADER_SIZE) {
+        int base = buffer.position();
+        if (buffer.limit() - base < HEADER_SIZE) {
             throw new IOException("Invalid DEX file: insufficient header size");
         }
-        byte[] headerBytes = new byte[HEADER_SIZE];
-        buffer.get(headerBytes);
-        ByteBuffer headerBuffer = ByteBuffer.wrap(headerBytes);
-        headerBuffer.order(ByteOrder.LITTLE_ENDIAN);
+        // 保证使用小端字节序
+        ByteBuffer data = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
 
         // 依次解析各字段
-        magic = new byte[DEX_MAGIC_SIZE];
-        headerBuffer.get(magic);
-
-        checksum = headerBuffer.getInt();
-
-        signature = new byte[SIGNATURE_SIZE];
-        headerBuffer.get(signature);
-
-        fileSize = headerBuffer.getInt();
-        headerSize = headerBuffer.getInt();
-        endianTag = headerBuffer.getInt();
-        linkSize = headerBuffer.getInt();
-        linkOff = headerBuffer.getInt();
-        mapOff = headerBuffer.getInt();
-        stringIdsSize = headerBuffer.getInt();
-        stringIdsOff = headerBuffer.getInt();
-        typeIdsSize = headerBuffer.getInt();
-        typeIdsOff = headerBuffer.getInt();
-        protoIdsSize = headerBuffer.getInt();
-        protoIdsOff = headerBuffer.getInt();
-        fieldIdsSize = headerBuffer.getInt();
-        fieldIdsOff = headerBuffer.getInt();
-        methodIdsSize = headerBuffer.getInt();
-        methodIdsOff = headerBuffer.getInt();
-        classDefsSize = headerBuffer.getInt();
-        classDefsOff = headerBuffer.getInt();
-        dataSize = headerBuffer.getInt();
-        dataOff = headerBuffer.getInt();
+        magic = readBytes(data, base, DEX_MAGIC_SIZE);
+        checksum = data.getInt(base + 8);
+        signature = readBytes(data, base + 12, SIGNATURE_SIZE);
+
+        fileSize = data.getInt(base + 32);
+        headerSize = data.getInt(base + 36);
+        endianTag = data.getInt(base + 40);
+        linkSize = data.getInt(base + 44);
+        linkOff = data.getInt(base + 48);
+        mapOff = data.getInt(base + 52);
+        stringIdsSize = data.getInt(base + 56);
+        stringIdsOff = data.getInt(base + 60);
+        typeIdsSize = data.getInt(base + 64);
+        typeIdsOff = data.getInt(base + 68);
+        protoIdsSize = data.getInt(base + 72);
+        protoIdsOff = data.getInt(base + 76);
+        fieldIdsSize = data.getInt(base + 80);
+        fieldIdsOff = data.getInt(base + 84);
+        methodIdsSize = data.getInt(base + 88);
+        methodIdsOff = data.getInt(base + 92);
+        classDefsSize = data.getInt(base + 96);
+        classDefsOff = data.getInt(base + 100);
+        dataSize = data.getInt(base + 104);
+        dataOff = data.getInt(base + 108);
+    }
+
+    private static byte[] readBytes(ByteBuffer data, int offset, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = data.get(offset + i);
+        }
+        return bytes;
     }
 
     public String getMagic() {
@@ -103,8 +106,11 @@ public class DexFileHeader {
         return checksum;
     }
 
+    /**
+     * 获取 SHA-1 签名（返回副本，header 本身保持不可变）
+     */
     public byte[] getSignature() {
-        return signature;
+        return signature.clone();
     }
 
     public int getFileSize() {
@@ -191,21 +197,28 @@ public class DexFileHeader {
      * 打印解析的头部信息
      */
     public void printHeader() {
-        System.out.println("DEX Magic: " + getMagic());
-        System.out.println("Checksum: " + Integer.toHexString(getChecksum()));
-        System.out.println("File Size: " + getFileSize());
-        System.out.println("Header Size: " + getHeaderSize());
-        System.out.println("Endian Tag: " + Integer.toHexString(getEndianTag()));
-        System.out.println("Link Size: " + getLinkSize() + ", Link Off: " + getLinkOff());
-        System.out.println("Map Off: " + getMapOff());
-        System.out.println("String IDs: count=" + getStringIdsSize() + ", off=" + getStringIdsOff());
-        System.out.println("Type IDs: count=" + getTypeIdsSize() + ", off=" + getTypeIdsOff());
-        System.out.println("Proto IDs: count=" + getProtoIdsSize() + ", off=" + getProtoIdsOff());
-        System.out.println("Field IDs: count=" + getFieldIdsSize() + ", off=" + getFieldIdsOff());
-        System.out.println("Method IDs: count=" + getMethodIdsSize() + ", off=" + getMethodIdsOff());
-        System.out.println("Class Defs: count=" + getClassDefsSize() + ", off=" + getClassDefsOff());
-        System.out.println("Data: size=" + getDataSize() + ", off=" + getDataOff());
+        DumpSink sink = TextDumpSink.stdout();
+        printHeader(sink);
+        sink.flush();
     }
-}
-
 
+    /**
+     * 将解析的头部信息输出到指定的 sink
+     */
+    public void printHeader(DumpSink sink) {
+        sink.append("DEX Magic: ").append(getMagic()).newLine();
+        sink.append("Checksum: ").appendHex(getChecksum()).newLine();
+        sink.append("File Size: ").append(getFileSize()).newLine();
+        sink.append("Header Size: ").append(getHeaderSize()).newLine();
+        sink.append("Endian Tag: ").appendHex(getEndianTag()).newLine();
+        sink.append("Link Size: ").append(getLinkSize()).append(", Link Off: ").append(getLinkOff()).newLine();
+        sink.append("Map Off: ").append(getMapOff()).newLine();
+        sink.append("String IDs: count=").append(getStringIdsSize()).append(", off=").append(getStringIdsOff()).newLine();
+        sink.append("Type IDs: count=").append(getTypeIdsSize()).append(", off=").append(getTypeIdsOff()).newLine();
+        sink.append("Proto IDs: count=").append(getProtoIdsSize()).append(", off=").append(getProtoIdsOff()).newLine();
+        sink.append("Field IDs: count=").append(getFieldIdsSize()).append(", off=").append(getFieldIdsOff()).newLine();
+        sink.append("Method IDs: count=").append(getMethodIdsSize()).append(", off=").append(getMethodIdsOff()).newLine();
+        sink.append("Class Defs: count=").append(getClassDefsSize()).append(", off=").append(getClassDefsOff()).newLine();
+        sink.append("Data: size=").append(getDataSize()).append(", off=").append(getDataOff()).newLine();
+    }
+}
@@ -0,0 +1,143 @@
+package main;
+
+import utils.Mutf8InternPool;
+
+import java.util.EnumSet;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * DexFileOptions 控制 DexFile 的加载方式。
+ *
+ * 默认值与 new DexFile(path) 的行为一致：单线程按顺序解析，字符串按需解码。
+ */
+public class DexFileOptions {
+    private boolean parallel;                                   // 是否并行解析各个区域
+    private ForkJoinPool pool;                                  // 并行解析使用的线程池，null 表示 commonPool
+    private boolean preloadStrings;                             // 是否在加载时解码整个字符串池
+    private long stringCacheBytes = DexStringIds.DEFAULT_CACHE_BYTES; // 字符串缓存上限
+    private long classDataCacheBytes = DexClassDefs.DEFAULT_CLASS_DATA_CACHE_BYTES; // class_data 缓存上限
+    private boolean verify;                                     // 是否校验 checksum 和 signature
+    private EnumSet<DexSectionType> sections = EnumSet.allOf(DexSectionType.class); // 需要加载的区段
+    private DexIndexCache indexCache;                           // 磁盘索引缓存，null 表示不使用
+    private Mutf8InternPool internPool;                         // 跨文件共享的字符串驻留池，null 表示不使用
+    private boolean collectStats;                               // 是否记录按需解码阶段的统计信息
+
+    public DexFileOptions() {}
+
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * 读取 header 之后，各 ID 表和 class_defs 是否在 ForkJoinPool 上并行解析
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * 获取并行解析使用的线程池，未设置时返回 ForkJoinPool.commonPool()
+     */
+    public ForkJoinPool getPool() {
+        return pool != null ? pool : ForkJoinPool.commonPool();
+    }
+
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public boolean isPreloadStrings() {
+        return preloadStrings;
+    }
+
+    /**
+     * 是否在加载时解码整个字符串池（并行模式下分块并行解码）。
+     * 解码结果仍受 stringCacheBytes 限制。
+     */
+    public void setPreloadStrings(boolean preloadStrings) {
+        this.preloadStrings = preloadStrings;
+    }
+
+    public long getStringCacheBytes() {
+        return stringCacheBytes;
+    }
+
+    public void setStringCacheBytes(long stringCacheBytes) {
+        this.stringCacheBytes = stringCacheBytes;
+    }
+
+    public long getClassDataCacheBytes() {
+        return classDataCacheBytes;
+    }
+
+    /**
+     * DexClassDefs.getClassData 缓存的上限（估算字节数），小于等于 0 表示不缓存
+     */
+    public void setClassDataCacheBytes(long classDataCacheBytes) {
+        this.classDataCacheBytes = classDataCacheBytes;
+    }
+
+    /**
+     * 只加载指定的区段。header 和 map_list 总是会解析；DexFile 中对应
+     * STRING_ID_ITEM、TYPE_ID_ITEM、PROTO_ID_ITEM、FIELD_ID_ITEM、METHOD_ID_ITEM、CLASS_DEF_ITEM
+     * 的表不在列表中时完全跳过，访问它们会抛出 IllegalStateException。
+     */
+    public void setSections(DexSectionType... types) {
+        EnumSet<DexSectionType> set = EnumSet.noneOf(DexSectionType.class);
+        for (DexSectionType type : types) {
+            set.add(type);
+        }
+        this.sections = set;
+    }
+
+    public boolean isSectionEnabled(DexSectionType type) {
+        return sections.contains(type);
+    }
+
+    public boolean isVerify() {
+        return verify;
+    }
+
+    /**
+     * 是否在加载时校验 checksum（Adler-32）和 signature（SHA-1），校验失败时 DexFile 构造方法抛出 IOException。
+     * 并行模式下校验与区段解析同时进行。
+     */
+    public void setVerify(boolean verify) {
+        this.verify = verify;
+    }
+
+    public DexIndexCache getIndexCache() {
+        return indexCache;
+    }
+
+    /**
+     * 使用磁盘索引缓存：命中时从索引载入各 ID 表和 class_data，未命中时正常解析并在完整加载后写入索引
+     */
+    public void setIndexCache(DexIndexCache indexCache) {
+        this.indexCache = indexCache;
+    }
+
+    public Mutf8InternPool getInternPool() {
+        return internPool;
+    }
+
+    /**
+     * 多个 DexFile（例如同一个 APK 的 classes*.dex，或同一应用的多个版本）使用同一个驻留池时，
+     * 内容相同的字符串和类型描述符只保留一个实例。池对字符串只持有弱引用。
+     */
+    public void setInternPool(Mutf8InternPool internPool) {
+        this.internPool = internPool;
+    }
+
+    public boolean isCollectStats() {
+        return collectStats;
+    }
+
+    /**
+     * 是否在 ParseStats 中记录按需解码的阶段（每次解码 class_data 都计时并统计分配量）。
+     * 默认关闭，只记录加载时的各阶段；JFR 录制启用 DexParseEvent 时不论该选项都会记录。
+     */
+    public void setCollectStats(boolean collectStats) {
+        this.collectStats = collectStats;
+    }
+}
@@ -0,0 +1,561 @@
+package main;
+
+import main.second.DexClassDefView;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * DexIndexCache 是磁盘上的解析结果缓存，以 DEX 文件头中的 20 字节 SHA-1 signature 为键。
+ *
+ * 每个 DEX 文件对应目录下的一个 &lt;signature 十六进制&gt;.idx 文件，内容为小端序的定长头部加若干 int/short 列：
+ * <pre>
+ *   magic | version | signature[20] | file_size | checksum
+ *   string / type / proto / field / method / class_def 的个数 | class_data 区的 int 个数
+ *   string_data 偏移[] | 字符串 utf16 长度[]
+ *   type 描述符索引[]
+ *   proto 的 shorty / return_type / parameters_off []
+ *   field 的 class / type（short，按 4 字节对齐）/ name []
+ *   method 的 class / proto（short，按 4 字节对齐）/ name []
+ *   type -&gt; class_def 映射[] | 每个类在 class_data 区中的位置[]（无 class_data 为 -1）
+ *   class_data 区：每个类为 4 个计数、字节数和已累加增量的平行数组，见 DexClassData.writeIndexed
+ * </pre>
+ *
+ * 再次打开同一个文件时，索引文件被只读映射，各 ID 表直接批量复制，不再逐项读取 DEX；
+ * class_data 保留在映射中，getClassData 时直接复制数组，不再解码 LEB128。
+ * 索引只在第一次完整加载（没有用 setSections 跳过区段）时写入，需要把所有 class_data 解码一遍。
+ *
+ * 写入先写临时文件再原子改名，多个进程共享同一个目录是安全的。目录中索引文件的总大小超过上限时，
+ * 按最后访问时间（命中时会更新文件的修改时间）删除最旧的文件。
+ * 索引文件损坏或与 DEX 头部不一致时视为未命中并删除。载入时还会检查每一列中的索引和偏移
+ * （字符串偏移、type -&gt; class_def 映射、class_data 区的位置和内容等）是否在 DEX 文件和各表的范围内，
+ * 被截断或改动过的索引不会在之后的访问中越界。
+ *
+ * 注意：键只依赖 signature，修改 DEX 后没有重新计算 signature 的文件会命中旧索引；
+ * 对来源不可信的文件应同时打开 DexFileOptions.setVerify。
+ */
+public class DexIndexCache {
+    /**
+     * 默认的缓存目录大小上限
+     */
+    public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+
+    static final String SUFFIX = ".idx";
+
+    private static final int MAGIC = 0x58444944; // "DIDX"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+
+    private final Path directory;
+    private final long maxBytes;
+
+    public DexIndexCache(Path directory) {
+        this(directory, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * @param directory 存放索引文件的目录，不存在时在第一次写入时创建
+     * @param maxBytes  目录中索引文件总大小的上限
+     */
+    public DexIndexCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * 目录中所有索引文件的总大小
+     */
+    public long getTotalBytes() throws IOException {
+        long total = 0;
+        for (Path file : listIndexFiles()) {
+            try {
+                total += Files.size(file);
+            } catch (NoSuchFileException e) {
+                // 被其他进程淘汰
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 删除目录中的所有索引文件
+     */
+    public void clear() throws IOException {
+        for (Path file : listIndexFiles()) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * 索引文件的路径
+     */
+    public Path pathFor(byte[] signature) {
+        StringBuilder sb = new StringBuilder(signature.length * 2 + SUFFIX.length());
+        for (byte b : signature) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return directory.resolve(sb.append(SUFFIX).toString());
+    }
+
+    /**
+     * 映射与 header 对应的索引文件
+     *
+     * @param dexLength DEX 数据的实际长度，索引中的偏移不能超出它
+     * @return 索引；不存在、损坏或与 header 不一致时返回 null
+     */
+    Index load(DexFileHeader header, int dexLength) {
+        Path file = pathFor(header.getSignature());
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            MappedByteBuffer mapped;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            Index index = Index.open(mapped.order(ByteOrder.LITTLE_ENDIAN), header, dexLength);
+            if (index == null) {
+                Files.deleteIfExists(file);
+                return null;
+            }
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return index;
+        } catch (IOException e) {
+            return null; // 读取失败时按未命中处理，重新解析
+        }
+    }
+
+    /**
+     * 把已解析的各区段写入索引文件，并按大小上限淘汰旧文件。
+     * 写入失败（例如目录只读）不影响 DEX 的加载，返回 false。
+     *
+     * @param buffer DEX 文件数据，用于解码 class_data 和字符串长度
+     */
+    boolean store(DexFileHeader header, ByteBuffer buffer, DexStringIds stringIds, DexTypeIds typeIds,
+                  DexProtoIds protoIds, DexFieldIds fieldIds, DexMethodIds methodIds, DexClassDefs classDefs) {
+        ByteBuffer data = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int classDefCount = classDefs.getClassDefCount();
+
+        // 先解码所有 class_data，得到 class_data 区的大小
+        DexClassData[] classData = new DexClassData[classDefCount];
+        int[] positions = new int[classDefCount];
+        int classDataInts = 0;
+        DexClassDefView view = classDefs.newView();
+        for (int i = 0; i < classDefCount; i++) {
+            int classDataOff = view.moveTo(i).getClassDataOff();
+            if (classDataOff == 0) {
+                positions[i] = -1;
+                continue;
+            }
+            classData[i] = DexClassData.parse(data, classDataOff);
+            positions[i] = classDataInts;
+            classDataInts += classData[i].getIndexedSize();
+        }
+
+        int stringCount = stringIds.getStringCount();
+        int typeCount = typeIds.getTypeCount();
+        int protoCount = protoIds.getProtoCount();
+        int fieldCount = fieldIds.getFieldCount();
+        int methodCount = methodIds.getMethodCount();
+        long size = (long) HEADER_SIZE
+                + 4L * (2L * stringCount + typeCount + 3L * protoCount)
+                + 2L * shortsInts(fieldCount) * 4 + 4L * fieldCount
+                + 2L * shortsInts(methodCount) * 4 + 4L * methodCount
+                + 4L * (typeCount + classDefCount + (long) classDataInts);
+        if (size > Integer.MAX_VALUE) {
+            return false;
+        }
+
+        ByteBuffer out = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(MAGIC).putInt(VERSION).put(header.getSignature())
+                .putInt(header.getFileSize()).putInt(header.getChecksum())
+                .putInt(stringCount).putInt(typeCount).putInt(protoCount)
+                .putInt(fieldCount).putInt(methodCount).putInt(classDefCount).putInt(classDataInts);
+
+        IntBuffer ints = out.position(HEADER_SIZE).asIntBuffer();
+        ints.put(stringIds.getStringDataOffsets());
+        for (int i = 0; i < stringCount; i++) {
+            ints.put(stringIds.getStringLength(i));
+        }
+        ints.put(typeIds.getDescriptorIdxs());
+        ints.put(protoIds.getShortyIdxs()).put(protoIds.getReturnTypeIdxs()).put(protoIds.getParametersOffs());
+        putShorts(ints, fieldIds.getClassIdxs());
+        putShorts(ints, fieldIds.getTypeIdxs());
+        ints.put(fieldIds.getNameIdxs());
+        putShorts(ints, methodIds.getClassIdxs());
+        putShorts(ints, methodIds.getProtoIdxs());
+        ints.put(methodIds.getNameIdxs());
+        for (int t = 0; t < typeCount; t++) {
+            ints.put(classDefs.findClassDefByType(t));
+        }
+        ints.put(positions);
+        for (DexClassData item : classData) {
+            if (item != null) {
+                item.writeIndexed(ints);
+            }
+        }
+        out.clear();
+
+        try {
+            Files.createDirectories(directory);
+            Path target = pathFor(header.getSignature());
+            Path temp = Files.createTempFile(directory, "dex", ".tmp");
+            try {
+                try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                    while (out.hasRemaining()) {
+                        channel.write(out);
+                    }
+                }
+                try {
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            evict();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 总大小超过上限时，按修改时间从旧到新删除索引文件
+     */
+    private void evict() throws IOException {
+        List<Path> files = listIndexFiles();
+        long[] sizes = new long[files.size()];
+        FileTime[] times = new FileTime[files.size()];
+        long total = 0;
+        for (int i = 0; i < files.size(); i++) {
+            try {
+                sizes[i] = Files.size(files.get(i));
+                times[i] = Files.getLastModifiedTime(files.get(i));
+            } catch (NoSuchFileException e) {
+                times[i] = FileTime.fromMillis(0);
+            }
+            total += sizes[i];
+        }
+        if (total <= maxBytes) {
+            return;
+        }
+        Integer[] order = new Integer[files.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(i -> times[i]));
+        for (int i : order) {
+            if (total <= maxBytes) {
+                break;
+            }
+            Files.deleteIfExists(files.get(i));
+            total -= sizes[i];
+        }
+    }
+
+    private List<Path> listIndexFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return files;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * n 个 short 按 4 字节对齐后占用的 int 个数
+     */
+    private static int shortsInts(int n) {
+        return (n + 1) >>> 1;
+    }
+
+    private static void putShorts(IntBuffer ints, short[] values) {
+        for (int i = 0; i < values.length; i += 2) {
+            int low = values[i] & 0xFFFF;
+            int high = i + 1 < values.length ? values[i + 1] & 0xFFFF : 0;
+            ints.put(low | (high << 16));
+        }
+    }
+
+    private static int[] getInts(IntBuffer ints, int n) {
+        int[] values = new int[n];
+        ints.get(values);
+        return values;
+    }
+
+    /**
+     * 一个已映射并校验过头部的索引文件，各 load 方法把对应的列填入区段对象，互不依赖，可以并行调用
+     */
+    static final class Index {
+        private final ByteBuffer bytes; // 头部之后的全部数据
+        private final IntBuffer ints;   // 同一段数据的 int 视图
+        private final int stringCount;
+        private final int typeCount;
+        private final int protoCount;
+        private final int fieldCount;
+        private final int methodCount;
+        private final int classDefCount;
+
+        private final int stringsPos;
+        private final int typesPos;
+        private final int protosPos;
+        private final int fieldsPos;
+        private final int methodsPos;
+        private final int classDefsPos;
+        private final int classDataPos;
+        private final int classDataInts;
+
+        private Index(ByteBuffer bytes, int[] counts) {
+            this.bytes = bytes;
+            this.ints = bytes.asIntBuffer();
+            stringCount = counts[0];
+            typeCount = counts[1];
+            protoCount = counts[2];
+            fieldCount = counts[3];
+            methodCount = counts[4];
+            classDefCount = counts[5];
+            stringsPos = 0;
+            typesPos = stringsPos + 2 * stringCount;
+            protosPos = typesPos + typeCount;
+            fieldsPos = protosPos + 3 * protoCount;
+            methodsPos = fieldsPos + 2 * shortsInts(fieldCount) + fieldCount;
+            classDefsPos = methodsPos + 2 * shortsInts(methodCount) + methodCount;
+            classDataPos = classDefsPos + typeCount + classDefCount;
+            classDataInts = counts[6];
+        }
+
+        /**
+         * 校验头部和各列的内容并计算各列的位置，不一致时返回 null
+         */
+        static Index open(ByteBuffer mapped, DexFileHeader header, int dexLength) {
+            if (mapped.limit() < HEADER_SIZE || mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION) {
+                return null;
+            }
+            byte[] signature = new byte[20];
+            ByteBuffer dup = mapped.duplicate();
+            dup.position(8);
+            dup.get(signature);
+            if (!Arrays.equals(signature, header.getSignature())
+                    || mapped.getInt(28) != header.getFileSize() || mapped.getInt(32) != header.getChecksum()) {
+                return null;
+            }
+            int[] counts = new int[7];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = mapped.getInt(36 + i * 4);
+                if (counts[i] < 0) {
+                    return null;
+                }
+            }
+            if (counts[0] != header.getStringIdsSize() || counts[1] != header.getTypeIdsSize()
+                    || counts[2] != header.getProtoIdsSize() || counts[3] != header.getFieldIdsSize()
+                    || counts[4] != header.getMethodIdsSize() || counts[5] != header.getClassDefsSize()) {
+                return null;
+            }
+            mapped.position(HEADER_SIZE);
+            Index index = new Index(mapped.slice().order(ByteOrder.LITTLE_ENDIAN), counts);
+            if ((long) index.classDataPos + counts[6] != index.ints.limit()) {
+                return null; // 文件被截断或长度不符
+            }
+            return index.isConsistent(dexLength) ? index : null;
+        }
+
+        /**
+         * 检查各列中的索引和偏移是否在 DEX 文件和各表的范围内。
+         * 头部一致但内容被截断或改动的索引在这里被拒绝，而不是在之后访问时越界。
+         * 各列分块批量复制出映射后再比较，逐个从映射中读取要慢得多。
+         */
+        private boolean isConsistent(int dexLength) {
+            int[] chunk = new int[4096];
+            if (!intsInRange(chunk, stringsPos, stringCount, 0, dexLength)              // string_data 偏移
+                    || !intsInRange(chunk, stringsPos + stringCount, stringCount, 0, Integer.MAX_VALUE)
+                    || !intsInRange(chunk, typesPos, typeCount, 0, stringCount)
+                    || !intsInRange(chunk, protosPos, protoCount, 0, stringCount)
+                    || !intsInRange(chunk, protosPos + protoCount, protoCount, 0, typeCount)
+                    || !intsInRange(chunk, protosPos + 2 * protoCount, protoCount, 0, dexLength - 3)) { // parameters_off，0 表示无参数
+                return false;
+            }
+            int fieldShorts = shortsInts(fieldCount);
+            int methodShorts = shortsInts(methodCount);
+            if (!shortsInRange(fieldsPos, fieldCount, typeCount)
+                    || !shortsInRange(fieldsPos + fieldShorts, fieldCount, typeCount)
+                    || !intsInRange(chunk, fieldsPos + 2 * fieldShorts, fieldCount, 0, stringCount)
+                    || !shortsInRange(methodsPos, methodCount, typeCount)
+                    || !shortsInRange(methodsPos + methodShorts, methodCount, protoCount)
+                    || !intsInRange(chunk, methodsPos + 2 * methodShorts, methodCount, 0, stringCount)) {
+                return false;
+            }
+            // type -> class_def 映射（-1 表示没有定义）和每个类的 class_data 位置（-1 表示没有 class_data）
+            if (!intsInRange(chunk, classDefsPos, typeCount, -1, classDefCount)
+                    || !intsInRange(chunk, classDefsPos + typeCount, classDefCount, -1, classDataInts)) {
+                return false;
+            }
+            int[] positions = getInts(at(classDefsPos + typeCount), classDefCount);
+            int[] classData = getInts(at(classDataPos), classDataInts); // 整区复制一次，逐项从映射中读取太慢
+            for (int pos : positions) {
+                if (pos >= 0 && !isClassDataConsistent(classData, pos, dexLength)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * 检查 class_data 区中 pos 处的一项：计数非负且整项在区内，成员索引在表内，code_off 在 DEX 内
+         */
+        private boolean isClassDataConsistent(int[] classData, int pos, int dexLength) {
+            if (pos > classData.length - 5) {
+                return false;
+            }
+            int staticFields = classData[pos];
+            int instanceFields = classData[pos + 1];
+            int directMethods = classData[pos + 2];
+            int virtualMethods = classData[pos + 3];
+            int byteSize = classData[pos + 4];
+            if (staticFields < 0 || instanceFields < 0 || directMethods < 0 || virtualMethods < 0
+                    || byteSize < 0 || byteSize > dexLength) {
+                return false;
+            }
+            long fields = (long) staticFields + instanceFields;
+            long methods = (long) directMethods + virtualMethods;
+            if (5 + 2 * fields + 3 * methods > classData.length - pos) {
+                return false;
+            }
+            int p = pos + 5;
+            int f = (int) fields;
+            int m = (int) methods;
+            return inRange(classData, p, f, 0, fieldCount)
+                    && inRange(classData, p + 2 * f, m, 0, methodCount)
+                    && inRange(classData, p + 2 * f + 2 * m, m, 0, dexLength); // code_off，0 表示没有代码
+        }
+
+        /**
+         * values[from, from + n) 是否都在 [min, max) 内
+         */
+        private static boolean inRange(int[] values, int from, int n, int min, int max) {
+            for (int i = from; i < from + n; i++) {
+                if (values[i] < min || values[i] >= max) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * ints[pos, pos + n) 是否都在 [min, max) 内，chunk 为复用的复制缓冲区
+         */
+        private boolean intsInRange(int[] chunk, int pos, int n, int min, int max) {
+            IntBuffer in = at(pos);
+            for (int done = 0; done < n; done += chunk.length) {
+                int len = Math.min(chunk.length, n - done);
+                in.get(chunk, 0, len);
+                if (!inRange(chunk, 0, len, min, max)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * 从 ints[pos] 开始打包存放的 n 个 u2 是否都小于 max
+         */
+        private boolean shortsInRange(int pos, int n, int max) {
+            short[] values = getShorts(at(pos), n);
+            for (short value : values) {
+                if ((value & 0xFFFF) >= max) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private IntBuffer at(int pos) {
+            IntBuffer dup = ints.duplicate();
+            dup.position(pos);
+            return dup;
+        }
+
+        /**
+         * 读取 in 当前位置开始的 n 个 short（成对打包在 int 中，低位在前），并把 in 跳过对应的 int 个数
+         */
+        private short[] getShorts(IntBuffer in, int n) {
+            ByteBuffer dup = bytes.duplicate();
+            dup.position(in.position() * 4);
+            short[] values = new short[n];
+            dup.slice().order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().get(values);
+            in.position(in.position() + shortsInts(n));
+            return values;
+        }
+
+        void loadStringIds(DexStringIds stringIds, ByteBuffer buffer) {
+            IntBuffer in = at(stringsPos);
+            int[] offsets = getInts(in, stringCount);
+            stringIds.load(buffer, offsets, getInts(in, stringCount));
+        }
+
+        void loadTypeIds(DexTypeIds typeIds) {
+            typeIds.load(getInts(at(typesPos), typeCount));
+        }
+
+        void loadProtoIds(DexProtoIds protoIds, ByteBuffer buffer) {
+            IntBuffer in = at(protosPos);
+            int[] shorties = getInts(in, protoCount);
+            int[] returnTypes = getInts(in, protoCount);
+            protoIds.load(buffer, shorties, returnTypes, getInts(in, protoCount));
+        }
+
+        void loadFieldIds(DexFieldIds fieldIds) {
+            IntBuffer in = at(fieldsPos);
+            short[] classes = getShorts(in, fieldCount);
+            short[] types = getShorts(in, fieldCount);
+            fieldIds.load(classes, types, getInts(in, fieldCount));
+        }
+
+        void loadMethodIds(DexMethodIds methodIds) {
+            IntBuffer in = at(methodsPos);
+            short[] classes = getShorts(in, methodCount);
+            short[] protos = getShorts(in, methodCount);
+            methodIds.load(classes, protos, getInts(in, methodCount));
+        }
+
+        /**
+         * classDefs 需要先用 DEX 数据 parse（只做范围检查），这里再填入类型映射和 class_data 的位置
+         */
+        void loadClassDefs(DexClassDefs classDefs) {
+            IntBuffer in = at(classDefsPos);
+            int[] classDefByType = getInts(in, typeCount);
+            int[] positions = getInts(in, classDefCount);
+            IntBuffer classData = at(classDataPos).slice();
+            classDefs.loadIndex(classDefByType, positions, classData);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package main;
+
+import main.output.DumpSink;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * DexMapList 解析 DEX 文件中的 map_list，得到整个文件的区段目录。
+ *
+ * map_list 位于 header.mapOff，结构为 [ size (uint) | map_item[size] ]，每个 map_item 占 12 字节：
+ * - type (ushort)：数据项类型，见 {@link DexSectionType}
+ * - unused (ushort)
+ * - size (uint)：该区段中的数据项个数
+ * - offset (uint)：该区段在文件中的偏移
+ *
+ * 与 header 不同，map_list 列出了所有区段，包括 call_site_ids、method_handles、hiddenapi 数据以及
+ * class_data、code、debug_info、annotation 等 data 区中的变长数据。各项按 offset 升序排列，
+ * 因此每个区段的字节数可以由下一个区段的起点得到。
+ */
+public class DexMapList {
+    public static final int ITEM_SIZE = 12;
+
+    private int[] typeCodes = new int[0];
+    private int[] sizes = new int[0];
+    private int[] offsets = new int[0];
+    private int fileSize;
+
+    /**
+     * 解析 map_list；header 中 mapOff 为 0 时得到空目录
+     *
+     * @param buffer DEX 文件数据缓冲区
+     * @param header 已解析的 DEX 文件头部信息
+     * @throws RuntimeException 如果 map_list 超出文件范围
+     */
+    public void parse(ByteBuffer buffer, DexFileHeader header) {
+        ByteBuffer data = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int limit = data.limit();
+        fileSize = Math.min(header.getFileSize() > 0 ? header.getFileSize() : limit, limit);
+
+        int mapOff = header.getMapOff();
+        if (mapOff == 0) {
+            return;
+        }
+        if (mapOff < 0 || (long) mapOff + 4 > limit) {
+            throw new RuntimeException("Invalid DEX file: map_off " + mapOff + " exceeds file size " + limit);
+        }
+        int count = data.getInt(mapOff);
+        long end = (long) mapOff + 4 + (long) count * ITEM_SIZE;
+        if (count < 0 || end > limit) {
+            throw new RuntimeException("Invalid DEX file: map_list [" + mapOff + ", " + end
+                    + ") exceeds file size " + limit);
+        }
+
+        int[] types = new int[count];
+        int[] itemSizes = new int[count];
+        int[] itemOffsets = new int[count];
+        for (int i = 0; i < count; i++) {
+            int item = mapOff + 4 + i * ITEM_SIZE;
+            types[i] = data.getShort(item) & 0xFFFF;
+            itemSizes[i] = data.getInt(item + 4);
+            itemOffsets[i] = data.getInt(item + 8);
+        }
+        typeCodes = types;
+        sizes = itemSizes;
+        offsets = itemOffsets;
+    }
+
+    /**
+     * 区段个数
+     */
+    public int getSectionCount() {
+        return typeCodes.length;
+    }
+
+    /**
+     * 第 i 个区段的类型，未知类型返回 null（原始编码见 getTypeCode）
+     */
+    public DexSectionType getType(int i) {
+        return DexSectionType.fromCode(typeCodes[i]);
+    }
+
+    public int getTypeCode(int i) {
+        return typeCodes[i];
+    }
+
+    /**
+     * 第 i 个区段的数据项个数
+     */
+    public int getSize(int i) {
+        return sizes[i];
+    }
+
+    /**
+     * 第 i 个区段在文件中的偏移
+     */
+    public int getOffset(int i) {
+        return offsets[i];
+    }
+
+    /**
+     * 第 i 个区段占用的字节数：到下一个区段起点（或文件末尾）为止，包含对齐填充
+     */
+    public int getByteSize(int i) {
+        int type = typeCodes[i];
+        DexSectionType known = DexSectionType.fromCode(type);
+        if (known != null && known.getItemSize() > 0) {
+            return sizes[i] * known.getItemSize();
+        }
+        int end = fileSize;
+        for (int j = 0; j < offsets.length; j++) {
+            if (offsets[j] > offsets[i] && offsets[j] < end) {
+                end = offsets[j];
+            }
+        }
+        return end - offsets[i];
+    }
+
+    /**
+     * 查找指定类型的区段
+     *
+     * @return 区段在 map_list 中的序号，不存在时返回 -1
+     */
+    public int find(DexSectionType type) {
+        for (int i = 0; i < typeCodes.length; i++) {
+            if (typeCodes[i] == type.getCode()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 指定类型的数据项个数，不存在时返回 0
+     */
+    public int getSize(DexSectionType type) {
+        int i = find(type);
+        return i < 0 ? 0 : sizes[i];
+    }
+
+    /**
+     * 指定类型的区段偏移，不存在时返回 0
+     */
+    public int getOffset(DexSectionType type) {
+        int i = find(type);
+        return i < 0 ? 0 : offsets[i];
+    }
+
+    /**
+     * 输出区段目录
+     */
+    public void printMapList(DumpSink sink) {
+        for (int i = 0; i < typeCodes.length; i++) {
+            DexSectionType type = getType(i);
+            sink.append(type != null ? type.name() : "UNKNOWN");
+            sink.append(" (0x").appendHex(typeCodes[i]).append("): count=").append(sizes[i])
+                    .append(", off=").append(offsets[i]).append(", bytes=").append(getByteSize(i)).newLine();
+        }
+    }
+}
@@ -4,7 +4,7 @@ import main.second.DexMethodId;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.util.ArrayList;
+import java.util.AbstractList;
 import java.util.List;
 
 /**
@@ -15,9 +15,15 @@ import java.util.List;
  *
  * 每个方法 ID 项的结构（共 8 字节）：
  *   [ class_idx (2 bytes) | proto_idx (2 bytes) | name_idx (4 bytes) ]
+ *
+ * 各列分别存放在 short[] / int[] 中，访问方法直接返回基本类型；
+ * getMethodId / getMethodIds 只为兼容原有接口保留，每次访问都创建一个新的不可变 DexMethodId，
+ * 遍历整张表时应直接使用 getClassIdx / getProtoIdx / getNameIdx。
  */
 public class DexMethodIds {
-    private List<DexMethodId> methodIds = new ArrayList<>();
+    private short[] classIdxs = new short[0]; // 方法所属类（type_ids 索引，无符号）
+    private short[] protoIdxs = new short[0]; // 方法原型（proto_ids 索引，无符号）
+    private int[] nameIdxs = new int[0];      // 方法名称（string_ids 索引）
 
     /**
      * 解析方法 ID 表
@@ -30,45 +36,100 @@ public class DexMethodIds {
         int methodIdsOff = header.getMethodIdsOff();
 
         // 设置字节序为 little-endian（DEX 文件采用小端字节序）
-        buffer.order(ByteOrder.LITTLE_ENDIAN);
-        // 定位到方法 ID 表的起始位置
-        buffer.position(methodIdsOff);
+        ByteBuffer data = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
 
+        short[] classes = new short[methodIdsSize];
+        short[] protos = new short[methodIdsSize];
+        int[] names = new int[methodIdsSize];
         for (int i = 0; i < methodIdsSize; i++) {
-            // 读取 2 字节的 class_idx，无符号转换
-            int classIdx = buffer.getShort() & 0xFFFF;
-            // 读取 2 字节的 proto_idx，无符号转换
-            int protoIdx = buffer.getShort() & 0xFFFF;
-            // 读取 4 字节的 name_idx
-            int nameIdx = buffer.getInt();
-            methodIds.add(new DexMethodId(classIdx, protoIdx, nameIdx));
+            int off = methodIdsOff + i * 8;
+            classes[i] = data.getShort(off);
+            protos[i] = data.getShort(off + 2);
+            names[i] = data.getInt(off + 4);
         }
+        classIdxs = classes;
+        protoIdxs = protos;
+        nameIdxs = names;
     }
 
     /**
-     * 获取所有解析得到的 MethodId 项
+     * 从 DexIndexCache 的索引中载入各列，代替 parse
+     */
+    void load(short[] classIdxs, short[] protoIdxs, int[] nameIdxs) {
+        this.classIdxs = classIdxs;
+        this.protoIdxs = protoIdxs;
+        this.nameIdxs = nameIdxs;
+    }
+
+    // 以下三个方法返回内部的列（不复制），供 DexIndexCache 写入索引
+
+    short[] getClassIdxs() {
+        return classIdxs;
+    }
+
+    short[] getProtoIdxs() {
+        return protoIdxs;
+    }
+
+    int[] getNameIdxs() {
+        return nameIdxs;
+    }
+
+    /**
+     * 获取所有 MethodId 项的列表视图，get 时创建 DexMethodId（每次访问都创建一个新的不可变副本，不是可复用的游标，只为兼容原有接口保留）
      */
     public List<DexMethodId> getMethodIds() {
-        return methodIds;
+        return new AbstractList<DexMethodId>() {
+            @Override
+            public DexMethodId get(int index) {
+                return new DexMethodId(getClassIdx(index), getProtoIdx(index), nameIdxs[index]);
+            }
+
+            @Override
+            public int size() {
+                return nameIdxs.length;
+            }
+        };
     }
 
     /**
      * 获取方法 ID 项数量
      */
     public int getMethodCount() {
-        return methodIds.size();
+        return nameIdxs.length;
+    }
+
+    /**
+     * 获取方法所属类的 type_ids 索引
+     */
+    public int getClassIdx(int index) {
+        return classIdxs[index] & 0xFFFF;
+    }
+
+    /**
+     * 获取方法原型的 proto_ids 索引
+     */
+    public int getProtoIdx(int index) {
+        return protoIdxs[index] & 0xFFFF;
+    }
+
+    /**
+     * 获取方法名称的 string_ids 索引
+     */
+    public int getNameIdx(int index) {
+        return nameIdxs[index];
     }
 
     /**
-     * 根据索引获取单个方法 ID 项
+     * 根据索引获取单个方法 ID 项，每次访问都创建一个新的不可变副本，不是可复用的游标，只为兼容原有接口保留
      *
      * @param index 方法在列表中的索引
      * @return 对应的 DexMethodId 对象，若索引非法则返回 null
      */
     public DexMethodId getMethodId(int index) {
-        if (index < 0 || index >= methodIds.size()) {
+        if (index < 0 || index >= nameIdxs.length) {
             return null;
         }
-        return methodIds.get(index);
+        return new DexMethodId(getClassIdx(index), getProtoIdx(index), nameIdxs[index]);
     }
 }
@@ -0,0 +1,192 @@
+package main;
+
+/**
+ * DexOpcodes 是 Dalvik 字节码（DEX 035 ~ 039）的操作码表，按操作码查询名称、指令格式和索引类型。
+ *
+ * 指令格式的命名沿用 Dalvik 文档：第一个数字为指令占用的 16 位代码单元数，第二个数字为寄存器个数，
+ * 最后的字母表示附加数据的类型（x 无、n/s/i/l/h 为字面量、t 为跳转偏移、c 为常量池索引）。
+ * payload 伪指令（switch 表和数组数据）以 nop 的操作码 0x00 开头，高字节区分类型，单独使用 PAYLOAD_* 格式。
+ */
+public final class DexOpcodes {
+
+    /**
+     * 指令格式及其占用的代码单元数
+     */
+    public enum Format {
+        F10x(1), F12x(1), F11n(1), F11x(1), F10t(1),
+        F20t(2), F22x(2), F21t(2), F21s(2), F21h(2), F21c(2), F23x(2), F22b(2), F22t(2), F22s(2), F22c(2),
+        F30t(3), F32x(3), F31i(3), F31t(3), F31c(3), F35c(3), F3rc(3),
+        F45cc(4), F4rcc(4),
+        F51l(5),
+        /** packed-switch-payload，长度为 4 + size * 2 */
+        PACKED_SWITCH_PAYLOAD(-1),
+        /** sparse-switch-payload，长度为 2 + size * 4 */
+        SPARSE_SWITCH_PAYLOAD(-1),
+        /** fill-array-data-payload，长度为 4 + (size * element_width + 1) / 2 */
+        FILL_ARRAY_DATA_PAYLOAD(-1);
+
+        private final int size;
+
+        Format(int size) {
+            this.size = size;
+        }
+
+        /**
+         * 指令占用的代码单元数，payload 的长度取决于内容，返回 -1
+         */
+        public int getSize() {
+            return size;
+        }
+
+        public boolean isPayload() {
+            return size < 0;
+        }
+    }
+
+    /**
+     * 指令中常量池索引所引用的表
+     */
+    public enum IndexType {
+        NONE, STRING, TYPE, FIELD, METHOD, PROTO, CALL_SITE, METHOD_HANDLE
+    }
+
+    public static final int PACKED_SWITCH_PAYLOAD = 0x0100;
+    public static final int SPARSE_SWITCH_PAYLOAD = 0x0200;
+    public static final int FILL_ARRAY_DATA_PAYLOAD = 0x0300;
+
+    private static final String[] NAMES = new String[256];
+    private static final Format[] FORMATS = new Format[256];
+    private static final IndexType[] INDEX_TYPES = new IndexType[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            op(i, "unused-" + String.format("%02x", i), Format.F10x, IndexType.NONE);
+        }
+        op(0x00, "nop", Format.F10x, IndexType.NONE);
+        op(0x01, "move", Format.F12x, IndexType.NONE);
+        op(0x02, "move/from16", Format.F22x, IndexType.NONE);
+        op(0x03, "move/16", Format.F32x, IndexType.NONE);
+        op(0x04, "move-wide", Format.F12x, IndexType.NONE);
+        op(0x05, "move-wide/from16", Format.F22x, IndexType.NONE);
+        op(0x06, "move-wide/16", Format.F32x, IndexType.NONE);
+        op(0x07, "move-object", Format.F12x, IndexType.NONE);
+        op(0x08, "move-object/from16", Format.F22x, IndexType.NONE);
+        op(0x09, "move-object/16", Format.F32x, IndexType.NONE);
+        op(0x0a, "move-result", Format.F11x, IndexType.NONE);
+        op(0x0b, "move-result-wide", Format.F11x, IndexType.NONE);
+        op(0x0c, "move-result-object", Format.F11x, IndexType.NONE);
+        op(0x0d, "move-exception", Format.F11x, IndexType.NONE);
+        op(0x0e, "return-void", Format.F10x, IndexType.NONE);
+        op(0x0f, "return", Format.F11x, IndexType.NONE);
+        op(0x10, "return-wide", Format.F11x, IndexType.NONE);
+        op(0x11, "return-object", Format.F11x, IndexType.NONE);
+        op(0x12, "const/4", Format.F11n, IndexType.NONE);
+        op(0x13, "const/16", Format.F21s, IndexType.NONE);
+        op(0x14, "const", Format.F31i, IndexType.NONE);
+        op(0x15, "const/high16", Format.F21h, IndexType.NONE);
+        op(0x16, "const-wide/16", Format.F21s, IndexType.NONE);
+        op(0x17, "const-wide/32", Format.F31i, IndexType.NONE);
+        op(0x18, "const-wide", Format.F51l, IndexType.NONE);
+        op(0x19, "const-wide/high16", Format.F21h, IndexType.NONE);
+        op(0x1a, "const-string", Format.F21c, IndexType.STRING);
+        op(0x1b, "const-string/jumbo", Format.F31c, IndexType.STRING);
+        op(0x1c, "const-class", Format.F21c, IndexType.TYPE);
+        op(0x1d, "monitor-enter", Format.F11x, IndexType.NONE);
+        op(0x1e, "monitor-exit", Format.F11x, IndexType.NONE);
+        op(0x1f, "check-cast", Format.F21c, IndexType.TYPE);
+        op(0x20, "instance-of", Format.F22c, IndexType.TYPE);
+        op(0x21, "array-length", Format.F12x, IndexType.NONE);
+        op(0x22, "new-instance", Format.F21c, IndexType.TYPE);
+        op(0x23, "new-array", Format.F22c, IndexType.TYPE);
+        op(0x24, "filled-new-array", Format.F35c, IndexType.TYPE);
+        op(0x25, "filled-new-array/range", Format.F3rc, IndexType.TYPE);
+        op(0x26, "fill-array-data", Format.F31t, IndexType.NONE);
+        op(0x27, "throw", Format.F11x, IndexType.NONE);
+        op(0x28, "goto", Format.F10t, IndexType.NONE);
+        op(0x29, "goto/16", Format.F20t, IndexType.NONE);
+        op(0x2a, "goto/32", Format.F30t, IndexType.NONE);
+        op(0x2b, "packed-switch", Format.F31t, IndexType.NONE);
+        op(0x2c, "sparse-switch", Format.F31t, IndexType.NONE);
+        series(0x2d, Format.F23x, IndexType.NONE, "cmpl-float", "cmpg-float", "cmpl-double", "cmpg-double", "cmp-long");
+        series(0x32, Format.F22t, IndexType.NONE, "if-eq", "if-ne", "if-lt", "if-ge", "if-gt", "if-le");
+        series(0x38, Format.F21t, IndexType.NONE, "if-eqz", "if-nez", "if-ltz", "if-gez", "if-gtz", "if-lez");
+        String[] arrayOps = {"", "-wide", "-object", "-boolean", "-byte", "-char", "-short"};
+        for (int i = 0; i < arrayOps.length; i++) {
+            op(0x44 + i, "aget" + arrayOps[i], Format.F23x, IndexType.NONE);
+            op(0x4b + i, "aput" + arrayOps[i], Format.F23x, IndexType.NONE);
+            op(0x52 + i, "iget" + arrayOps[i], Format.F22c, IndexType.FIELD);
+            op(0x59 + i, "iput" + arrayOps[i], Format.F22c, IndexType.FIELD);
+            op(0x60 + i, "sget" + arrayOps[i], Format.F21c, IndexType.FIELD);
+            op(0x67 + i, "sput" + arrayOps[i], Format.F21c, IndexType.FIELD);
+        }
+        String[] invokeKinds = {"virtual", "super", "direct", "static", "interface"};
+        for (int i = 0; i < invokeKinds.length; i++) {
+            op(0x6e + i, "invoke-" + invokeKinds[i], Format.F35c, IndexType.METHOD);
+            op(0x74 + i, "invoke-" + invokeKinds[i] + "/range", Format.F3rc, IndexType.METHOD);
+        }
+        series(0x7b, Format.F12x, IndexType.NONE,
+                "neg-int", "not-int", "neg-long", "not-long", "neg-float", "neg-double",
+                "int-to-long", "int-to-float", "int-to-double", "long-to-int", "long-to-float", "long-to-double",
+                "float-to-int", "float-to-long", "float-to-double", "double-to-int", "double-to-long", "double-to-float",
+                "int-to-byte", "int-to-char", "int-to-short");
+        String[] intOps = {"add", "sub", "mul", "div", "rem", "and", "or", "xor", "shl", "shr", "ushr"};
+        String[] floatOps = {"add", "sub", "mul", "div", "rem"};
+        int code = 0x90;
+        for (String type : new String[]{"int", "long", "float", "double"}) {
+            String[] ops = type.equals("int") || type.equals("long") ? intOps : floatOps;
+            for (String op : ops) {
+                op(code, op + "-" + type, Format.F23x, IndexType.NONE);
+                op(code + 0x20, op + "-" + type + "/2addr", Format.F12x, IndexType.NONE);
+                code++;
+            }
+        }
+        series(0xd0, Format.F22s, IndexType.NONE,
+                "add-int/lit16", "rsub-int", "mul-int/lit16", "div-int/lit16",
+                "rem-int/lit16", "and-int/lit16", "or-int/lit16", "xor-int/lit16");
+        series(0xd8, Format.F22b, IndexType.NONE,
+                "add-int/lit8", "rsub-int/lit8", "mul-int/lit8", "div-int/lit8", "rem-int/lit8", "and-int/lit8",
+                "or-int/lit8", "xor-int/lit8", "shl-int/lit8", "shr-int/lit8", "ushr-int/lit8");
+        op(0xfa, "invoke-polymorphic", Format.F45cc, IndexType.METHOD);
+        op(0xfb, "invoke-polymorphic/range", Format.F4rcc, IndexType.METHOD);
+        op(0xfc, "invoke-custom", Format.F35c, IndexType.CALL_SITE);
+        op(0xfd, "invoke-custom/range", Format.F3rc, IndexType.CALL_SITE);
+        op(0xfe, "const-method-handle", Format.F21c, IndexType.METHOD_HANDLE);
+        op(0xff, "const-method-type", Format.F21c, IndexType.PROTO);
+    }
+
+    private DexOpcodes() {}
+
+    private static void op(int opcode, String name, Format format, IndexType indexType) {
+        NAMES[opcode] = name;
+        FORMATS[opcode] = format;
+        INDEX_TYPES[opcode] = indexType;
+    }
+
+    private static void series(int first, Format format, IndexType indexType, String... names) {
+        for (int i = 0; i < names.length; i++) {
+            op(first + i, names[i], format, indexType);
+        }
+    }
+
+    /**
+     * 操作码名称，例如 0x6e 为 "invoke-virtual"；未使用的操作码返回 "unused-xx"
+     */
+    public static String getName(int opcode) {
+        return NAMES[opcode & 0xFF];
+    }
+
+    public static Format getFormat(int opcode) {
+        return FORMATS[opcode & 0xFF];
+    }
+
+    public static IndexType getIndexType(int opcode) {
+        return INDEX_TYPES[opcode & 0xFF];
+    }
+
+    /**
+     * 是否为未使用的操作码（0x3e ~ 0x43、0x73、0x79 ~ 0x7a、0xe3 ~ 0xf9）
+     */
+    public static boolean isUnused(int opcode) {
+        return NAMES[opcode & 0xFF].startsWith("unused-");
+    }
+}
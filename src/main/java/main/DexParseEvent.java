@@ -0,0 +1,41 @@
+package main;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * DexParseEvent 是 DEX 解析阶段的 Java Flight Recorder 事件。
+ *
+ * 每个阶段（header、各 ID 表、class_defs、class_data、字符串解码、校验等）结束时提交一个事件，
+ * 事件自带开始时间和持续时间。只有在 JFR 录制中启用了 dexdump.Parse 事件时才会提交，
+ * 未录制时的开销只有一次 isEnabled 判断。
+ *
+ * 启用方式：java -XX:StartFlightRecording:settings=profile ...，或在 .jfc 中打开 dexdump.Parse。
+ */
+@Name("dexdump.Parse")
+@Label("DEX Parse Phase")
+@Category({"dexdump"})
+@Description("One parse phase of a DEX file")
+@StackTrace(false)
+public class DexParseEvent extends jdk.jfr.Event {
+    @Label("Section")
+    @Description("Parse phase / section name")
+    String section;
+
+    @Label("Item Count")
+    long itemCount;
+
+    @Label("Bytes")
+    @Description("Bytes of the DEX file touched by this phase")
+    @DataAmount
+    long bytes;
+
+    @Label("Allocated")
+    @Description("Estimated heap bytes allocated by the parsing thread during this phase, -1 if unavailable")
+    @DataAmount
+    long allocatedBytes;
+}
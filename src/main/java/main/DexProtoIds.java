@@ -3,38 +3,135 @@ package main;
 import main.second.DexProtoId;
 
 import java.nio.ByteBuffer;
-import java.util.ArrayList;
+import java.nio.ByteOrder;
+import java.util.AbstractList;
 import java.util.List;
 
 /**
  * DexProtoIds 解析 DEX 文件中的方法原型 ID 表
+ *
+ * 每个原型 ID 项的结构（共 12 字节）：
+ *   [ shorty_idx (4 bytes) | return_type_idx (4 bytes) | parameters_off (4 bytes) ]
+ *
+ * 各列存放在 int[] 中；getProtoId / getAllProtoIds 只为兼容原有接口保留，每次访问都创建一个新的不可变 DexProtoId，
+ * 遍历整张表时应直接使用 getShortyIdx / getReturnTypeIdx / getParametersOff / getParameters。
+ * 参数列表通过 DexTypeListCache 按 parameters_off 解析一次后共享，多个原型指向同一个列表时不重复解析。
  */
 public class DexProtoIds {
-    private List<DexProtoId> protoIds = new ArrayList<>();
+    private int[] shortyIdxs = new int[0];
+    private int[] returnTypeIdxs = new int[0];
+    private int[] parametersOffs = new int[0];
+
+    private DexTypeListCache typeLists; // 按需解析的参数列表
 
     public void parse(ByteBuffer buffer, DexFileHeader header) {
         int protoIdsOff = header.getProtoIdsOff();
         int protoIdsSize = header.getProtoIdsSize();
-        buffer.position(protoIdsOff);
-        for (int i = 0; i < protoIdsSize; i++) {
-            DexProtoId protoId = DexProtoId.fromBuffer(buffer);
 
-            // 使用副本解析参数列表，不影响主 buffer 的位置
-            ByteBuffer dup = buffer.duplicate();
-            protoId.parseParameters(dup);
+        ByteBuffer data = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+
+        int[] shorties = new int[protoIdsSize];
+        int[] returnTypes = new int[protoIdsSize];
+        int[] params = new int[protoIdsSize];
+        for (int i = 0; i < protoIdsSize; i++) {
+            int off = protoIdsOff + i * 12;
+            shorties[i] = data.getInt(off);
+            returnTypes[i] = data.getInt(off + 4);
+            params[i] = data.getInt(off + 8);
+        }
+        shortyIdxs = shorties;
+        returnTypeIdxs = returnTypes;
+        parametersOffs = params;
+        if (typeLists == null) {
+            typeLists = new DexTypeListCache(data, params.length);
+        }
+    }
 
-            protoIds.add(protoId);
+    /**
+     * 从 DexIndexCache 的索引中载入各列，代替 parse
+     */
+    void load(ByteBuffer buffer, int[] shortyIdxs, int[] returnTypeIdxs, int[] parametersOffs) {
+        this.shortyIdxs = shortyIdxs;
+        this.returnTypeIdxs = returnTypeIdxs;
+        this.parametersOffs = parametersOffs;
+        if (typeLists == null) {
+            typeLists = new DexTypeListCache(buffer, parametersOffs.length);
         }
     }
 
+    /**
+     * 使用与其他区域（如 class_def 的接口列表）共享的 type_list 缓存，需在 parse / load 之前调用
+     */
+    void setTypeListCache(DexTypeListCache typeLists) {
+        this.typeLists = typeLists;
+    }
+
+    // 以下三个方法返回内部的列（不复制），供 DexIndexCache 写入索引
+
+    int[] getShortyIdxs() {
+        return shortyIdxs;
+    }
+
+    int[] getReturnTypeIdxs() {
+        return returnTypeIdxs;
+    }
+
+    int[] getParametersOffs() {
+        return parametersOffs;
+    }
+
+    /**
+     * 获取原型 ID 数量
+     */
+    public int getProtoCount() {
+        return shortyIdxs.length;
+    }
+
+    public int getShortyIdx(int index) {
+        return shortyIdxs[index];
+    }
+
+    public int getReturnTypeIdx(int index) {
+        return returnTypeIdxs[index];
+    }
+
+    public int getParametersOff(int index) {
+        return parametersOffs[index];
+    }
+
+    /**
+     * 获取原型的参数列表，同一个 parameters_off 的原型返回同一个实例
+     */
+    public DexTypeList getParameters(int index) {
+        return typeLists.get(parametersOffs[index]);
+    }
+
+    /**
+     * 根据索引获取单个原型 ID 项，每次访问都创建一个新的不可变副本，不是可复用的游标，只为兼容原有接口保留
+     *
+     * @return 对应的 DexProtoId 对象，若索引非法则返回 null
+     */
     public DexProtoId getProtoId(int index) {
-        if (index < 0 || index >= protoIds.size()) {
+        if (index < 0 || index >= shortyIdxs.length) {
             return null;
         }
-        return protoIds.get(index);
+        return new DexProtoId(shortyIdxs[index], returnTypeIdxs[index], parametersOffs[index], getParameters(index));
     }
 
+    /**
+     * 获取所有原型 ID 的列表视图，get 时创建 DexProtoId（每次访问都创建一个新的不可变副本，不是可复用的游标，只为兼容原有接口保留）
+     */
     public List<DexProtoId> getAllProtoIds() {
-        return protoIds;
+        return new AbstractList<DexProtoId>() {
+            @Override
+            public DexProtoId get(int index) {
+                return getProtoId(index);
+            }
+
+            @Override
+            public int size() {
+                return shortyIdxs.length;
+            }
+        };
     }
 }
@@ -0,0 +1,64 @@
+package main;
+
+/**
+ * DexSectionType 对应 map_list 中 map_item 的 type 字段，覆盖 DEX 格式定义的全部数据项类型。
+ *
+ * 前 9 种为 header 之后的定长表（item 大小固定），其余为 data 区中的变长数据项。
+ */
+public enum DexSectionType {
+    HEADER_ITEM(0x0000, 0x70),
+    STRING_ID_ITEM(0x0001, 4),
+    TYPE_ID_ITEM(0x0002, 4),
+    PROTO_ID_ITEM(0x0003, 12),
+    FIELD_ID_ITEM(0x0004, 8),
+    METHOD_ID_ITEM(0x0005, 8),
+    CLASS_DEF_ITEM(0x0006, 32),
+    CALL_SITE_ID_ITEM(0x0007, 4),
+    METHOD_HANDLE_ITEM(0x0008, 8),
+    MAP_LIST(0x1000, -1),
+    TYPE_LIST(0x1001, -1),
+    ANNOTATION_SET_REF_LIST(0x1002, -1),
+    ANNOTATION_SET_ITEM(0x1003, -1),
+    CLASS_DATA_ITEM(0x2000, -1),
+    CODE_ITEM(0x2001, -1),
+    STRING_DATA_ITEM(0x2002, -1),
+    DEBUG_INFO_ITEM(0x2003, -1),
+    ANNOTATION_ITEM(0x2004, -1),
+    ENCODED_ARRAY_ITEM(0x2005, -1),
+    ANNOTATIONS_DIRECTORY_ITEM(0x2006, -1),
+    HIDDENAPI_CLASS_DATA_ITEM(0xF000, -1);
+
+    private final int code;
+    private final int itemSize;
+
+    DexSectionType(int code, int itemSize) {
+        this.code = code;
+        this.itemSize = itemSize;
+    }
+
+    /**
+     * map_item 中的类型编码
+     */
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * 每一项的字节数，变长数据项返回 -1
+     */
+    public int getItemSize() {
+        return itemSize;
+    }
+
+    /**
+     * 按类型编码查找，未知编码返回 null
+     */
+    public static DexSectionType fromCode(int code) {
+        for (DexSectionType type : values()) {
+            if (type.code == code) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
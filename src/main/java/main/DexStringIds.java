@@ -2,24 +2,56 @@ package main;
 
 import main.DexFileHeader;
 import main.second.DexString;
+import utils.BoundedIndexCache;
 import utils.DexdumpUtils;
+import utils.Mutf8;
+import utils.Mutf8InternPool;
 
-import java.io.ByteArrayOutputStream;
 import java.nio.ByteBuffer;
-import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
+import java.nio.ByteOrder;
+import java.util.AbstractList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * DexStringIds 用于解析 DEX 文件中字符串 ID 部分。
  * 该部分存储了字符串偏移地址，需要读取相应地址以获取实际字符串。
+ *
+ * 解析时只读取 string_ids 偏移表，字符串内容在第一次通过 getStringByIndex 访问时才解码，
+ * 解码结果放入按内存上限淘汰的缓存中。
+ *
+ * 通过 setInternPool 可以让多个 DexStringIds 共享一个 {@link Mutf8InternPool}，
+ * 内容相同的字符串在各个文件之间只保留一个实例（按 MUTF-8 字节查找，命中时不解码）。
  */
 public class DexStringIds {
+    /**
+     * 默认的字符串缓存上限（按估算的堆占用字节数计）
+     */
+    public static final long DEFAULT_CACHE_BYTES = 16L * 1024 * 1024;
+
+    private final long maxCacheBytes;
 
-    private final List<DexString> strings = new ArrayList<>();
+    private ByteBuffer buffer;                    // 用于按需解码字符串的 buffer 副本（只做绝对读取）
+    private int[] stringDataOffsets = new int[0]; // string_data_item 偏移表
+    private int[] utf16Sizes;                     // 每个字符串的 UTF-16 长度，只在从索引载入时存在
+    private Mutf8InternPool internPool;           // 不为 null 时解码结果经过跨文件共享的驻留池
+    private BoundedIndexCache<String> cache = new BoundedIndexCache<>(0, 0, DexStringIds::estimateSize);
+
+    public DexStringIds() {
+        this(DEFAULT_CACHE_BYTES);
+    }
 
     /**
-     * 解析 Dex 文件中的 StringId 列表
+     * @param maxCacheBytes 已解码字符串缓存的上限（估算字节数），小于等于 0 表示不缓存
+     */
+    public DexStringIds(long maxCacheBytes) {
+        this.maxCacheBytes = maxCacheBytes;
+    }
+
+    /**
+     * 解析 Dex 文件中的 StringId 列表（只读取偏移表，不解码字符串）
      *
      * @param buffer DEX 文件数据缓冲区
      * @param header 已解析的 DEX 文件头部信息
@@ -28,62 +60,227 @@ public class DexStringIds {
         int stringIdsSize = header.getStringIdsSize();
         int stringIdsOff = header.getStringIdsOff();
 
-        // 定位到字符串 ID 表的起始位置
-        buffer.position(stringIdsOff);
+        this.buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
 
-        // 先解析字符串偏移地址
-        List<Integer> stringOffsets = new ArrayList<>();
+        // 只解析字符串偏移地址，字符串数据在访问时再解码
+        int[] offsets = new int[stringIdsSize];
         for (int i = 0; i < stringIdsSize; i++) {
-            int stringDataOffset = buffer.getInt();
-            stringOffsets.add(stringDataOffset);
+            offsets[i] = this.buffer.getInt(stringIdsOff + i * 4);
         }
+        stringDataOffsets = offsets;
+        utf16Sizes = null;
+        cache = new BoundedIndexCache<>(stringIdsSize, maxCacheBytes, DexStringIds::estimateSize);
+    }
 
-        // 解析字符串数据
-        for (Integer offset : stringOffsets) {
-            buffer.position(offset);
-            String str = readDexString(buffer);
-            strings.add(new DexString(offset, str)); // 存储解析出的字符串
+    /**
+     * 从 DexIndexCache 的索引中载入偏移表和字符串长度，代替 parse
+     */
+    void load(ByteBuffer buffer, int[] offsets, int[] utf16Sizes) {
+        this.buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        this.stringDataOffsets = offsets;
+        this.utf16Sizes = utf16Sizes;
+        this.cache = new BoundedIndexCache<>(offsets.length, maxCacheBytes, DexStringIds::estimateSize);
+    }
+
+    /**
+     * 偏移表（不复制），供 DexIndexCache 写入索引和 DexStringSearch 扫描
+     */
+    int[] getStringDataOffsets() {
+        return stringDataOffsets;
+    }
+
+    /**
+     * 小端序的 DEX 数据副本，供 DexStringSearch 直接扫描 MUTF-8 字节
+     */
+    ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * 设置跨文件共享的字符串驻留池，应在第一次解码之前调用；为 null 时各自解码
+     */
+    public void setInternPool(Mutf8InternPool internPool) {
+        this.internPool = internPool;
+    }
+
+    public Mutf8InternPool getInternPool() {
+        return internPool;
+    }
+
+    /**
+     * 解码整个字符串池并放入缓存。
+     *
+     * pool 不为 null 时按索引区间分块，在 ForkJoinPool 上并行解码；
+     * 每个字符串的解码结果与 getStringByIndex 完全相同。
+     *
+     * @param pool 并行解码使用的线程池，为 null 时在当前线程顺序解码
+     */
+    public void decodeAll(ForkJoinPool pool) {
+        if (pool == null) {
+            decodeRange(0, stringDataOffsets.length);
+        } else if (ForkJoinTask.getPool() == pool) {
+            new DecodeTask(0, stringDataOffsets.length).invoke(); // 已在该线程池的工作线程中
+        } else {
+            pool.invoke(new DecodeTask(0, stringDataOffsets.length));
+        }
+    }
+
+    /**
+     * 把 [from, to) 中未缓存的字符串解码到局部数组，再一次性放入缓存，
+     * 避免并行解码时每个字符串都争用缓存的锁
+     */
+    private void decodeRange(int from, int to) {
+        String[] decoded = new String[to - from];
+        for (int i = from; i < to; i++) {
+            if (cache.get(i) == null) {
+                decoded[i - from] = readDexString(stringDataOffsets[i]);
+            }
         }
+        cache.putAll(from, decoded);
     }
 
-    private String readDexString(ByteBuffer buffer) {
-        // 先读取 ULEB128 编码的字符串长度，但不使用这个值作为字符串内容
-        DexdumpUtils.readUnsignedLeb128(buffer);
+    /**
+     * 按索引区间二分的并行解码任务
+     */
+    private class DecodeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private static final int CHUNK_SIZE = 4096;
 
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        while (true) {
-            byte b = buffer.get();
-            if (b == 0) { // 遇到 0 表示字符串结束
-                break;
+        private final int from;
+        private final int to;
+
+        DecodeTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CHUNK_SIZE) {
+                decodeRange(from, to);
+                return;
             }
-            baos.write(b);
+            int mid = (from + to) >>> 1;
+            invokeAll(new DecodeTask(from, mid), new DecodeTask(mid, to));
+        }
+    }
+
+    /**
+     * 按 MUTF-8 解码 string_data_item，utf16_size 用于预先确定缓冲区大小
+     */
+    private String readDexString(int offset) {
+        Mutf8InternPool pool = internPool;
+        if (pool != null) {
+            return pool.intern(buffer, offset);
         }
-        // 使用 UTF-8 编码转换成字符串
-        return new String(baos.toByteArray(), StandardCharsets.UTF_8);
+        return Mutf8.readStringData(buffer, offset);
+    }
+
+    /**
+     * 估算一个 String 的堆占用：对象头 + 数组头 + 字符数据
+     */
+    private static long estimateSize(String s) {
+        return 40L + 2L * s.length();
     }
 
     /**
-     * 获取解析到的字符串列表
+     * 获取字符串列表视图，元素在访问时才解码
      */
     public List<DexString> getStrings() {
-        return strings;
+        return new AbstractList<DexString>() {
+            @Override
+            public DexString get(int index) {
+                if (index < 0 || index >= stringDataOffsets.length) {
+                    throw new IndexOutOfBoundsException("string index " + index);
+                }
+                return new DexString(stringDataOffsets[index], getStringByIndex(index));
+            }
+
+            @Override
+            public int size() {
+                return stringDataOffsets.length;
+            }
+        };
     }
 
     /**
      * 获取字符串数量
      */
     public int getStringCount() {
-        return strings.size();
+        return stringDataOffsets.length;
+    }
+
+    /**
+     * 获取字符串数据（string_data_item）在文件中的偏移
+     */
+    public int getStringDataOffset(int index) {
+        return stringDataOffsets[index];
+    }
+
+    /**
+     * 获取字符串的 UTF-16 长度（string_data_item 中的 utf16_size），不解码字符串
+     */
+    public int getStringLength(int index) {
+        if (utf16Sizes != null) {
+            return utf16Sizes[index];
+        }
+        return DexdumpUtils.lebValue(DexdumpUtils.readUnsignedLeb128At(buffer, stringDataOffsets[index]));
+    }
+
+    /**
+     * 获取当前缓存的已解码字符串的估算占用（字节）
+     */
+    public long getCachedBytes() {
+        return cache.getWeight();
+    }
+
+    /**
+     * 按内容查找字符串索引。
+     *
+     * DEX 格式要求 string_ids 按字符串内容（UTF-16 代码单元）排序，因此这里做二分查找，
+     * 每次探测直接比较 buffer 中的 MUTF-8 字节，不解码字符串，也不访问缓存。
+     *
+     * @param s 要查找的字符串
+     * @return 字符串索引；未找到时返回 (-(插入位置) - 1)，与 Arrays.binarySearch 的约定相同
+     */
+    public int findString(CharSequence s) {
+        int low = 0;
+        int high = stringDataOffsets.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareString(mid, s);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
     }
 
+    /**
+     * 比较索引 index 处的字符串与 s，不解码字符串
+     */
+    public int compareString(int index, CharSequence s) {
+        int offset = stringDataOffsets[index];
+        long leb = DexdumpUtils.readUnsignedLeb128At(buffer, offset);
+        return Mutf8.compare(buffer, offset + DexdumpUtils.lebLength(leb), DexdumpUtils.lebValue(leb), s);
+    }
 
     /**
-     * 通过索引获取字符串
+     * 通过索引获取字符串，第一次访问时解码并放入缓存
      */
     public String getStringByIndex(int index) {
-        if (index < 0 || index >= strings.size()) {
+        if (index < 0 || index >= stringDataOffsets.length) {
             return "UNKNOWN";
         }
-        return strings.get(index).getStringData();
+        String str = cache.get(index);
+        if (str == null) {
+            str = cache.put(index, readDexString(stringDataOffsets[index]));
+        }
+        return str;
     }
 }
@@ -0,0 +1,462 @@
+package main;
+
+import main.second.DexStringMatch;
+import utils.DexdumpUtils;
+import utils.Mutf8;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * DexStringSearch 在字符串池的原始 MUTF-8 字节上搜索多个模式，只解码命中的字符串。
+ *
+ * 支持三种模式：
+ * - LITERAL：字符串包含该子串；
+ * - PREFIX：字符串以该前缀开头；
+ * - REGEX：java.util.regex 的 find() 匹配。
+ *
+ * 所有 LITERAL 和 PREFIX 模式编码为 MUTF-8 后合并成一个 Aho-Corasick 自动机，每个字符串只扫描一遍字节。
+ * MUTF-8 的编码与 UTF-16 代码单元一一对应，且模式的第一个字节不会是续字节，
+ * 因此字节上的子串匹配与字符上的子串匹配等价。自动机的状态转移表按模式中出现过的字节压缩成等价类，
+ * 存放在一个 int[] 中，扫描时每个字节一次查表，不分配对象。
+ *
+ * REGEX 模式需要字符序列：纯 ASCII 的字符串（字节数等于 UTF-16 长度）直接包装成 buffer 上的 CharSequence，
+ * 其余字符串才解码。
+ *
+ * 搜索时按字符串索引区间分块，在 ForkJoinPool 上并行扫描；结果按字符串索引、模式序号排序，
+ * 同一个字符串对同一个模式只报告一次。添加模式后第一次搜索时编译自动机，之后 search 可以被多个线程同时调用。
+ */
+public class DexStringSearch {
+    /**
+     * 模式的匹配方式
+     */
+    public enum Mode {
+        LITERAL, PREFIX, REGEX
+    }
+
+    private static final int CHUNK_SIZE = 4096; // 每个扫描任务处理的字符串个数
+
+    private final List<Mode> modes = new ArrayList<>();
+    private final List<Object> patterns = new ArrayList<>(); // String 或 Pattern
+
+    private volatile Automaton automaton; // 添加模式后置为 null，下次搜索时重新编译
+
+    public DexStringSearch() {}
+
+    /**
+     * 添加一个子串模式
+     *
+     * @return 模式序号，即 DexStringMatch.getPatternIndex() 的值
+     */
+    public synchronized int addLiteral(CharSequence literal) {
+        return add(Mode.LITERAL, literal.toString());
+    }
+
+    /**
+     * 添加一个前缀模式
+     */
+    public synchronized int addPrefix(CharSequence prefix) {
+        return add(Mode.PREFIX, prefix.toString());
+    }
+
+    /**
+     * 添加一个正则表达式模式（使用 find()，即字符串中任意位置匹配）
+     */
+    public synchronized int addRegex(Pattern regex) {
+        return add(Mode.REGEX, regex);
+    }
+
+    public synchronized int addRegex(String regex) {
+        return add(Mode.REGEX, Pattern.compile(regex));
+    }
+
+    private int add(Mode mode, Object pattern) {
+        modes.add(mode);
+        patterns.add(pattern);
+        automaton = null;
+        return patterns.size() - 1;
+    }
+
+    public synchronized int getPatternCount() {
+        return patterns.size();
+    }
+
+    public synchronized Mode getMode(int patternIndex) {
+        return modes.get(patternIndex);
+    }
+
+    /**
+     * 模式的文本（正则表达式模式返回其表达式）
+     */
+    public synchronized String getPattern(int patternIndex) {
+        Object pattern = patterns.get(patternIndex);
+        return pattern instanceof Pattern ? ((Pattern) pattern).pattern() : (String) pattern;
+    }
+
+    /**
+     * 在字符串池中搜索所有模式
+     *
+     * @param stringIds 已解析的字符串池
+     * @param pool      并行扫描使用的线程池，为 null 时在当前线程顺序扫描
+     * @return 命中列表，按字符串索引、模式序号排序
+     */
+    public List<DexStringMatch> search(DexStringIds stringIds, ForkJoinPool pool) {
+        Automaton a = compile();
+        int count = stringIds.getStringCount();
+        Hits[] chunks = new Hits[(count + CHUNK_SIZE - 1) / CHUNK_SIZE];
+        if (chunks.length > 0) {
+            SearchTask task = new SearchTask(a, stringIds, chunks, 0, chunks.length);
+            if (pool == null) {
+                task.compute();
+            } else if (ForkJoinTask.getPool() == pool) {
+                task.invoke(); // 已在该线程池的工作线程中
+            } else {
+                pool.invoke(task);
+            }
+        }
+
+        // 各块按顺序合并，只在这里解码命中的字符串
+        int total = 0;
+        for (Hits hits : chunks) {
+            total += hits.size;
+        }
+        List<DexStringMatch> result = new ArrayList<>(total);
+        for (Hits hits : chunks) {
+            for (int i = 0; i < hits.size; i++) {
+                int stringIdx = hits.strings[i];
+                result.add(new DexStringMatch(stringIdx, hits.patterns[i], stringIds.getStringByIndex(stringIdx)));
+            }
+        }
+        return result;
+    }
+
+    private Automaton compile() {
+        Automaton a = automaton;
+        if (a == null) {
+            synchronized (this) {
+                a = automaton;
+                if (a == null) {
+                    a = new Automaton(modes, patterns);
+                    automaton = a;
+                }
+            }
+        }
+        return a;
+    }
+
+    /**
+     * 按块区间二分的并行扫描任务，每个叶子任务扫描一块字符串并把命中写入 chunks 中对应的位置
+     */
+    private static class SearchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Automaton automaton;
+        private final DexStringIds stringIds;
+        private final Hits[] chunks;
+        private final int from;
+        private final int to;
+
+        SearchTask(Automaton automaton, DexStringIds stringIds, Hits[] chunks, int from, int to) {
+            this.automaton = automaton;
+            this.stringIds = stringIds;
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                int first = from * CHUNK_SIZE;
+                int last = Math.min(stringIds.getStringCount(), first + CHUNK_SIZE);
+                chunks[from] = automaton.scan(stringIds, first, last);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new SearchTask(automaton, stringIds, chunks, from, mid),
+                    new SearchTask(automaton, stringIds, chunks, mid, to));
+        }
+    }
+
+    /**
+     * 一块的命中：(字符串索引, 模式序号) 平行数组
+     */
+    private static final class Hits {
+        int[] strings = new int[8];
+        int[] patterns = new int[8];
+        int size;
+
+        void add(int stringIdx, int patternIdx) {
+            if (size == strings.length) {
+                strings = Arrays.copyOf(strings, size * 2);
+                patterns = Arrays.copyOf(patterns, size * 2);
+            }
+            strings[size] = stringIdx;
+            patterns[size] = patternIdx;
+            size++;
+        }
+
+        /**
+         * 对 [start, size) 内同一个字符串的命中按模式序号排序
+         */
+        void sortFrom(int start) {
+            if (size - start > 1) {
+                Arrays.sort(patterns, start, size);
+            }
+        }
+    }
+
+    /**
+     * 编译后的模式集合：LITERAL / PREFIX 的 Aho-Corasick 自动机和 REGEX 列表，只读
+     */
+    private static final class Automaton {
+        private final int patternCount;
+        private final int[] byteClass = new int[256]; // 字节 -> 等价类，0 表示不在任何模式中出现
+        private final int classCount;
+        private final int[] delta;                    // 完整的转移表：state * classCount + class -> state
+        private final int[] outputHead;               // 在该状态结束的第一个模式，-1 表示没有
+        private final int[] dictLink;                 // 沿失败链最近的有输出的状态，-1 表示没有
+        private final int[] firstOutput;              // 状态本身有输出时为自身，否则为 dictLink，扫描时每字节只查一次
+        private final int[] outputNext;               // 模式 -> 同一状态结束的下一个模式
+        private final int[] patternLength;            // 模式的 MUTF-8 字节数
+        private final boolean[] prefixOnly;           // 模式是否只在字符串开头匹配
+        private final int scanLimit;                  // 没有 LITERAL 模式时只需扫描最长前缀的字节数
+        private final int[] regexIndices;
+        private final Pattern[] regexes;
+
+        Automaton(List<Mode> modes, List<Object> patterns) {
+            patternCount = patterns.size();
+            outputNext = new int[patternCount];
+            patternLength = new int[patternCount];
+            prefixOnly = new boolean[patternCount];
+
+            byte[][] encoded = new byte[patternCount][];
+            int regexCount = 0;
+            int trieBytes = 0;
+            boolean anyLiteral = false;
+            int maxPrefix = 0;
+            int classes = 1;
+            for (int p = 0; p < patternCount; p++) {
+                if (modes.get(p) == Mode.REGEX) {
+                    regexCount++;
+                    continue;
+                }
+                encoded[p] = Mutf8.encode((String) patterns.get(p));
+                patternLength[p] = encoded[p].length;
+                prefixOnly[p] = modes.get(p) == Mode.PREFIX;
+                if (prefixOnly[p]) {
+                    maxPrefix = Math.max(maxPrefix, encoded[p].length);
+                } else {
+                    anyLiteral = true;
+                }
+                trieBytes += encoded[p].length;
+                for (byte b : encoded[p]) {
+                    if (byteClass[b & 0xFF] == 0) {
+                        byteClass[b & 0xFF] = classes++;
+                    }
+                }
+            }
+            classCount = classes;
+            scanLimit = anyLiteral ? Integer.MAX_VALUE : maxPrefix;
+
+            // 建立字典树，状态数不超过模式字节总数 + 1
+            int maxStates = trieBytes + 1;
+            int[] table = new int[maxStates * classCount];
+            Arrays.fill(table, -1);
+            int[] heads = new int[maxStates];
+            Arrays.fill(heads, -1);
+            int states = 1;
+            for (int p = 0; p < patternCount; p++) {
+                if (encoded[p] == null) {
+                    continue;
+                }
+                int s = 0;
+                for (byte b : encoded[p]) {
+                    int slot = s * classCount + byteClass[b & 0xFF];
+                    if (table[slot] < 0) {
+                        table[slot] = states++;
+                    }
+                    s = table[slot];
+                }
+                outputNext[p] = heads[s];
+                heads[s] = p;
+            }
+
+            // 按宽度优先计算失败链接，并把缺失的转移补成完整的 DFA
+            int[] fail = new int[states];
+            int[] dict = new int[states];
+            int[] queue = new int[states];
+            int qHead = 0;
+            int qTail = 0;
+            dict[0] = -1;
+            for (int c = 0; c < classCount; c++) {
+                int t = table[c];
+                if (t < 0) {
+                    table[c] = 0;
+                } else {
+                    fail[t] = 0;
+                    queue[qTail++] = t;
+                }
+            }
+            while (qHead < qTail) {
+                int s = queue[qHead++];
+                int f = fail[s];
+                dict[s] = heads[f] >= 0 ? f : dict[f];
+                for (int c = 0; c < classCount; c++) {
+                    int slot = s * classCount + c;
+                    int t = table[slot];
+                    if (t < 0) {
+                        table[slot] = table[f * classCount + c];
+                    } else {
+                        fail[t] = table[f * classCount + c];
+                        queue[qTail++] = t;
+                    }
+                }
+            }
+            delta = Arrays.copyOf(table, states * classCount);
+            outputHead = Arrays.copyOf(heads, states);
+            dictLink = dict;
+            firstOutput = new int[states];
+            for (int s = 0; s < states; s++) {
+                firstOutput[s] = outputHead[s] >= 0 ? s : dict[s];
+            }
+
+            regexIndices = new int[regexCount];
+            regexes = new Pattern[regexCount];
+            for (int p = 0, r = 0; p < patternCount; p++) {
+                if (modes.get(p) == Mode.REGEX) {
+                    regexIndices[r] = p;
+                    regexes[r++] = (Pattern) patterns.get(p);
+                }
+            }
+        }
+
+        /**
+         * 扫描 [from, to) 区间内的字符串
+         */
+        Hits scan(DexStringIds stringIds, int from, int to) {
+            Hits hits = new Hits();
+            ByteBuffer buffer = stringIds.getBuffer();
+            int limit = buffer.limit();
+            int[] offsets = stringIds.getStringDataOffsets();
+            int[] lastHit = new int[patternCount]; // 模式最近一次命中的字符串索引 + 1，用于去重
+            AsciiSequence ascii = new AsciiSequence(buffer);
+            Matcher[] matchers = new Matcher[regexes.length];
+            for (int r = 0; r < regexes.length; r++) {
+                matchers[r] = regexes[r].matcher("");
+            }
+            boolean hasTrie = delta.length > classCount || outputHead[0] >= 0;
+
+            for (int i = from; i < to; i++) {
+                int start = hits.size;
+                long leb = DexdumpUtils.readUnsignedLeb128At(buffer, offsets[i]);
+                int utf16Size = DexdumpUtils.lebValue(leb);
+                int dataOff = offsets[i] + DexdumpUtils.lebLength(leb);
+
+                if (hasTrie) {
+                    // 空模式在根状态结束，匹配所有字符串
+                    report(hits, lastHit, i, 0, dataOff, dataOff - 1);
+                    int state = 0;
+                    int end = (int) Math.min(limit, (long) dataOff + scanLimit);
+                    for (int pos = dataOff; pos < end; pos++) {
+                        byte b = buffer.get(pos);
+                        if (b == 0) {
+                            break;
+                        }
+                        state = delta[state * classCount + byteClass[b & 0xFF]];
+                        int s = firstOutput[state];
+                        while (s > 0) {
+                            report(hits, lastHit, i, s, dataOff, pos);
+                            s = dictLink[s];
+                        }
+                    }
+                }
+
+                if (matchers.length > 0) {
+                    CharSequence chars;
+                    int byteLength = 0;
+                    while (dataOff + byteLength < limit && buffer.get(dataOff + byteLength) != 0) {
+                        byteLength++;
+                    }
+                    if (byteLength == utf16Size) {
+                        chars = ascii.reset(dataOff, utf16Size); // 纯 ASCII，不解码
+                    } else {
+                        chars = Mutf8.decode(buffer, dataOff, utf16Size);
+                    }
+                    for (int r = 0; r < matchers.length; r++) {
+                        if (matchers[r].reset(chars).find()) {
+                            hits.add(i, regexIndices[r]);
+                        }
+                    }
+                }
+                hits.sortFrom(start);
+            }
+            return hits;
+        }
+
+        /**
+         * 报告在状态 s 结束、末字节位于 pos 的所有模式
+         */
+        private void report(Hits hits, int[] lastHit, int stringIdx, int s, int dataOff, int pos) {
+            for (int p = outputHead[s]; p >= 0; p = outputNext[p]) {
+                if (lastHit[p] == stringIdx + 1) {
+                    continue;
+                }
+                if (prefixOnly[p] && pos - patternLength[p] + 1 != dataOff) {
+                    continue;
+                }
+                lastHit[p] = stringIdx + 1;
+                hits.add(stringIdx, p);
+            }
+        }
+    }
+
+    /**
+     * buffer 中一段 ASCII 字节的 CharSequence 视图，供正则表达式匹配使用，可以复用
+     */
+    private static final class AsciiSequence implements CharSequence {
+        private final ByteBuffer buffer;
+        private int offset;
+        private int length;
+
+        AsciiSequence(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        AsciiSequence reset(int offset, int length) {
+            this.offset = offset;
+            this.length = length;
+            return this;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException("index " + index + " of " + length);
+            }
+            return (char) buffer.get(offset + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return Mutf8.decode(buffer, offset, length);
+        }
+    }
+}
@@ -2,23 +2,24 @@ package main;
 
 import main.second.DexTypeId;
 
-import java.nio.Buffer;
-import java.nio.ByteBuffer;
-
-/**
- * DexTypeIds 用于解析 DEX 文件中的类型 ID 区域。
- * 类型 ID 部分保存了对字符串 ID（描述符）的索引，实际解析时需要根据 header 中的 typeIdsSize 和 typeIdsOff 字段。
- */
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * DexTypeIds 负责解析 DEX 文件中的 type_ids 表
  * 该表存储类型信息，每个类型 ID 指向 DexStringIds 中的字符串索引
+ *
+ * 类型 ID 以 int[] 列的形式存储，不为每一项创建对象；
+ * getTypeIds() 只为兼容原有接口保留，每次访问都创建一个新的不可变 DexTypeId，
+ * 遍历整张表时应直接使用 getDescriptorIdx。
+ * 类型描述符通过 DexStringIds 解码，字符串池设置了 Mutf8InternPool 时，getTypeName 返回的是跨文件共享的实例。
  */
 public class DexTypeIds {
-    private List<DexTypeId> typeIds = new ArrayList<>();
+    private int[] descriptorIdxs = new int[0]; // 每个类型对应的 DexStringIds 索引
 
     /**
      * 解析 Type IDs 表
@@ -30,34 +31,89 @@ public class DexTypeIds {
         int typeIdsSize = header.getTypeIdsSize(); // 读取 type_ids 数量
         int typeIdsOff = header.getTypeIdsOff();   // 读取 type_ids 起始偏移
 
-        // 定位到 type_ids 表的位置
-        buffer.position(typeIdsOff);
-
+        ByteBuffer data = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int[] idxs = new int[typeIdsSize];
         for (int i = 0; i < typeIdsSize; i++) {
-            int descriptorIdx = buffer.getInt(); // 读取索引（指向 DexStringIds 表）
-            typeIds.add(new DexTypeId(descriptorIdx));
+            idxs[i] = data.getInt(typeIdsOff + i * 4); // 读取索引（指向 DexStringIds 表）
         }
+        descriptorIdxs = idxs;
+    }
+
+    /**
+     * 从 DexIndexCache 的索引中载入，代替 parse
+     */
+    void load(int[] descriptorIdxs) {
+        this.descriptorIdxs = descriptorIdxs;
     }
 
     /**
-     * 获取解析得到的类型 ID 列表
+     * 描述符索引列（不复制），供 DexIndexCache 写入索引
+     */
+    int[] getDescriptorIdxs() {
+        return descriptorIdxs;
+    }
+
+    /**
+     * 获取类型 ID 列表视图，get 时创建 DexTypeId（每次访问都创建一个新的不可变副本，不是可复用的游标，只为兼容原有接口保留）
      */
     public List<DexTypeId> getTypeIds() {
-        return typeIds;
+        return new AbstractList<DexTypeId>() {
+            @Override
+            public DexTypeId get(int index) {
+                return new DexTypeId(descriptorIdxs[index]);
+            }
+
+            @Override
+            public int size() {
+                return descriptorIdxs.length;
+            }
+        };
     }
 
     /**
      * 获取类型 ID 数量
      */
     public int getTypeCount() {
-        return typeIds.size();
+        return descriptorIdxs.length;
+    }
+
+    /**
+     * 获取类型描述符在 DexStringIds 中的索引
+     *
+     * @param typeIdx 类型索引
+     * @return 字符串索引，若索引非法则返回 -1
+     */
+    public int getDescriptorIdx(int typeIdx) {
+        if (typeIdx < 0 || typeIdx >= descriptorIdxs.length) {
+            return -1;
+        }
+        return descriptorIdxs[typeIdx];
+    }
+
+    /**
+     * 按描述符查找类型索引，例如 "Lcom/foo/Bar;"。
+     *
+     * 先在字符串池中二分查找描述符，再利用 type_ids 按字符串索引排序的约定二分查找类型，
+     * 整个过程不解码字符串。
+     *
+     * @param descriptor   类型描述符
+     * @param dexStringIds 同一 DEX 文件的字符串池
+     * @return 类型索引，未找到时返回 -1
+     */
+    public int findType(CharSequence descriptor, DexStringIds dexStringIds) {
+        int stringIdx = dexStringIds.findString(descriptor);
+        if (stringIdx < 0) {
+            return -1;
+        }
+        int typeIdx = Arrays.binarySearch(descriptorIdxs, stringIdx);
+        return typeIdx >= 0 ? typeIdx : -1;
     }
 
     public String getTypeName(int typeIdx, DexStringIds dexStringIds) {
-        if (typeIdx < 0 || typeIdx >= typeIds.size()) {
+        if (typeIdx < 0 || typeIdx >= descriptorIdxs.length) {
             return "UNKNOWN";
         }
-        int stringIdx = typeIds.get(typeIdx).getDescriptorIdx(); // 获取 DexStringIds 的索引
+        int stringIdx = descriptorIdxs[typeIdx]; // 获取 DexStringIds 的索引
         return dexStringIds.getStringByIndex(stringIdx); // 从 DexStringIds 获取字符串
     }
 
@@ -2,42 +2,98 @@ package main;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.util.ArrayList;
+import java.util.AbstractList;
 import java.util.List;
 
 /**
- * DexTypeList 解析 DEX 中的类型列表（参数列表）
+ * DexTypeList 是 DEX 中的类型列表（type_list：方法参数列表或类实现的接口列表）。
+ *
+ * 结构为 size (4 字节) 加 size 个 type_idx (各 2 字节)。
+ * 解析后不可变，类型索引存放在 short[] 中，同一个偏移的列表通过 DexTypeListCache 在各处共享。
  */
-public class DexTypeList {
-    private List<Integer> typeIndexes = new ArrayList<>();
+public final class DexTypeList {
+    /**
+     * 空列表，对应偏移为 0（没有参数 / 没有接口）
+     */
+    public static final DexTypeList EMPTY = new DexTypeList(new short[0]);
+
+    private final short[] typeIdxs;
+
+    private DexTypeList(short[] typeIdxs) {
+        this.typeIdxs = typeIdxs;
+    }
 
     /**
-     * 解析 DexTypeList
+     * 解析 type_list（使用绝对偏移读取，不修改 buffer 的 position）
      *
      * @param buffer DEX 文件的 ByteBuffer
-     * @param offset 参数列表的偏移地址（parametersOff）
+     * @param offset type_list 的偏移，为 0 时返回 EMPTY
+     * @throws RuntimeException 如果列表超出文件范围
      */
-    public void parse(ByteBuffer buffer, int offset) {
+    public static DexTypeList read(ByteBuffer buffer, int offset) {
         if (offset == 0) {
-            return; // 没有参数
+            return EMPTY;
+        }
+        if (buffer.order() != ByteOrder.LITTLE_ENDIAN) {
+            buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        }
+        if (offset < 0 || offset > buffer.limit() - 4) {
+            throw new RuntimeException("Invalid DEX file: type_list offset " + offset + " exceeds file size " + buffer.limit());
         }
-        // 设置字节序为 little-endian
-        buffer.order(ByteOrder.LITTLE_ENDIAN);
-        buffer.position(offset);
-        int size = buffer.getInt(); // 读取参数个数
+        int size = buffer.getInt(offset);
+        if (size < 0 || size > (buffer.limit() - offset - 4) / 2) {
+            throw new RuntimeException("Invalid DEX file: type_list at " + offset + " has invalid size " + size);
+        }
+        if (size == 0) {
+            return EMPTY;
+        }
+        short[] typeIdxs = new short[size];
+        int pos = offset + 4;
         for (int i = 0; i < size; i++) {
-            if (buffer.remaining() < 2) {
-                break;
-            }
-            typeIndexes.add(buffer.getShort() & 0xFFFF);
+            typeIdxs[i] = buffer.getShort(pos + i * 2);
         }
+        return new DexTypeList(typeIdxs);
     }
 
+    /**
+     * 列表中类型的个数
+     */
+    public int size() {
+        return typeIdxs.length;
+    }
 
     /**
-     * 获取参数类型索引列表
+     * 第 i 个类型的 type_ids 索引
+     */
+    public int getTypeIndex(int i) {
+        return typeIdxs[i] & 0xFFFF;
+    }
+
+    /**
+     * 所有类型索引的 int[] 副本
+     */
+    public int[] toIntArray() {
+        int[] result = new int[typeIdxs.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = typeIdxs[i] & 0xFFFF;
+        }
+        return result;
+    }
+
+    /**
+     * 获取类型索引的只读列表视图
      */
     public List<Integer> getTypeIndexes() {
-        return typeIndexes;
+        return new AbstractList<Integer>() {
+            @Override
+            public Integer get(int index) {
+                return getTypeIndex(index);
+            }
+
+            @Override
+            public int size() {
+                return typeIdxs.length;
+            }
+        };
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,97 @@
+package main;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * DexTypeListCache 按偏移缓存一个 DEX 文件中解析过的 type_list。
+ *
+ * DEX 格式中相同的类型列表只存一份，很多 proto 的 parameters_off 和 class_def 的 interfaces_off 指向同一个偏移。
+ * 每个偏移只解析一次，之后返回同一个不可变的 DexTypeList，因此分配量与不同的列表个数成正比，
+ * 而不是与 proto / 类的个数成正比。
+ *
+ * 内部是以偏移为键的开放寻址哈希表，容量在构造时按列表个数的上限（proto 数 + 类数）确定，之后不再扩容。
+ * 槽位通过 AtomicReferenceArray 发布：读取不加锁，插入用 CAS，两个线程同时解析同一个偏移时只有一个结果被发布。
+ * 表满（只会在查询了大量非法偏移时发生）时不再缓存，直接解析返回。
+ */
+public class DexTypeListCache {
+    private static final int MIN_CAPACITY = 16;
+    private static final int MAX_CAPACITY = 1 << 18; // 两个 16 位计数之和的两倍
+
+    private final ByteBuffer buffer;
+    private final AtomicReferenceArray<Entry> slots;
+    private final AtomicInteger size = new AtomicInteger();
+
+    private static final class Entry {
+        final int offset;
+        final DexTypeList list;
+
+        Entry(int offset, DexTypeList list) {
+            this.offset = offset;
+            this.list = list;
+        }
+    }
+
+    /**
+     * @param buffer       DEX 文件数据
+     * @param maxTypeLists 不同类型列表个数的上限，通常为 proto_ids 与 class_defs 的个数之和
+     */
+    public DexTypeListCache(ByteBuffer buffer, int maxTypeLists) {
+        this.buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int capacity = MIN_CAPACITY;
+        while (capacity < MAX_CAPACITY && capacity / 2 < maxTypeLists) {
+            capacity <<= 1;
+        }
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * 获取偏移处的类型列表，第一次访问时解析
+     *
+     * @param offset type_list 的偏移，为 0 时返回 DexTypeList.EMPTY
+     * @throws RuntimeException 如果列表超出文件范围
+     */
+    public DexTypeList get(int offset) {
+        if (offset == 0) {
+            return DexTypeList.EMPTY;
+        }
+        int mask = slots.length() - 1;
+        int slot = mix(offset) & mask;
+        DexTypeList list = null;
+        for (int probes = 0; probes <= mask; probes++) {
+            Entry entry = slots.get(slot);
+            if (entry == null) {
+                if (list == null) {
+                    list = DexTypeList.read(buffer, offset);
+                }
+                if (slots.compareAndSet(slot, null, new Entry(offset, list))) {
+                    size.incrementAndGet();
+                    return list;
+                }
+                entry = slots.get(slot); // 其他线程抢先占用了这个槽位
+            }
+            if (entry.offset == offset) {
+                return entry.list;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return list != null ? list : DexTypeList.read(buffer, offset);
+    }
+
+    /**
+     * 已解析的不同类型列表的个数
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * type_list 偏移都是 4 的倍数，打散低位后再取槽位
+     */
+    private static int mix(int offset) {
+        int h = offset * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
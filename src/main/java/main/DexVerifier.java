@@ -0,0 +1,206 @@
+package main;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.zip.Adler32;
+
+/**
+ * DexVerifier 校验 DEX 文件头中的 checksum 和 signature。
+ *
+ * - checksum：文件从偏移 12（跳过 magic 和 checksum 本身）到末尾的 Adler-32；
+ * - signature：文件从偏移 32（跳过 magic、checksum 和 signature 本身）到末尾的 SHA-1。
+ *
+ * 两者都直接读取映射的 buffer，不复制文件内容。Adler-32 可以按块并行计算后合并
+ * （与 zlib 的 adler32_combine 相同），SHA-1 本身只能顺序计算，但可以与 Adler-32 和各区段的解析同时进行。
+ * DexFile 在 DexFileOptions.setVerify(true) 时把两个计算作为独立任务和区段解析一起调度，
+ * 全部完成后再调用 {@link #check()}。
+ */
+public class DexVerifier {
+    public static final int CHECKSUM_OFFSET = 12;
+    public static final int SIGNATURE_OFFSET = 32;
+
+    private static final int ADLER_BASE = 65521;
+    private static final int CHUNK_SIZE = 1 << 20; // 并行计算 Adler-32 时每块的字节数
+
+    private final ByteBuffer buffer;
+    private final DexFileHeader header;
+    private final int end;
+
+    private int checksum;
+    private byte[] signature;
+
+    /**
+     * @param buffer DEX 文件数据
+     * @param header 已解析的 DEX 文件头部信息
+     */
+    public DexVerifier(ByteBuffer buffer, DexFileHeader header) {
+        this.buffer = buffer;
+        this.header = header;
+        int fileSize = header.getFileSize();
+        this.end = fileSize > 0 && fileSize <= buffer.limit() ? fileSize : buffer.limit();
+    }
+
+    /**
+     * 计算 checksum
+     *
+     * @param pool 并行计算使用的线程池，为 null 时在当前线程顺序计算
+     */
+    public void computeChecksum(ForkJoinPool pool) {
+        checksum = adler32(buffer, CHECKSUM_OFFSET, end, pool);
+    }
+
+    /**
+     * 计算 signature
+     */
+    public void computeSignature() {
+        signature = sha1(buffer, SIGNATURE_OFFSET, end);
+    }
+
+    /**
+     * 顺序计算并校验 checksum 和 signature
+     *
+     * @throws IOException 如果校验失败
+     */
+    public void verify(ForkJoinPool pool) throws IOException {
+        computeChecksum(pool);
+        computeSignature();
+        check();
+    }
+
+    /**
+     * 与头部中的值比较。需要先调用 computeChecksum 和 computeSignature。
+     *
+     * @throws IOException 如果文件被截断、checksum 或 signature 不匹配
+     */
+    public void check() throws IOException {
+        if (header.getFileSize() != buffer.limit()) {
+            throw new IOException("Invalid DEX file: header file_size " + header.getFileSize()
+                    + " does not match actual size " + buffer.limit());
+        }
+        if (checksum != header.getChecksum()) {
+            throw new IOException(String.format("DEX checksum mismatch: header %08x, computed %08x",
+                    header.getChecksum(), checksum));
+        }
+        if (!Arrays.equals(signature, header.getSignature())) {
+            throw new IOException("DEX signature mismatch: header " + toHex(header.getSignature())
+                    + ", computed " + toHex(signature));
+        }
+    }
+
+    public int getComputedChecksum() {
+        return checksum;
+    }
+
+    public byte[] getComputedSignature() {
+        return signature == null ? null : signature.clone();
+    }
+
+    /**
+     * 计算 buffer 中 [from, to) 的 Adler-32
+     *
+     * @param pool 为 null 或数据不超过一块时顺序计算，否则按块在线程池上并行计算后合并
+     */
+    public static int adler32(ByteBuffer buffer, int from, int to, ForkJoinPool pool) {
+        if (pool == null || to - from <= CHUNK_SIZE) {
+            return adler32Range(buffer, from, to);
+        }
+        AdlerTask task = new AdlerTask(buffer, from, to);
+        return ForkJoinTask.getPool() == pool ? task.invoke() : pool.invoke(task);
+    }
+
+    /**
+     * 计算 buffer 中 [from, to) 的 SHA-1
+     */
+    public static byte[] sha1(ByteBuffer buffer, int from, int to) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            digest.update(window(buffer, from, to));
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 合并两个相邻数据块的 Adler-32：adler1 为前一块的值，adler2 为后一块（长度 len2）的值
+     */
+    public static int combineAdler32(int adler1, int adler2, long len2) {
+        long rem = len2 % ADLER_BASE;
+        long sum1 = adler1 & 0xFFFF;
+        long sum2 = (rem * sum1) % ADLER_BASE;
+        sum1 += (adler2 & 0xFFFF) + ADLER_BASE - 1;
+        sum2 += ((adler1 >>> 16) & 0xFFFF) + ((adler2 >>> 16) & 0xFFFF) + ADLER_BASE - rem;
+        if (sum1 >= ADLER_BASE) {
+            sum1 -= ADLER_BASE;
+        }
+        if (sum1 >= ADLER_BASE) {
+            sum1 -= ADLER_BASE;
+        }
+        if (sum2 >= (ADLER_BASE << 1)) {
+            sum2 -= (ADLER_BASE << 1);
+        }
+        if (sum2 >= ADLER_BASE) {
+            sum2 -= ADLER_BASE;
+        }
+        return (int) ((sum2 << 16) | sum1);
+    }
+
+    private static int adler32Range(ByteBuffer buffer, int from, int to) {
+        Adler32 adler = new Adler32();
+        adler.update(window(buffer, from, to));
+        return (int) adler.getValue();
+    }
+
+    /**
+     * buffer 中 [from, to) 的独立视图，不影响原 buffer 的 position
+     */
+    private static ByteBuffer window(ByteBuffer buffer, int from, int to) {
+        ByteBuffer window = buffer.duplicate();
+        window.limit(to);
+        window.position(from);
+        return window;
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 按区间二分的并行 Adler-32 任务，左右两半的结果用 combineAdler32 合并
+     */
+    private static class AdlerTask extends RecursiveTask<Integer> {
+        private static final long serialVersionUID = 1L;
+
+        private final ByteBuffer buffer;
+        private final int from;
+        private final int to;
+
+        AdlerTask(ByteBuffer buffer, int from, int to) {
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (to - from <= CHUNK_SIZE) {
+                return adler32Range(buffer, from, to);
+            }
+            int mid = (from + to) >>> 1;
+            AdlerTask right = new AdlerTask(buffer, mid, to);
+            right.fork();
+            int left = new AdlerTask(buffer, from, mid).compute();
+            return combineAdler32(left, right.join(), to - mid);
+        }
+    }
+}
@@ -0,0 +1,400 @@
+package main;
+
+import main.second.DexClassDefView;
+import main.second.DexCodeItemView;
+import main.second.DexInstructionCursor;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * DexXrefIndex 是一个 DEX 文件的调用图和交叉引用索引。
+ *
+ * 构建时扫描所有带 code_item 的方法的指令，记录每个方法引用的：
+ * - 方法（invoke-* 和 invoke-polymorphic，见 {@link Kind#CALL}）；
+ * - 字段读（iget-* / sget-*）和字段写（iput-* / sput-*）；
+ * - 字符串（const-string、const-string/jumbo）；
+ * - 类型（const-class）。
+ * invoke-custom 引用的是 call_site 而不是方法，不计入调用图。
+ *
+ * 每种引用都按 CSR（compressed sparse row）格式存成两组 int[]：
+ * 正向为 method_ids 索引 → 被引用的目标，反向为目标 → 引用它的方法。
+ * 第 i 行的数据位于 targets[offsets[i] .. offsets[i + 1])，因此 getCallers / getCallees 等查询是 O(度数)，
+ * 不需要任何对象或装箱。同一个方法对同一个目标的多次引用只记录一次；正向每行按目标索引升序排列。
+ *
+ * 扫描按 class_def 区间分块，在 ForkJoinPool 上并行进行，每块使用自己的游标和边缓冲区；
+ * 之后各种引用的正向、反向数组也作为独立任务并行建立。
+ * 结果与是否并行无关，构建完成后只读，可以在线程间共享。
+ */
+public class DexXrefIndex {
+    /**
+     * 引用的种类
+     */
+    public enum Kind {
+        /** 方法调用，目标为 method_ids 索引 */
+        CALL,
+        /** 字段读取，目标为 field_ids 索引 */
+        FIELD_READ,
+        /** 字段写入，目标为 field_ids 索引 */
+        FIELD_WRITE,
+        /** const-string，目标为 string_ids 索引 */
+        STRING,
+        /** const-class，目标为 type_ids 索引 */
+        TYPE
+    }
+
+    private static final int KIND_COUNT = Kind.values().length;
+    private static final int CHUNK_CLASSES = 32; // 每个扫描任务处理的 class_def 个数
+    private static final int OP_CONST_CLASS = 0x1c;
+
+    private final int methodCount;
+    private final int[] targetCounts;      // 每种引用目标所在表的大小
+    private final int[][] forwardOffsets;  // [kind][methodCount + 1]
+    private final int[][] forwardTargets;  // [kind][edgeCount]
+    private final int[][] reverseOffsets;  // [kind][targetCount + 1]
+    private final int[][] reverseSources;  // [kind][edgeCount]
+
+    private DexXrefIndex(int methodCount, int[] targetCounts) {
+        this.methodCount = methodCount;
+        this.targetCounts = targetCounts;
+        this.forwardOffsets = new int[KIND_COUNT][];
+        this.forwardTargets = new int[KIND_COUNT][];
+        this.reverseOffsets = new int[KIND_COUNT][];
+        this.reverseSources = new int[KIND_COUNT][];
+    }
+
+    /**
+     * 扫描 dex 中所有方法的指令并建立索引，需要加载 string_ids、type_ids、field_ids、method_ids 和 class_defs
+     *
+     * @param dex  已加载的 DEX 文件
+     * @param pool 并行构建使用的线程池，为 null 时在当前线程顺序构建
+     * @return 构建好的索引
+     * @throws RuntimeException 如果 class_data 或 code_item 数据非法
+     */
+    public static DexXrefIndex build(DexFile dex, ForkJoinPool pool) {
+        ParseStats.Timer timer = dex.getParseStats().start("xref");
+        DexClassDefs classDefs = dex.getClassDefs();
+        int[] targetCounts = new int[KIND_COUNT];
+        targetCounts[Kind.CALL.ordinal()] = dex.getMethodIds().getMethodCount();
+        targetCounts[Kind.FIELD_READ.ordinal()] = dex.getFieldIds().getFieldCount();
+        targetCounts[Kind.FIELD_WRITE.ordinal()] = dex.getFieldIds().getFieldCount();
+        targetCounts[Kind.STRING.ordinal()] = dex.getStringIds().getStringCount();
+        targetCounts[Kind.TYPE.ordinal()] = dex.getTypeIds().getTypeCount();
+        DexXrefIndex index = new DexXrefIndex(dex.getMethodIds().getMethodCount(), targetCounts);
+
+        // 第一步：按 class_def 区间分块扫描指令，每块的边放在自己的缓冲区中，按块的顺序合并保证结果确定
+        int classCount = classDefs.getClassDefCount();
+        Edges[] chunks = new Edges[(classCount + CHUNK_CLASSES - 1) / CHUNK_CLASSES];
+        ByteBuffer buffer = dex.getBuffer();
+        List<Runnable> tasks = new ArrayList<>(chunks.length);
+        for (int c = 0; c < chunks.length; c++) {
+            int chunk = c;
+            tasks.add(() -> chunks[chunk] = index.scan(buffer, classDefs, chunk * CHUNK_CLASSES,
+                    Math.min(classCount, (chunk + 1) * CHUNK_CLASSES)));
+        }
+        run(tasks, pool);
+
+        // 第二步：各种引用的正向、反向 CSR 数组互不依赖，分别建立
+        tasks.clear();
+        for (int k = 0; k < KIND_COUNT; k++) {
+            int kind = k;
+            tasks.add(() -> index.buildForward(kind, chunks));
+            tasks.add(() -> index.buildReverse(kind, chunks));
+        }
+        run(tasks, pool);
+
+        long edges = 0;
+        for (int k = 0; k < KIND_COUNT; k++) {
+            edges += index.forwardTargets[k].length;
+        }
+        timer.end(edges, 0);
+        return index;
+    }
+
+    private static void run(List<Runnable> tasks, ForkJoinPool pool) {
+        if (pool == null) {
+            for (Runnable task : tasks) {
+                task.run();
+            }
+            return;
+        }
+        List<ForkJoinTask<?>> adapted = new ArrayList<>(tasks.size());
+        for (Runnable task : tasks) {
+            adapted.add(ForkJoinTask.adapt(task));
+        }
+        RecursiveAction all = new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(adapted);
+            }
+        };
+        if (ForkJoinTask.getPool() == pool) {
+            all.invoke(); // 已在该线程池的工作线程中
+        } else {
+            pool.invoke(all);
+        }
+    }
+
+    /**
+     * 扫描 [from, to) 区间内各个类的所有方法
+     */
+    private Edges scan(ByteBuffer buffer, DexClassDefs classDefs, int from, int to) {
+        Edges edges = new Edges();
+        DexClassDefView def = classDefs.newView();
+        DexCodeItemView code = new DexCodeItemView(buffer);
+        DexInstructionCursor insn = new DexInstructionCursor();
+        int[] starts = new int[KIND_COUNT];
+        for (int c = from; c < to; c++) {
+            int classDataOff = def.moveTo(c).getClassDataOff();
+            if (classDataOff == 0) {
+                continue;
+            }
+            DexClassData data = DexClassData.parse(buffer, classDataOff);
+            for (int m = 0; m < data.getMethodCount(); m++) {
+                int codeOff = data.getMethodCodeOff(m);
+                int caller = data.getMethodIndex(m);
+                if (codeOff == 0 || caller < 0 || caller >= methodCount) {
+                    continue;
+                }
+                for (int k = 0; k < KIND_COUNT; k++) {
+                    starts[k] = edges.sizes[k];
+                }
+                insn.reset(code.moveTo(codeOff));
+                while (insn.next()) {
+                    int kind;
+                    switch (insn.getIndexType()) {
+                        case METHOD:
+                            kind = Kind.CALL.ordinal();
+                            break;
+                        case FIELD:
+                            kind = isFieldWrite(insn.getOpcode()) ? Kind.FIELD_WRITE.ordinal() : Kind.FIELD_READ.ordinal();
+                            break;
+                        case STRING:
+                            kind = Kind.STRING.ordinal();
+                            break;
+                        case TYPE:
+                            if (insn.getOpcode() != OP_CONST_CLASS) {
+                                continue;
+                            }
+                            kind = Kind.TYPE.ordinal();
+                            break;
+                        default:
+                            continue;
+                    }
+                    int target = insn.getIndex();
+                    if (target >= 0 && target < targetCounts[kind]) {
+                        edges.add(kind, caller, target);
+                    }
+                }
+                for (int k = 0; k < KIND_COUNT; k++) {
+                    edges.dedupe(k, starts[k]);
+                }
+            }
+        }
+        return edges;
+    }
+
+    /**
+     * iput-* (0x59 ~ 0x5f) 和 sput-* (0x67 ~ 0x6d) 为写，其余字段指令为读
+     */
+    private static boolean isFieldWrite(int opcode) {
+        return (opcode >= 0x59 && opcode <= 0x5f) || (opcode >= 0x67 && opcode <= 0x6d);
+    }
+
+    private void buildForward(int kind, Edges[] chunks) {
+        int[] offsets = new int[methodCount + 1];
+        int total = 0;
+        for (Edges edges : chunks) {
+            int[] sources = edges.sources[kind];
+            for (int i = 0; i < edges.sizes[kind]; i++) {
+                offsets[sources[i] + 1]++;
+            }
+            total += edges.sizes[kind];
+        }
+        for (int i = 0; i < methodCount; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] targets = new int[total];
+        int[] next = Arrays.copyOf(offsets, methodCount);
+        for (Edges edges : chunks) {
+            int[] sources = edges.sources[kind];
+            int[] dests = edges.targets[kind];
+            for (int i = 0; i < edges.sizes[kind]; i++) {
+                targets[next[sources[i]]++] = dests[i];
+            }
+        }
+        forwardOffsets[kind] = offsets;
+        forwardTargets[kind] = targets;
+    }
+
+    private void buildReverse(int kind, Edges[] chunks) {
+        int targetCount = targetCounts[kind];
+        int[] offsets = new int[targetCount + 1];
+        int total = 0;
+        for (Edges edges : chunks) {
+            int[] dests = edges.targets[kind];
+            for (int i = 0; i < edges.sizes[kind]; i++) {
+                offsets[dests[i] + 1]++;
+            }
+            total += edges.sizes[kind];
+        }
+        for (int i = 0; i < targetCount; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] sources = new int[total];
+        int[] next = Arrays.copyOf(offsets, targetCount);
+        for (Edges edges : chunks) {
+            int[] srcs = edges.sources[kind];
+            int[] dests = edges.targets[kind];
+            for (int i = 0; i < edges.sizes[kind]; i++) {
+                sources[next[dests[i]]++] = srcs[i];
+            }
+        }
+        reverseOffsets[kind] = offsets;
+        reverseSources[kind] = sources;
+    }
+
+    /**
+     * method_ids 的大小，即正向索引的行数
+     */
+    public int getMethodCount() {
+        return methodCount;
+    }
+
+    /**
+     * 指定种类的引用总数（去重后）
+     */
+    public int getEdgeCount(Kind kind) {
+        return forwardTargets[kind.ordinal()].length;
+    }
+
+    /**
+     * 方法 methodIdx 中指定种类的引用个数
+     */
+    public int getReferenceCount(Kind kind, int methodIdx) {
+        checkIndex(methodIdx, methodCount);
+        int[] offsets = forwardOffsets[kind.ordinal()];
+        return offsets[methodIdx + 1] - offsets[methodIdx];
+    }
+
+    /**
+     * 方法 methodIdx 引用的第 i 个目标（按目标索引升序）
+     */
+    public int getReference(Kind kind, int methodIdx, int i) {
+        checkIndex(i, getReferenceCount(kind, methodIdx));
+        return forwardTargets[kind.ordinal()][forwardOffsets[kind.ordinal()][methodIdx] + i];
+    }
+
+    /**
+     * 方法 methodIdx 引用的所有目标的副本
+     */
+    public int[] getReferences(Kind kind, int methodIdx) {
+        checkIndex(methodIdx, methodCount);
+        int[] offsets = forwardOffsets[kind.ordinal()];
+        return Arrays.copyOfRange(forwardTargets[kind.ordinal()], offsets[methodIdx], offsets[methodIdx + 1]);
+    }
+
+    /**
+     * 引用目标 targetIdx 的方法个数
+     */
+    public int getReferrerCount(Kind kind, int targetIdx) {
+        checkIndex(targetIdx, targetCounts[kind.ordinal()]);
+        int[] offsets = reverseOffsets[kind.ordinal()];
+        return offsets[targetIdx + 1] - offsets[targetIdx];
+    }
+
+    /**
+     * 引用目标 targetIdx 的第 i 个方法（method_ids 索引）
+     */
+    public int getReferrer(Kind kind, int targetIdx, int i) {
+        checkIndex(i, getReferrerCount(kind, targetIdx));
+        return reverseSources[kind.ordinal()][reverseOffsets[kind.ordinal()][targetIdx] + i];
+    }
+
+    /**
+     * 引用目标 targetIdx 的所有方法的副本
+     */
+    public int[] getReferrers(Kind kind, int targetIdx) {
+        checkIndex(targetIdx, targetCounts[kind.ordinal()]);
+        int[] offsets = reverseOffsets[kind.ordinal()];
+        return Arrays.copyOfRange(reverseSources[kind.ordinal()], offsets[targetIdx], offsets[targetIdx + 1]);
+    }
+
+    /**
+     * 方法 methodIdx 调用的所有方法
+     */
+    public int[] getCallees(int methodIdx) {
+        return getReferences(Kind.CALL, methodIdx);
+    }
+
+    /**
+     * 调用了方法 methodIdx 的所有方法
+     */
+    public int[] getCallers(int methodIdx) {
+        return getReferrers(Kind.CALL, methodIdx);
+    }
+
+    /**
+     * 读取了字段 fieldIdx 的所有方法
+     */
+    public int[] getFieldReaders(int fieldIdx) {
+        return getReferrers(Kind.FIELD_READ, fieldIdx);
+    }
+
+    /**
+     * 写入了字段 fieldIdx 的所有方法
+     */
+    public int[] getFieldWriters(int fieldIdx) {
+        return getReferrers(Kind.FIELD_WRITE, fieldIdx);
+    }
+
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + " of " + size);
+        }
+    }
+
+    /**
+     * 一个扫描块的边缓冲区：每种引用一组 (source, target) 平行数组
+     */
+    private static final class Edges {
+        final int[][] sources = new int[KIND_COUNT][16];
+        final int[][] targets = new int[KIND_COUNT][16];
+        final int[] sizes = new int[KIND_COUNT];
+
+        void add(int kind, int source, int target) {
+            int size = sizes[kind];
+            if (size == sources[kind].length) {
+                sources[kind] = Arrays.copyOf(sources[kind], size * 2);
+                targets[kind] = Arrays.copyOf(targets[kind], size * 2);
+            }
+            sources[kind][size] = source;
+            targets[kind][size] = target;
+            sizes[kind] = size + 1;
+        }
+
+        /**
+         * 对一个方法新加入的边 [start, size) 按目标排序并去重（这些边的 source 相同）
+         */
+        void dedupe(int kind, int start) {
+            int size = sizes[kind];
+            if (size - start < 2) {
+                return;
+            }
+            int[] dests = targets[kind];
+            Arrays.sort(dests, start, size);
+            int out = start + 1;
+            for (int i = start + 1; i < size; i++) {
+                if (dests[i] != dests[out - 1]) {
+                    dests[out++] = dests[i];
+                }
+            }
+            sizes[kind] = out;
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package main;
+
+import main.output.DumpSink;
+import main.output.TextDumpSink;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * MultiDexFile 直接从 APK / AAB 压缩包中加载所有 classes*.dex，组成一个多 dex 视图。
+ *
+ * 压缩包整体映射到内存中，通过 ZIP 中央目录定位每个 dex 条目：
+ * - 未压缩（STORED）的条目直接使用映射 buffer 中对应区域的切片，不复制数据；
+ * - DEFLATE 压缩的条目在内存中解压到一个大小等于解压后长度的 buffer 中，不产生临时文件。
+ *
+ * 各个 dex 在 DexFileOptions 指定的 ForkJoinPool 上并行解压和解析。
+ * options 中设置了 Mutf8InternPool 时，各个 dex 之间重复的字符串和类型描述符只保留一个实例。
+ * 支持 APK 根目录下的 classes.dex、classesN.dex，以及 AAB 模块中的 base/dex/classesN.dex。
+ */
+public class MultiDexFile {
+    private static final int EOCD_SIGNATURE = 0x06054b50;          // End of central directory
+    private static final int EOCD_SIZE = 22;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int ZIP64_EOCD_SIGNATURE = 0x06064b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int METHOD_STORED = 0;
+    private static final int METHOD_DEFLATED = 8;
+
+    // 与 ART 一致只接受 classes.dex、classes2.dex、classes3.dex ...：classes1.dex、classes01.dex 等不规范的名字不会被加载，
+    // 编号最多 9 位，保证 Integer.parseInt 不会溢出
+    private static final Pattern DEX_ENTRY = Pattern.compile("((?:[^/]+/)?dex/|)classes((?:[2-9]|[1-9]\\d{1,8})?)\\.dex");
+
+    private final List<String> entryNames;
+    private final List<DexFile> dexFiles;
+
+    public MultiDexFile(String archivePath) throws IOException {
+        this(archivePath, new DexFileOptions());
+    }
+
+    /**
+     * 打开压缩包并并行解析其中所有的 dex 条目
+     *
+     * @param archivePath APK / AAB 文件路径
+     * @param options     每个 dex 使用的加载选项，其线程池也用于并行解析多个 dex
+     * @throws IOException 读取压缩包或解析 dex 失败
+     */
+    public MultiDexFile(String archivePath, DexFileOptions options) throws IOException {
+        ByteBuffer archive;
+        try (FileInputStream fis = new FileInputStream(archivePath);
+             FileChannel channel = fis.getChannel()) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Archive too large: " + channel.size() + " bytes");
+            }
+            archive = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        archive.order(ByteOrder.LITTLE_ENDIAN);
+
+        List<DexEntry> entries = findDexEntries(archive);
+        if (entries.isEmpty()) {
+            throw new IOException("No classes*.dex entry found in " + archivePath);
+        }
+
+        DexFile[] parsed = new DexFile[entries.size()];
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            final int index = i;
+            tasks.add(ForkJoinTask.adapt(() -> {
+                try {
+                    parsed[index] = new DexFile(entries.get(index).open(archive), options);
+                } catch (IOException e) {
+                    throw new RuntimeException(entries.get(index).name + ": " + e.getMessage(), e);
+                }
+            }));
+        }
+        try {
+            options.getPool().invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+        } catch (RuntimeException e) {
+            // ForkJoinTask 跨线程抛出时可能再包装一层，找出原始的 IOException
+            for (Throwable t = e; t != null; t = t.getCause()) {
+                if (t instanceof IOException) {
+                    throw new IOException(t.getMessage(), t);
+                }
+            }
+            throw e;
+        }
+
+        List<String> names = new ArrayList<>(entries.size());
+        for (DexEntry entry : entries) {
+            names.add(entry.name);
+        }
+        this.entryNames = Collections.unmodifiableList(names);
+        this.dexFiles = Collections.unmodifiableList(Arrays.asList(parsed));
+    }
+
+    /**
+     * 获取 dex 数量
+     */
+    public int getDexCount() {
+        return dexFiles.size();
+    }
+
+    /**
+     * 按 classes.dex、classes2.dex ... 的顺序获取所有 dex
+     */
+    public List<DexFile> getDexFiles() {
+        return dexFiles;
+    }
+
+    public DexFile getDexFile(int index) {
+        return dexFiles.get(index);
+    }
+
+    /**
+     * 获取 dex 在压缩包中的条目名
+     */
+    public String getEntryName(int index) {
+        return entryNames.get(index);
+    }
+
+    /**
+     * 所有 dex 中类定义的总数
+     */
+    public int getClassDefCount() {
+        int count = 0;
+        for (DexFile dexFile : dexFiles) {
+            count += dexFile.getHeader().getClassDefsSize();
+        }
+        return count;
+    }
+
+    /**
+     * 为所有 dex 建立合并的类继承关系索引，节点的 dex 索引与 getDexFile 的参数一致
+     */
+    public DexClassHierarchy buildClassHierarchy() {
+        return DexClassHierarchy.build(dexFiles);
+    }
+
+    /**
+     * 打印每个 dex 的基本信息
+     */
+    public void printDexInfo() {
+        DumpSink sink = TextDumpSink.stdout();
+        printDexInfo(sink);
+        sink.flush();
+    }
+
+    /**
+     * 将每个 dex 的基本信息输出到指定的 sink
+     */
+    public void printDexInfo(DumpSink sink) {
+        for (int i = 0; i < dexFiles.size(); i++) {
+            sink.append("##### ").append(entryNames.get(i)).append(" #####").newLine();
+            dexFiles.get(i).printDexInfo(sink);
+            sink.newLine();
+        }
+    }
+
+    /**
+     * 读取 ZIP 中央目录，找出所有 dex 条目，并按模块目录和编号排序
+     */
+    private static List<DexEntry> findDexEntries(ByteBuffer zip) throws IOException {
+        int eocd = findEndOfCentralDirectory(zip);
+        long entryCount = zip.getShort(eocd + 10) & 0xFFFF;
+        long cdOff = zip.getInt(eocd + 16) & 0xFFFFFFFFL;
+        if (entryCount == 0xFFFF || cdOff == 0xFFFFFFFFL) {
+            // ZIP64：从 zip64 end of central directory 记录中读取真实值
+            int locator = eocd - 20;
+            if (locator < 0 || zip.getInt(locator) != ZIP64_LOCATOR_SIGNATURE) {
+                throw new IOException("Invalid ZIP64 archive: missing end of central directory locator");
+            }
+            long zip64Eocd = zip.getLong(locator + 8);
+            if (zip64Eocd < 0 || zip64Eocd > zip.limit() - 56 || zip.getInt((int) zip64Eocd) != ZIP64_EOCD_SIGNATURE) {
+                throw new IOException("Invalid ZIP64 end of central directory record");
+            }
+            entryCount = zip.getLong((int) zip64Eocd + 32);
+            cdOff = zip.getLong((int) zip64Eocd + 48);
+        }
+
+        List<DexEntry> entries = new ArrayList<>();
+        long pos = cdOff;
+        for (long i = 0; i < entryCount; i++) {
+            if (pos < 0 || pos > zip.limit() - 46 || zip.getInt((int) pos) != CENTRAL_HEADER_SIGNATURE) {
+                throw new IOException("Invalid ZIP central directory entry at offset " + pos);
+            }
+            int p = (int) pos;
+            int method = zip.getShort(p + 10) & 0xFFFF;
+            long compressedSize = zip.getInt(p + 20) & 0xFFFFFFFFL;
+            long size = zip.getInt(p + 24) & 0xFFFFFFFFL;
+            int nameLen = zip.getShort(p + 28) & 0xFFFF;
+            int extraLen = zip.getShort(p + 30) & 0xFFFF;
+            int commentLen = zip.getShort(p + 32) & 0xFFFF;
+            long localHeaderOff = zip.getInt(p + 42) & 0xFFFFFFFFL;
+
+            String name = readName(zip, p + 46, nameLen);
+            Matcher matcher = DEX_ENTRY.matcher(name);
+            if (matcher.matches()) {
+                if (size == 0xFFFFFFFFL || compressedSize == 0xFFFFFFFFL || localHeaderOff == 0xFFFFFFFFL) {
+                    // 读取 ZIP64 扩展字段（header id 0x0001），字段只在对应值为 0xFFFFFFFF 时出现
+                    int extra = p + 46 + nameLen;
+                    int extraEnd = extra + extraLen;
+                    while (extra + 4 <= extraEnd) {
+                        int id = zip.getShort(extra) & 0xFFFF;
+                        int len = zip.getShort(extra + 2) & 0xFFFF;
+                        if (id == 0x0001) {
+                            int q = extra + 4;
+                            if (size == 0xFFFFFFFFL) {
+                                size = zip.getLong(q);
+                                q += 8;
+                            }
+                            if (compressedSize == 0xFFFFFFFFL) {
+                                compressedSize = zip.getLong(q);
+                                q += 8;
+                            }
+                            if (localHeaderOff == 0xFFFFFFFFL) {
+                                localHeaderOff = zip.getLong(q);
+                            }
+                            break;
+                        }
+                        extra += 4 + len;
+                    }
+                }
+                String number = matcher.group(2);
+                entries.add(new DexEntry(name, matcher.group(1), number.isEmpty() ? 1 : Integer.parseInt(number),
+                        method, compressedSize, size, localHeaderOff));
+            }
+            pos += 46L + nameLen + extraLen + commentLen;
+        }
+        entries.sort((a, b) -> a.module.equals(b.module)
+                ? Integer.compare(a.number, b.number) : a.module.compareTo(b.module));
+        return entries;
+    }
+
+    private static int findEndOfCentralDirectory(ByteBuffer zip) throws IOException {
+        int last = zip.limit() - EOCD_SIZE;
+        int first = Math.max(0, last - 0xFFFF); // EOCD 之后最多跟 65535 字节的注释
+        for (int i = last; i >= first; i--) {
+            if (zip.getInt(i) == EOCD_SIGNATURE) {
+                return i;
+            }
+        }
+        throw new IOException("Invalid ZIP archive: end of central directory not found");
+    }
+
+    private static String readName(ByteBuffer zip, int offset, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = zip.get(offset + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 压缩包中的一个 dex 条目
+     */
+    private static class DexEntry {
+        final String name;
+        final String module;   // 条目所在目录（APK 根目录为空字符串）
+        final int number;      // classes.dex 为 1，classesN.dex 为 N
+        final int method;
+        final long compressedSize;
+        final long size;
+        final long localHeaderOff;
+
+        DexEntry(String name, String module, int number, int method,
+                 long compressedSize, long size, long localHeaderOff) {
+            this.name = name;
+            this.module = module;
+            this.number = number;
+            this.method = method;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOff = localHeaderOff;
+        }
+
+        /**
+         * 获取条目的 dex 数据：STORED 条目返回映射区域的切片，DEFLATED 条目在内存中解压
+         */
+        ByteBuffer open(ByteBuffer zip) throws IOException {
+            if (localHeaderOff > zip.limit() - 30 || zip.getInt((int) localHeaderOff) != LOCAL_HEADER_SIGNATURE) {
+                throw new IOException("Invalid ZIP local header for " + name);
+            }
+            int local = (int) localHeaderOff;
+            int nameLen = zip.getShort(local + 26) & 0xFFFF;
+            int extraLen = zip.getShort(local + 28) & 0xFFFF;
+            long dataOff = (long) local + 30 + nameLen + extraLen;
+            if (dataOff + compressedSize > zip.limit()) {
+                throw new IOException("Truncated ZIP entry " + name);
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Dex entry too large: " + name);
+            }
+
+            ByteBuffer compressed = zip.duplicate();
+            compressed.position((int) dataOff);
+            compressed.limit((int) (dataOff + compressedSize));
+            if (method == METHOD_STORED) {
+                return compressed.slice();
+            }
+            if (method != METHOD_DEFLATED) {
+                throw new IOException("Unsupported compression method " + method + " for " + name);
+            }
+
+            ByteBuffer out = ByteBuffer.allocate((int) size);
+            Inflater inflater = new Inflater(true);
+            try {
+                inflater.setInput(compressed);
+                while (!inflater.finished() && out.hasRemaining()) {
+                    if (inflater.inflate(out) == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        throw new IOException("Truncated deflate stream for " + name);
+                    }
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupt deflate stream for " + name, e);
+            } finally {
+                inflater.end();
+            }
+            if (out.hasRemaining()) {
+                throw new IOException("Inflated size mismatch for " + name);
+            }
+            out.flip();
+            return out;
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package main;
+
+import main.output.DumpSink;
+import main.output.TextDumpSink;
+
+import jdk.jfr.EventType;
+
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ParseStats 记录 DexFile 各解析阶段的统计信息：数据项个数、访问的字节数、耗时和分配量估算。
+ *
+ * 加载时的各阶段（header、map_list、各 ID 表、class_defs、校验）在 DexFile 构造时记录；
+ * 按需解码的阶段（例如 class_data）调用次数很多，只有在 DexFileOptions.setCollectStats(true)
+ * 或 JFR 录制启用了 {@link DexParseEvent} 时才计时（见 {@link #isOnDemandEnabled()}），默认不产生任何开销。
+ * 每次记录的同时提交一个 DexParseEvent JFR 事件。
+ *
+ * 分配量通过 com.sun.management.ThreadMXBean 统计当前线程的分配字节数，
+ * 并行解码时其他线程的分配不计入，因此只是估算；JVM 不支持时为 -1。
+ *
+ * 所有方法都是线程安全的。累加使用 LongAdder，只有第一次记录某个阶段时才加锁。
+ */
+public class ParseStats {
+    private static final EventType PARSE_EVENT = EventType.getEventType(DexParseEvent.class);
+
+    private final boolean collectOnDemand;
+    private final ConcurrentHashMap<String, Counters> phases = new ConcurrentHashMap<>();
+    private final List<Counters> order = new CopyOnWriteArrayList<>(); // 按第一次记录的顺序
+
+    public ParseStats() {
+        this(false);
+    }
+
+    /**
+     * @param collectOnDemand 是否总是记录按需解码的阶段
+     */
+    public ParseStats(boolean collectOnDemand) {
+        this.collectOnDemand = collectOnDemand;
+    }
+
+    /**
+     * 一个解析阶段的统计值（快照）
+     */
+    public static final class Phase {
+        private final String name;
+        private final long invocations;
+        private final long itemCount;
+        private final long bytes;
+        private final long nanos;
+        private final long allocatedBytes;
+
+        Phase(Counters counters) {
+            this.name = counters.name;
+            this.invocations = counters.invocations.sum();
+            this.itemCount = counters.itemCount.sum();
+            this.bytes = counters.bytes.sum();
+            this.nanos = counters.nanos.sum();
+            this.allocatedBytes = counters.allocationUnavailable ? -1 : counters.allocatedBytes.sum();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * 该阶段被记录的次数（按需解码的阶段每解码一次记一次）
+         */
+        public long getInvocations() {
+            return invocations;
+        }
+
+        public long getItemCount() {
+            return itemCount;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * 分配量估算（字节），不可用时为 -1
+         */
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+    }
+
+    /**
+     * 一个阶段的累加器
+     */
+    private static final class Counters {
+        final String name;
+        final LongAdder invocations = new LongAdder();
+        final LongAdder itemCount = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final LongAdder allocatedBytes = new LongAdder();
+        volatile boolean allocationUnavailable;
+
+        Counters(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * 一个正在进行的阶段，由 {@link #start(String)} 创建，结束时调用 end
+     */
+    public final class Timer {
+        private final String name;
+        private final DexParseEvent event;
+        private final long startNanos;
+        private final long startAllocated;
+
+        private Timer(String name) {
+            this.name = name;
+            this.event = new DexParseEvent();
+            this.event.begin();
+            this.startAllocated = threadAllocatedBytes();
+            this.startNanos = System.nanoTime();
+        }
+
+        /**
+         * 结束计时并记录
+         *
+         * @param itemCount 处理的数据项个数
+         * @param bytes     访问的文件字节数
+         */
+        public void end(long itemCount, long bytes) {
+            long nanos = System.nanoTime() - startNanos;
+            long allocated = startAllocated < 0 ? -1 : threadAllocatedBytes() - startAllocated;
+            event.end();
+            if (event.shouldCommit()) {
+                event.section = name;
+                event.itemCount = itemCount;
+                event.bytes = bytes;
+                event.allocatedBytes = allocated;
+                event.commit();
+            }
+            record(name, itemCount, bytes, nanos, allocated);
+        }
+    }
+
+    /**
+     * 开始一个阶段
+     */
+    public Timer start(String name) {
+        return new Timer(name);
+    }
+
+    /**
+     * 按需解码的阶段是否需要计时：构造时要求总是记录，或者 JFR 正在录制 DexParseEvent
+     */
+    public boolean isOnDemandEnabled() {
+        return collectOnDemand || PARSE_EVENT.isEnabled();
+    }
+
+    /**
+     * 累加一次阶段记录
+     */
+    public void record(String name, long itemCount, long bytes, long nanos, long allocatedBytes) {
+        Counters counters = phases.get(name);
+        if (counters == null) {
+            synchronized (this) {
+                counters = phases.get(name);
+                if (counters == null) {
+                    counters = new Counters(name);
+                    order.add(counters);
+                    phases.put(name, counters);
+                }
+            }
+        }
+        counters.invocations.increment();
+        counters.itemCount.add(itemCount);
+        counters.bytes.add(bytes);
+        counters.nanos.add(nanos);
+        if (allocatedBytes < 0) {
+            counters.allocationUnavailable = true;
+        } else {
+            counters.allocatedBytes.add(allocatedBytes);
+        }
+    }
+
+    /**
+     * 各阶段统计值的快照，按第一次记录的顺序排列
+     */
+    public List<Phase> getPhases() {
+        List<Phase> list = new ArrayList<>(order.size());
+        for (Counters counters : order) {
+            list.add(new Phase(counters));
+        }
+        return list;
+    }
+
+    /**
+     * 指定阶段统计值的快照，没有记录时返回 null
+     */
+    public Phase getPhase(String name) {
+        Counters counters = phases.get(name);
+        return counters == null ? null : new Phase(counters);
+    }
+
+    /**
+     * 所有阶段耗时之和。并行解析时各阶段重叠，总和会大于实际的墙钟时间。
+     */
+    public long getTotalNanos() {
+        long total = 0;
+        for (Counters counters : order) {
+            total += counters.nanos.sum();
+        }
+        return total;
+    }
+
+    /**
+     * 输出各阶段的统计表
+     */
+    public void writeTo(DumpSink sink) {
+        for (Phase phase : getPhases()) {
+            sink.append(phase.name).append(": items=").append(phase.itemCount)
+                    .append(", bytes=").append(phase.bytes)
+                    .append(", time=").append(phase.nanos / 1000).append("us")
+                    .append(", alloc=").append(phase.allocatedBytes);
+            if (phase.invocations > 1) {
+                sink.append(", calls=").append(phase.invocations);
+            }
+            sink.newLine();
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringWriter out = new StringWriter();
+        TextDumpSink sink = new TextDumpSink(out);
+        writeTo(sink);
+        sink.close();
+        return out.toString();
+    }
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final boolean ALLOCATION_SUPPORTED = isAllocationSupported();
+
+    private static boolean isAllocationSupported() {
+        try {
+            return THREADS instanceof com.sun.management.ThreadMXBean
+                    && ((com.sun.management.ThreadMXBean) THREADS).isThreadAllocatedMemorySupported()
+                    && ((com.sun.management.ThreadMXBean) THREADS).isThreadAllocatedMemoryEnabled();
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * 当前线程累计分配的字节数，不支持时返回 -1
+     */
+    static long threadAllocatedBytes() {
+        if (!ALLOCATION_SUPPORTED) {
+            return -1;
+        }
+        return ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,104 @@
+package main.output;
+
+/**
+ * AbstractCharSink 把所有 append 写入一个 char[] 缓冲区，缓冲区满或 flush 时
+ * 才调用 writeChars 一次性写出，并直接在缓冲区中格式化数字。
+ */
+public abstract class AbstractCharSink implements DumpSink {
+    public static final int DEFAULT_BUFFER_CHARS = 64 * 1024;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final char[] buf;
+    private int count;
+
+    protected AbstractCharSink(int bufferChars) {
+        this.buf = new char[Math.max(bufferChars, 64)];
+    }
+
+    /**
+     * 写出缓冲区中的字符
+     */
+    protected abstract void writeChars(char[] chars, int length);
+
+    @Override
+    public DumpSink append(CharSequence text) {
+        if (text == null) {
+            text = "null";
+        }
+        int len = text.length();
+        int start = 0;
+        while (start < len) {
+            if (count == buf.length) {
+                flushBuffer();
+            }
+            int n = Math.min(len - start, buf.length - count);
+            if (text instanceof String) {
+                ((String) text).getChars(start, start + n, buf, count);
+            } else {
+                for (int i = 0; i < n; i++) {
+                    buf[count + i] = text.charAt(start + i);
+                }
+            }
+            count += n;
+            start += n;
+        }
+        return this;
+    }
+
+    @Override
+    public DumpSink append(char c) {
+        if (count == buf.length) {
+            flushBuffer();
+        }
+        buf[count++] = c;
+        return this;
+    }
+
+    @Override
+    public DumpSink append(long value) {
+        if (value == Long.MIN_VALUE) {
+            return append("-9223372036854775808");
+        }
+        if (buf.length - count < 20) {
+            flushBuffer();
+        }
+        if (value < 0) {
+            buf[count++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        int pos = count + digits;
+        do {
+            buf[--pos] = (char) ('0' + (value % 10));
+            value /= 10;
+        } while (value != 0);
+        count += digits;
+        return this;
+    }
+
+    @Override
+    public DumpSink appendHex(int value) {
+        if (buf.length - count < 8) {
+            flushBuffer();
+        }
+        int digits = value == 0 ? 1 : (32 - Integer.numberOfLeadingZeros(value) + 3) / 4;
+        for (int i = digits - 1; i >= 0; i--) {
+            buf[count++] = HEX_DIGITS[(value >>> (i * 4)) & 0xF];
+        }
+        return this;
+    }
+
+    /**
+     * 把缓冲区中的字符交给 writeChars，但不刷新底层输出
+     */
+    protected void flushBuffer() {
+        if (count > 0) {
+            writeChars(buf, count);
+            count = 0;
+        }
+    }
+}
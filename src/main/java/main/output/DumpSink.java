@@ -0,0 +1,45 @@
+package main.output;
+
+import java.io.Closeable;
+import java.io.Flushable;
+
+/**
+ * DumpSink 是 dump 输出的目标。渲染代码只负责把文本片段依次 append 到 sink 中，
+ * 缓冲、编码和写出方式由具体实现决定：
+ * - {@link TextDumpSink}：带大缓冲区的 Writer / OutputStream 输出；
+ * - {@link FileChannelDumpSink}：直接编码写入 FileChannel；
+ * - {@link NullDumpSink}：丢弃所有输出，用于基准测试。
+ *
+ * 数字通过 append(long) / appendHex(int) 写入，避免先拼接成临时字符串。
+ * 写出失败时抛出 UncheckedIOException。实现类不要求线程安全。
+ */
+public interface DumpSink extends Closeable, Flushable {
+    String LINE_SEPARATOR = System.lineSeparator();
+
+    DumpSink append(CharSequence text);
+
+    DumpSink append(char c);
+
+    /**
+     * 以十进制写入一个整数
+     */
+    DumpSink append(long value);
+
+    /**
+     * 以小写十六进制写入一个 32 位整数（按无符号处理，与 Integer.toHexString 一致）
+     */
+    DumpSink appendHex(int value);
+
+    /**
+     * 写入平台的行分隔符（System.lineSeparator()），与原来的 System.out.println 输出一致
+     */
+    default DumpSink newLine() {
+        return append(LINE_SEPARATOR);
+    }
+
+    @Override
+    void flush();
+
+    @Override
+    void close();
+}
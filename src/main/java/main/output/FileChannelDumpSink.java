@@ -0,0 +1,90 @@
+package main.output;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * FileChannelDumpSink 把文本按 UTF-8 直接编码到一个 direct ByteBuffer 中，
+ * 再整块写入 FileChannel，中间不经过 Writer 和 OutputStream。
+ */
+public class FileChannelDumpSink extends AbstractCharSink {
+    private static final int DEFAULT_BUFFER_BYTES = 256 * 1024;
+
+    private final FileChannel channel;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final ByteBuffer bytes = ByteBuffer.allocateDirect(DEFAULT_BUFFER_BYTES);
+
+    public FileChannelDumpSink(FileChannel channel) {
+        super(DEFAULT_BUFFER_CHARS);
+        this.channel = channel;
+    }
+
+    /**
+     * 创建（或截断）文件并写入
+     */
+    public static FileChannelDumpSink open(Path path) throws IOException {
+        return new FileChannelDumpSink(FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING));
+    }
+
+    @Override
+    protected void writeChars(char[] chars, int length) {
+        CharBuffer in = CharBuffer.wrap(chars, 0, length);
+        while (true) {
+            // 缓冲区中留下的不完整代理对由 encoder 自己保存，下次调用时继续编码
+            CoderResult result = encoder.encode(in, bytes, false);
+            if (result.isOverflow()) {
+                drain();
+            } else {
+                break;
+            }
+        }
+    }
+
+    private void drain() {
+        bytes.flip();
+        try {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        bytes.clear();
+    }
+
+    @Override
+    public void flush() {
+        flushBuffer();
+        drain();
+    }
+
+    @Override
+    public void close() {
+        flushBuffer();
+        CharBuffer empty = CharBuffer.allocate(0);
+        while (encoder.encode(empty, bytes, true).isOverflow()) {
+            drain();
+        }
+        while (encoder.flush(bytes).isOverflow()) {
+            drain();
+        }
+        drain();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
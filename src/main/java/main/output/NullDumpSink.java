@@ -0,0 +1,51 @@
+package main.output;
+
+/**
+ * NullDumpSink 丢弃所有输出，只统计写入的字符数，用于测量渲染本身的开销。
+ */
+public class NullDumpSink implements DumpSink {
+    private long charCount;
+
+    @Override
+    public DumpSink append(CharSequence text) {
+        charCount += text == null ? 4 : text.length();
+        return this;
+    }
+
+    @Override
+    public DumpSink append(char c) {
+        charCount++;
+        return this;
+    }
+
+    @Override
+    public DumpSink append(long value) {
+        int digits = value < 0 ? 2 : 1;
+        for (long v = value; v >= 10 || v <= -10; v /= 10) {
+            digits++;
+        }
+        charCount += digits;
+        return this;
+    }
+
+    @Override
+    public DumpSink appendHex(int value) {
+        charCount += value == 0 ? 1 : (32 - Integer.numberOfLeadingZeros(value) + 3) / 4;
+        return this;
+    }
+
+    /**
+     * 获取累计写入的字符数
+     */
+    public long getCharCount() {
+        return charCount;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,78 @@
+package main.output;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+/**
+ * TextDumpSink 通过大缓冲区把文本写入 Writer。
+ * 与逐行 System.out.println 相比，只有缓冲区满或 flush 时才会访问底层流。
+ */
+public class TextDumpSink extends AbstractCharSink {
+    private final Writer writer;
+    private final boolean closeWriter;
+
+    public TextDumpSink(Writer writer) {
+        this(writer, DEFAULT_BUFFER_CHARS, true);
+    }
+
+    /**
+     * @param writer      输出目标
+     * @param bufferChars 缓冲区大小（字符数）
+     * @param closeWriter close 时是否关闭 writer（标准输出等共享流应传 false）
+     */
+    public TextDumpSink(Writer writer, int bufferChars, boolean closeWriter) {
+        super(bufferChars);
+        this.writer = writer;
+        this.closeWriter = closeWriter;
+    }
+
+    /**
+     * 以平台默认编码写入 OutputStream
+     */
+    public TextDumpSink(OutputStream out) {
+        this(new OutputStreamWriter(out, Charset.defaultCharset()));
+    }
+
+    /**
+     * 写到 System.out 的 sink，close 时只刷新不关闭标准输出
+     */
+    public static TextDumpSink stdout() {
+        return new TextDumpSink(new OutputStreamWriter(System.out, Charset.defaultCharset()),
+                DEFAULT_BUFFER_CHARS, false);
+    }
+
+    @Override
+    protected void writeChars(char[] chars, int length) {
+        try {
+            writer.write(chars, 0, length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void flush() {
+        flushBuffer();
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+        if (closeWriter) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
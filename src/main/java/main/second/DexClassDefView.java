@@ -0,0 +1,104 @@
+package main.second;
+
+import java.nio.ByteBuffer;
+
+/**
+ * DexClassDefView 是 class_defs 表上的可复用游标（flyweight）。
+ *
+ * 它不复制类定义项的数据，而是记住当前项在文件中的偏移，
+ * 每次调用 getter 时用绝对 getInt 读取对应字段。通过 moveTo 切换到其他类定义项，
+ * 因此遍历整个 class_defs 表只需要一个 DexClassDefView 对象。
+ *
+ * 字段布局见 {@link DexClassDef}。游标本身有可变状态，不要在线程之间共享同一个实例。
+ */
+public class DexClassDefView {
+    public static final int ITEM_SIZE = 32; // 每个类定义项占 32 字节
+
+    private final ByteBuffer buffer;  // 小端序的 DEX 数据
+    private final int classDefsOff;   // class_defs 起始偏移
+    private final int classDefsSize;  // 类定义数量
+
+    private int index = -1;
+    private int itemOff;
+
+    public DexClassDefView(ByteBuffer buffer, int classDefsOff, int classDefsSize) {
+        this.buffer = buffer;
+        this.classDefsOff = classDefsOff;
+        this.classDefsSize = classDefsSize;
+    }
+
+    /**
+     * 将游标移动到指定类定义项
+     *
+     * @param index 类定义索引
+     * @return this，便于链式调用
+     * @throws IndexOutOfBoundsException 如果索引非法
+     */
+    public DexClassDefView moveTo(int index) {
+        if (index < 0 || index >= classDefsSize) {
+            throw new IndexOutOfBoundsException("class_def index " + index + " out of range [0, " + classDefsSize + ")");
+        }
+        this.index = index;
+        this.itemOff = classDefsOff + index * ITEM_SIZE;
+        return this;
+    }
+
+    /**
+     * 当前所在的类定义索引，未定位时为 -1
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * 当前类定义项在文件中的偏移
+     */
+    public int getItemOffset() {
+        return itemOff;
+    }
+
+    public int getClassIdx() {
+        return buffer.getInt(itemOff);
+    }
+
+    public int getAccessFlags() {
+        return buffer.getInt(itemOff + 4);
+    }
+
+    public int getSuperclassIdx() {
+        return buffer.getInt(itemOff + 8);
+    }
+
+    public int getInterfacesOff() {
+        return buffer.getInt(itemOff + 12);
+    }
+
+    public int getSourceFileIdx() {
+        return buffer.getInt(itemOff + 16);
+    }
+
+    public int getAnnotationsOff() {
+        return buffer.getInt(itemOff + 20);
+    }
+
+    public int getClassDataOff() {
+        return buffer.getInt(itemOff + 24);
+    }
+
+    public int getStaticValuesOff() {
+        return buffer.getInt(itemOff + 28);
+    }
+
+    /**
+     * 把当前项复制成一个独立的 DexClassDef 对象
+     */
+    public DexClassDef toClassDef() {
+        return new DexClassDef(getClassIdx(), getAccessFlags(), getSuperclassIdx(), getInterfacesOff(),
+                getSourceFileIdx(), getAnnotationsOff(), getClassDataOff(), getStaticValuesOff());
+    }
+
+    @Override
+    public String toString() {
+        return index < 0 ? "DexClassDefView{unpositioned}" : toClassDef().toString();
+    }
+}
@@ -0,0 +1,115 @@
+package main.second;
+
+import java.nio.ByteBuffer;
+
+/**
+ * DexCodeItemView 是 code_item 上的可复用游标（flyweight）。
+ *
+ * code_item 的布局：
+ * - registers_size (ushort)：方法使用的寄存器数
+ * - ins_size (ushort)：参数占用的寄存器数（含 this）
+ * - outs_size (ushort)：调用其他方法时传参所需的寄存器数
+ * - tries_size (ushort)：try_item 个数
+ * - debug_info_off (uint)：调试信息偏移，没有时为 0
+ * - insns_size (uint)：指令数组长度（16 位代码单元数）
+ * - insns (ushort[insns_size])：指令数组
+ * - 若 tries_size 不为 0 且 insns_size 为奇数，有 2 字节填充，之后为 tries 和 handlers
+ *
+ * moveTo 只读取 16 字节的头部并检查指令数组是否位于文件内，
+ * 指令通过 {@link DexInstructionCursor#reset(DexCodeItemView)} 遍历。游标不要在线程之间共享。
+ */
+public class DexCodeItemView {
+    public static final int HEADER_SIZE = 16;
+
+    private final ByteBuffer buffer;  // 小端序的 DEX 数据
+
+    private int codeOff;
+    private int registersSize;
+    private int insSize;
+    private int outsSize;
+    private int triesSize;
+    private int debugInfoOff;
+    private int insnsSize;
+
+    public DexCodeItemView(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * 将游标移动到指定偏移处的 code_item
+     *
+     * @param codeOff code_item 偏移（EncodedMethod.getCodeOff()），不能为 0
+     * @return this，便于链式调用
+     * @throws RuntimeException 如果 code_item 不完整
+     */
+    public DexCodeItemView moveTo(int codeOff) {
+        if (codeOff <= 0 || (long) codeOff + HEADER_SIZE > buffer.limit()) {
+            throw new RuntimeException("Invalid code_item offset " + codeOff);
+        }
+        int insns = buffer.getInt(codeOff + 12);
+        if (insns < 0 || (long) codeOff + HEADER_SIZE + 2L * insns > buffer.limit()) {
+            throw new RuntimeException("Invalid code_item at offset " + codeOff + ": insns_size " + insns
+                    + " exceeds file size");
+        }
+        this.codeOff = codeOff;
+        this.registersSize = buffer.getShort(codeOff) & 0xFFFF;
+        this.insSize = buffer.getShort(codeOff + 2) & 0xFFFF;
+        this.outsSize = buffer.getShort(codeOff + 4) & 0xFFFF;
+        this.triesSize = buffer.getShort(codeOff + 6) & 0xFFFF;
+        this.debugInfoOff = buffer.getInt(codeOff + 8);
+        this.insnsSize = insns;
+        return this;
+    }
+
+    ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    public int getCodeOff() {
+        return codeOff;
+    }
+
+    public int getRegistersSize() {
+        return registersSize;
+    }
+
+    public int getInsSize() {
+        return insSize;
+    }
+
+    public int getOutsSize() {
+        return outsSize;
+    }
+
+    public int getTriesSize() {
+        return triesSize;
+    }
+
+    public int getDebugInfoOff() {
+        return debugInfoOff;
+    }
+
+    /**
+     * 指令数组长度（16 位代码单元数）
+     */
+    public int getInsnsSize() {
+        return insnsSize;
+    }
+
+    /**
+     * 指令数组在文件中的偏移
+     */
+    public int getInsnsOff() {
+        return codeOff + HEADER_SIZE;
+    }
+
+    /**
+     * try_item 数组在文件中的偏移（4 字节对齐），没有 try 时返回 0
+     */
+    public int getTriesOff() {
+        if (triesSize == 0) {
+            return 0;
+        }
+        return (getInsnsOff() + insnsSize * 2 + 3) & ~3;
+    }
+}
@@ -1,42 +1,38 @@
 package main.second;
 
-
-
+/**
+ * DexFieldId 表示 DEX 文件中的一个字段 ID 项。
+ *
+ * 每个字段 ID 项占用 8 字节：
+ * - class_idx (2 字节)：指向 DexTypeIds 表中，表示字段所属的类
+ * - type_idx (2 字节)：指向 DexTypeIds 表中，表示字段的类型
+ * - name_idx (4 字节)：指向 DexStringIds 表中，表示字段名称的索引
+ *
+ * 对象不可变，是 DexFieldIds 中一行的副本。
+ */
 public class DexFieldId {
-    private Integer classId;  /* index into typeIds list for defining class */
-    private Integer typeId; /* index into typeIds for field type */
-    private Integer nameId;  /* index into stringIds for field name */
+    private final int classId;  /* index into typeIds list for defining class */
+    private final int typeId; /* index into typeIds for field type */
+    private final int nameId;  /* index into stringIds for field name */
 
-    public DexFieldId(Integer classId, Integer typeId, Integer nameId) {
+    public DexFieldId(int classId, int typeId, int nameId) {
         this.classId = classId;
         this.typeId = typeId;
         this.nameId = nameId;
     }
 
-    public Integer getClassId() {
+    public int getClassId() {
         return classId;
     }
 
-    public void setClassId(Integer classId) {
-        this.classId = classId;
-    }
-
-    public Integer getTypeId() {
+    public int getTypeId() {
         return typeId;
     }
 
-    public void setTypeId(Integer typeId) {
-        this.typeId = typeId;
-    }
-
-    public Integer getNameId() {
+    public int getNameId() {
         return nameId;
     }
 
-    public void setNameId(Integer nameId) {
-        this.nameId = nameId;
-    }
-
     @Override
     public String toString() {
         return "DexFieldId{" +
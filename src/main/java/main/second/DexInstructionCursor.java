@@ -0,0 +1,460 @@
+package main.second;
+
+import main.DexOpcodes;
+
+import java.nio.ByteBuffer;
+
+/**
+ * DexInstructionCursor 在 code_item 的指令数组上逐条遍历 Dalvik 指令。
+ *
+ * 指令直接从映射的 buffer 中解码：每次 next() 只更新游标内的几个 int 字段，
+ * 寄存器列表存放在游标自带的数组中，因此遍历任意多个方法都不分配对象。
+ * 同一个游标可以通过 reset 反复用于不同的 code_item，但不要在线程之间共享。
+ *
+ * 用法：
+ * <pre>
+ * DexCodeItemView code = dexFile.newCodeItemView();
+ * DexInstructionCursor insn = new DexInstructionCursor();
+ * insn.reset(code.moveTo(codeOff));
+ * while (insn.next()) {
+ *     if (insn.getIndexType() == DexOpcodes.IndexType.METHOD) { ... insn.getIndex() ... }
+ * }
+ * </pre>
+ *
+ * 对于 payload 伪指令（packed-switch / sparse-switch / fill-array-data 的数据表），
+ * getOpcode() 返回 DexOpcodes.PACKED_SWITCH_PAYLOAD 等 16 位标识，数据通过 getPayload* 系列方法读取。
+ */
+public class DexInstructionCursor {
+    private static final int MAX_REGISTERS = 5;
+
+    private ByteBuffer buffer;
+    private int insnsOff;       // 指令数组的文件偏移
+    private int insnsSize;      // 指令数组长度（代码单元）
+    private int next;           // 下一条指令的地址（代码单元）
+
+    private int address = -1;   // 当前指令的地址（代码单元）
+    private int opcode;
+    private DexOpcodes.Format format;
+    private int size;           // 当前指令占用的代码单元数
+    private final int[] registers = new int[MAX_REGISTERS];
+    private int registerCount;
+    private int rangeStart = -1; // /range 指令的第一个寄存器，非 range 指令为 -1
+    private int index;
+    private int secondIndex;    // invoke-polymorphic 的 proto 索引
+    private long literal;
+    private int branchOffset;
+
+    /**
+     * 定位到 code_item 的指令数组开头
+     */
+    public DexInstructionCursor reset(DexCodeItemView codeItem) {
+        return reset(codeItem.getBuffer(), codeItem.getInsnsOff(), codeItem.getInsnsSize());
+    }
+
+    /**
+     * 定位到任意指令数组开头
+     *
+     * @param buffer    小端序的 DEX 数据
+     * @param insnsOff  指令数组的文件偏移
+     * @param insnsSize 指令数组长度（16 位代码单元数）
+     */
+    public DexInstructionCursor reset(ByteBuffer buffer, int insnsOff, int insnsSize) {
+        this.buffer = buffer;
+        this.insnsOff = insnsOff;
+        this.insnsSize = insnsSize;
+        this.next = 0;
+        this.address = -1;
+        return this;
+    }
+
+    /**
+     * 解码下一条指令
+     *
+     * @return 若已到达指令数组末尾则返回 false
+     * @throws RuntimeException 如果指令超出指令数组
+     */
+    public boolean next() {
+        if (next >= insnsSize) {
+            return false;
+        }
+        address = next;
+        int u0 = unit(0);
+        opcode = u0 & 0xFF;
+        registerCount = 0;
+        rangeStart = -1;
+        index = 0;
+        secondIndex = 0;
+        literal = 0;
+        branchOffset = 0;
+
+        if (opcode == 0 && u0 != 0) {
+            decodePayload(u0);
+        } else {
+            format = DexOpcodes.getFormat(opcode);
+            size = format.getSize();
+            checkSize();
+            decodeOperands(u0);
+        }
+        next = address + size;
+        return true;
+    }
+
+    private void decodePayload(int ident) {
+        switch (ident) {
+            case DexOpcodes.PACKED_SWITCH_PAYLOAD:
+                format = DexOpcodes.Format.PACKED_SWITCH_PAYLOAD;
+                size = 2;
+                checkSize();
+                size = 4 + unit(1) * 2;
+                break;
+            case DexOpcodes.SPARSE_SWITCH_PAYLOAD:
+                format = DexOpcodes.Format.SPARSE_SWITCH_PAYLOAD;
+                size = 2;
+                checkSize();
+                size = 2 + unit(1) * 4;
+                break;
+            case DexOpcodes.FILL_ARRAY_DATA_PAYLOAD:
+                format = DexOpcodes.Format.FILL_ARRAY_DATA_PAYLOAD;
+                size = 4;
+                checkSize();
+                long bytes = (long) unit(1) * (unit32(2) & 0xFFFFFFFFL);
+                if (bytes > 2L * insnsSize) {
+                    throw truncated();
+                }
+                size = 4 + (int) ((bytes + 1) / 2);
+                break;
+            default:
+                throw new RuntimeException("Invalid payload identifier 0x" + Integer.toHexString(ident)
+                        + " at address " + address);
+        }
+        opcode = ident;
+        checkSize();
+    }
+
+    private void decodeOperands(int u0) {
+        int aa = u0 >>> 8;
+        switch (format) {
+            case F10x:
+                break;
+            case F12x:
+                reg(aa & 0xF);
+                reg(aa >>> 4);
+                break;
+            case F11n:
+                reg(aa & 0xF);
+                literal = ((byte) aa) >> 4;
+                break;
+            case F11x:
+                reg(aa);
+                break;
+            case F10t:
+                branchOffset = (byte) aa;
+                break;
+            case F20t:
+                branchOffset = (short) unit(1);
+                break;
+            case F22x:
+                reg(aa);
+                reg(unit(1));
+                break;
+            case F21t:
+                reg(aa);
+                branchOffset = (short) unit(1);
+                break;
+            case F21s:
+                reg(aa);
+                literal = (short) unit(1);
+                break;
+            case F21h:
+                reg(aa);
+                // const/high16 为 32 位值的高 16 位，const-wide/high16 为 64 位值的高 16 位
+                literal = opcode == 0x15 ? (long) (short) unit(1) << 16 : (long) (short) unit(1) << 48;
+                break;
+            case F21c:
+                reg(aa);
+                index = unit(1);
+                break;
+            case F23x:
+                reg(aa);
+                reg(unit(1) & 0xFF);
+                reg(unit(1) >>> 8);
+                break;
+            case F22b:
+                reg(aa);
+                reg(unit(1) & 0xFF);
+                literal = (byte) (unit(1) >>> 8);
+                break;
+            case F22t:
+                reg(aa & 0xF);
+                reg(aa >>> 4);
+                branchOffset = (short) unit(1);
+                break;
+            case F22s:
+                reg(aa & 0xF);
+                reg(aa >>> 4);
+                literal = (short) unit(1);
+                break;
+            case F22c:
+                reg(aa & 0xF);
+                reg(aa >>> 4);
+                index = unit(1);
+                break;
+            case F30t:
+                branchOffset = unit32(1);
+                break;
+            case F32x:
+                reg(unit(1));
+                reg(unit(2));
+                break;
+            case F31i:
+                reg(aa);
+                literal = unit32(1);
+                break;
+            case F31t:
+                reg(aa);
+                branchOffset = unit32(1);
+                break;
+            case F31c:
+                reg(aa);
+                index = unit32(1);
+                break;
+            case F35c:
+            case F45cc:
+                decodeRegisterList(aa);
+                index = unit(1);
+                if (format == DexOpcodes.Format.F45cc) {
+                    secondIndex = unit(3);
+                }
+                break;
+            case F3rc:
+            case F4rcc:
+                registerCount = aa;
+                rangeStart = unit(2);
+                index = unit(1);
+                if (format == DexOpcodes.Format.F4rcc) {
+                    secondIndex = unit(3);
+                }
+                break;
+            case F51l:
+                reg(aa);
+                literal = (unit32(1) & 0xFFFFFFFFL) | ((long) unit32(3) << 32);
+                break;
+            default:
+                throw new IllegalStateException("Unexpected format " + format);
+        }
+    }
+
+    /**
+     * 35c / 45cc：A 为参数个数，寄存器依次为 C、D、E、F、G
+     */
+    private void decodeRegisterList(int aa) {
+        int count = aa >>> 4;
+        if (count > MAX_REGISTERS) {
+            throw new RuntimeException("Invalid register count " + count + " at address " + address);
+        }
+        int cdef = unit(2);
+        for (int i = 0; i < count && i < 4; i++) {
+            registers[i] = (cdef >>> (4 * i)) & 0xF;
+        }
+        if (count == 5) {
+            registers[4] = aa & 0xF;
+        }
+        registerCount = count;
+    }
+
+    private void reg(int r) {
+        registers[registerCount++] = r;
+    }
+
+    private int unit(int i) {
+        return buffer.getShort(insnsOff + (address + i) * 2) & 0xFFFF;
+    }
+
+    private int unit32(int i) {
+        return unit(i) | (unit(i + 1) << 16);
+    }
+
+    private void checkSize() {
+        if (address + size > insnsSize) {
+            throw truncated();
+        }
+    }
+
+    private RuntimeException truncated() {
+        return new RuntimeException("Truncated instruction " + DexOpcodes.getName(opcode & 0xFF) + " at address "
+                + address + " (insns_size " + insnsSize + ")");
+    }
+
+    /**
+     * 当前指令的地址（从指令数组开头算起的代码单元数），跳转偏移以此为基准
+     */
+    public int getAddress() {
+        return address;
+    }
+
+    /**
+     * 操作码（0x00 ~ 0xff）；payload 伪指令返回 DexOpcodes.PACKED_SWITCH_PAYLOAD 等标识
+     */
+    public int getOpcode() {
+        return opcode;
+    }
+
+    public String getName() {
+        switch (opcode) {
+            case DexOpcodes.PACKED_SWITCH_PAYLOAD:
+                return "packed-switch-payload";
+            case DexOpcodes.SPARSE_SWITCH_PAYLOAD:
+                return "sparse-switch-payload";
+            case DexOpcodes.FILL_ARRAY_DATA_PAYLOAD:
+                return "fill-array-data-payload";
+            default:
+                return DexOpcodes.getName(opcode);
+        }
+    }
+
+    public DexOpcodes.Format getFormat() {
+        return format;
+    }
+
+    /**
+     * 当前指令占用的代码单元数
+     */
+    public int getSize() {
+        return size;
+    }
+
+    public boolean isPayload() {
+        return format.isPayload();
+    }
+
+    /**
+     * 寄存器操作数个数
+     */
+    public int getRegisterCount() {
+        return registerCount;
+    }
+
+    /**
+     * 第 i 个寄存器操作数（按指令格式中 A、B、C... 的顺序；35c 为 C、D、E、F、G；/range 为连续的寄存器）
+     */
+    public int getRegister(int i) {
+        if (i < 0 || i >= registerCount) {
+            throw new IndexOutOfBoundsException("register " + i + " of " + registerCount);
+        }
+        return rangeStart >= 0 ? rangeStart + i : registers[i];
+    }
+
+    /**
+     * 常量池索引引用的表
+     */
+    public DexOpcodes.IndexType getIndexType() {
+        return isPayload() ? DexOpcodes.IndexType.NONE : DexOpcodes.getIndexType(opcode);
+    }
+
+    /**
+     * 常量池索引（字符串、类型、字段、方法等，见 getIndexType()）
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * 第二个常量池索引：invoke-polymorphic 的 proto 索引
+     */
+    public int getSecondIndex() {
+        return secondIndex;
+    }
+
+    /**
+     * 字面量（const 系列和 /lit 系列），已按格式符号扩展
+     */
+    public long getLiteral() {
+        return literal;
+    }
+
+    /**
+     * 跳转偏移（代码单元，相对当前指令地址）。goto、if-* 为跳转目标，
+     * packed-switch / sparse-switch / fill-array-data 为 payload 的位置
+     */
+    public int getBranchOffset() {
+        return branchOffset;
+    }
+
+    /**
+     * payload 中的元素个数：switch 的分支数或数组元素个数
+     */
+    public int getPayloadSize() {
+        if (format == DexOpcodes.Format.FILL_ARRAY_DATA_PAYLOAD) {
+            return unit32(2);
+        }
+        return unit(1);
+    }
+
+    /**
+     * switch payload 中第 i 个分支的键
+     */
+    public int getSwitchKey(int i) {
+        checkPayloadIndex(i);
+        if (format == DexOpcodes.Format.PACKED_SWITCH_PAYLOAD) {
+            return unit32(2) + i;
+        }
+        if (format == DexOpcodes.Format.SPARSE_SWITCH_PAYLOAD) {
+            return unit32(2 + i * 2);
+        }
+        throw new IllegalStateException("Not a switch payload: " + getName());
+    }
+
+    /**
+     * switch payload 中第 i 个分支的跳转偏移（相对 switch 指令的地址，而不是 payload 的地址）
+     */
+    public int getSwitchTarget(int i) {
+        checkPayloadIndex(i);
+        if (format == DexOpcodes.Format.PACKED_SWITCH_PAYLOAD) {
+            return unit32(4 + i * 2);
+        }
+        if (format == DexOpcodes.Format.SPARSE_SWITCH_PAYLOAD) {
+            return unit32(2 + getPayloadSize() * 2 + i * 2);
+        }
+        throw new IllegalStateException("Not a switch payload: " + getName());
+    }
+
+    /**
+     * fill-array-data payload 的元素宽度（字节）
+     */
+    public int getArrayElementWidth() {
+        if (format != DexOpcodes.Format.FILL_ARRAY_DATA_PAYLOAD) {
+            throw new IllegalStateException("Not an array payload: " + getName());
+        }
+        return unit(1);
+    }
+
+    /**
+     * fill-array-data payload 的第 i 个元素，宽度为 1、2、4 字节时按有符号数扩展
+     */
+    public long getArrayElement(int i) {
+        int width = getArrayElementWidth();
+        checkPayloadIndex(i);
+        int off = insnsOff + (address + 4) * 2 + i * width;
+        switch (width) {
+            case 1:
+                return buffer.get(off);
+            case 2:
+                return buffer.getShort(off);
+            case 4:
+                return buffer.getInt(off);
+            case 8:
+                return buffer.getLong(off);
+            default:
+                throw new RuntimeException("Invalid array element width " + width + " at address " + address);
+        }
+    }
+
+    private void checkPayloadIndex(int i) {
+        if (!isPayload()) {
+            throw new IllegalStateException("Not a payload: " + getName());
+        }
+        if (i < 0 || i >= getPayloadSize()) {
+            throw new IndexOutOfBoundsException("payload element " + i + " of " + getPayloadSize());
+        }
+    }
+}
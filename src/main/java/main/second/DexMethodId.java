@@ -7,11 +7,13 @@ package main.second;
  * - class_idx (2 字节)：指向 DexTypeIds 表中，表示该方法所属的类
  * - proto_idx (2 字节)：指向 DexProtoIds 表中，表示该方法的原型（返回值和参数列表）
  * - name_idx (4 字节)：指向 DexStringIds 表中，表示方法名称的索引
+ *
+ * 对象不可变，是 DexMethodIds 中一行的副本。
  */
 public class DexMethodId {
-    private int classIdx;
-    private int protoIdx;
-    private int nameIdx;
+    private final int classIdx;
+    private final int protoIdx;
+    private final int nameIdx;
 
     public DexMethodId(int classIdx, int protoIdx, int nameIdx) {
         this.classIdx = classIdx;
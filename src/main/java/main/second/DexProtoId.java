@@ -9,18 +9,30 @@ import java.util.List;
 
 /**
  * DexProtoId 代表 DEX 文件中的方法原型信息
+ * 对象不可变，是 DexProtoIds 中一行的副本；参数列表在创建时给出。
  */
 public class DexProtoId {
-    private int shortyIdx;       // 方法的短描述，指向 DexStringIds
-    private int returnTypeIdx;   // 返回类型，指向 DexTypeIds
-    private int parametersOff;   // 参数列表偏移量，指向 DexTypeList
+    private final int shortyIdx;       // 方法的短描述，指向 DexStringIds
+    private final int returnTypeIdx;   // 返回类型，指向 DexTypeIds
+    private final int parametersOff;   // 参数列表偏移量，指向 DexTypeList
 
-    private DexTypeList typeList = new DexTypeList(); // 解析出的参数类型列表
+    private final DexTypeList typeList; // 解析出的参数类型列表（不可变，可能与其他原型共享）
 
+    /**
+     * 创建参数列表为空的原型
+     */
     public DexProtoId(int shortyIdx, int returnTypeIdx, int parametersOff) {
+        this(shortyIdx, returnTypeIdx, parametersOff, DexTypeList.EMPTY);
+    }
+
+    /**
+     * @param parameters 已解析的参数列表，通常来自 DexTypeListCache
+     */
+    public DexProtoId(int shortyIdx, int returnTypeIdx, int parametersOff, DexTypeList parameters) {
         this.shortyIdx = shortyIdx;
         this.returnTypeIdx = returnTypeIdx;
         this.parametersOff = parametersOff;
+        this.typeList = parameters;
     }
 
     public int getShortyIdx() {
@@ -42,36 +54,34 @@ public class DexProtoId {
     }
 
     /**
-     * 从 ByteBuffer 解析 DexProtoId
+     * 从 ByteBuffer 的当前位置解析 DexProtoId，同时读取 parameters_off 处的参数列表
      */
     public static DexProtoId fromBuffer(ByteBuffer buffer) {
         int shortyIdx = buffer.getInt();
         int returnTypeIdx = buffer.getInt();
         int parametersOff = buffer.getInt();
-        return new DexProtoId(shortyIdx, returnTypeIdx, parametersOff);
+        return new DexProtoId(shortyIdx, returnTypeIdx, parametersOff, DexTypeList.read(buffer, parametersOff));
     }
 
 
     public String getMethodSignature(DexStringIds dexStringIds, DexTypeIds dexTypeIds) {
-        // 获取方法的短描述，确保解析时已经去除了 ULEB128 长度前缀
-        String shorty = dexStringIds.getStringByIndex(shortyIdx);
-        // 获取返回类型
-        String returnType = dexTypeIds.getTypeName(returnTypeIdx, dexStringIds);
-
-        // 获取参数类型索引和名称
-        List<Integer> paramTypeIndexes = getParameterTypeIndexes();
-        List<String> paramTypes = dexTypeIds.getTypeNames(
-                paramTypeIndexes.stream().mapToInt(i -> i).toArray(), dexStringIds);
-
-        // 使用 String.join 格式化参数列表
-        String paramTypesStr = String.join(", ", paramTypes);
-
-        return    returnType + "(" + paramTypesStr + ")";
+        // 返回类型，之后按顺序拼接参数类型，参数之间以 ", " 分隔
+        StringBuilder sb = new StringBuilder(dexTypeIds.getTypeName(returnTypeIdx, dexStringIds)).append('(');
+        for (int i = 0; i < typeList.size(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(dexTypeIds.getTypeName(typeList.getTypeIndex(i), dexStringIds));
+        }
+        return sb.append(')').toString();
     }
 
 
-    public void parseParameters(ByteBuffer buffer) {
-        typeList.parse(buffer, parametersOff);
+    /**
+     * 获取参数列表
+     */
+    public DexTypeList getParameters() {
+        return typeList;
     }
 
     /**
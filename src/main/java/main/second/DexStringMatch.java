@@ -0,0 +1,33 @@
+package main.second;
+
+/**
+ * DexStringMatch 表示字符串池搜索的一个命中：哪个字符串匹配了哪个模式
+ */
+public class DexStringMatch {
+    private final int stringIndex;  // string_ids 索引
+    private final int patternIndex; // 模式在 DexStringSearch 中的序号
+    private final String string;    // 命中的字符串（只有命中的字符串才会被解码）
+
+    public DexStringMatch(int stringIndex, int patternIndex, String string) {
+        this.stringIndex = stringIndex;
+        this.patternIndex = patternIndex;
+        this.string = string;
+    }
+
+    public int getStringIndex() {
+        return stringIndex;
+    }
+
+    public int getPatternIndex() {
+        return patternIndex;
+    }
+
+    public String getString() {
+        return string;
+    }
+
+    @Override
+    public String toString() {
+        return "DexStringMatch{string=" + stringIndex + ", pattern=" + patternIndex + ", value=" + string + "}";
+    }
+}
@@ -3,9 +3,10 @@ package main.second;
 /**
  * DexTypeId 代表 DEX 文件中的一个类型 ID
  * 它的作用是指向 DexStringIds 中的某个字符串，该字符串代表某个类型（类、接口、数组等）
+ * 对象不可变，是 DexTypeIds 中一项的副本。
  */
 public class DexTypeId {
-    private int descriptorIdx; // 指向 DexStringIds 表的索引
+    private final int descriptorIdx; // 指向 DexStringIds 表的索引
 
     public DexTypeId(int descriptorIdx) {
         this.descriptorIdx = descriptorIdx;
@@ -1,15 +1,26 @@
 package main.second;
 
+import main.output.DumpSink;
+
 public class EncodedField {
-    // 实际上存储的是字段索引增量和访问标志
+    // 字段索引（已累加）、文件中的索引增量和访问标志
+    private int fieldIdx;
     private int fieldIdxDelta;
     private int accessFlags;
 
-    public EncodedField(int fieldIdxDelta, int accessFlags) {
+    public EncodedField(int fieldIdx, int fieldIdxDelta, int accessFlags) {
+        this.fieldIdx = fieldIdx;
         this.fieldIdxDelta = fieldIdxDelta;
         this.accessFlags = accessFlags;
     }
 
+    /**
+     * 字段在 field_ids 中的索引
+     */
+    public int getFieldIdx() {
+        return fieldIdx;
+    }
+
     public int getFieldIdxDelta() {
         return fieldIdxDelta;
     }
@@ -18,6 +29,14 @@ public class EncodedField {
         return accessFlags;
     }
 
+    /**
+     * 输出到 sink，格式与 toString() 相同
+     */
+    public void writeTo(DumpSink sink) {
+        sink.append("EncodedField{fieldIdxDelta=").append(fieldIdxDelta)
+                .append(", accessFlags=0x").appendHex(accessFlags).append('}');
+    }
+
     @Override
     public String toString() {
         return String.format("EncodedField{fieldIdxDelta=%d, accessFlags=0x%s}",
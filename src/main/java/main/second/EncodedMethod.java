@@ -1,17 +1,28 @@
 package main.second;
 
+import main.output.DumpSink;
+
 public class EncodedMethod {
-    // 同样存储方法索引增量、访问标志和代码_off（方法实现偏移）
+    // 同样存储方法索引（已累加）、索引增量、访问标志和代码_off（方法实现偏移）
+    private int methodIdx;
     private int methodIdxDelta;
     private int accessFlags;
     private int codeOff;
 
-    public EncodedMethod(int methodIdxDelta, int accessFlags, int codeOff) {
+    public EncodedMethod(int methodIdx, int methodIdxDelta, int accessFlags, int codeOff) {
+        this.methodIdx = methodIdx;
         this.methodIdxDelta = methodIdxDelta;
         this.accessFlags = accessFlags;
         this.codeOff = codeOff;
     }
 
+    /**
+     * 方法在 method_ids 中的索引
+     */
+    public int getMethodIdx() {
+        return methodIdx;
+    }
+
     public int getMethodIdxDelta() {
         return methodIdxDelta;
     }
@@ -24,6 +35,15 @@ public class EncodedMethod {
         return codeOff;
     }
 
+    /**
+     * 输出到 sink，格式与 toString() 相同
+     */
+    public void writeTo(DumpSink sink) {
+        sink.append("EncodedMethod{methodIdxDelta=").append(methodIdxDelta)
+                .append(", accessFlags=0x").appendHex(accessFlags)
+                .append(", codeOff=0x").appendHex(codeOff).append('}');
+    }
+
     @Override
     public String toString() {
         return String.format("EncodedMethod{methodIdxDelta=%d, accessFlags=0x%s, codeOff=0x%x}",
@@ -0,0 +1,174 @@
+package main.synthetic;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * DexOutput 是小端序的顺序输出，支持按偏移回填。
+ *
+ * 有两种模式：
+ * - 内存模式：数据保存在一个可增长的 byte[] 中，通过 {@link #toByteBuffer()} 取出（不复制）；
+ * - 文件模式：数据先写入固定大小的缓冲区，缓冲区满时按偏移写入 FileChannel，
+ *   内存占用与文件大小无关。回填已经写出的位置时直接按偏移写文件。
+ *
+ * 文件模式下的 IO 错误以 UncheckedIOException 抛出。
+ */
+class DexOutput {
+    private final FileChannel channel;  // 为 null 表示内存模式
+    private byte[] data;
+    private int base;                   // data[0] 在输出中的偏移，内存模式下始终为 0
+    private int count;                  // data 中已写入的字节数
+
+    DexOutput(int initialCapacity) {
+        this(null, initialCapacity);
+    }
+
+    /**
+     * @param channel    输出文件，从偏移 0 开始写
+     * @param bufferSize 写缓冲区大小
+     */
+    DexOutput(FileChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.data = new byte[bufferSize];
+    }
+
+    int position() {
+        return base + count;
+    }
+
+    void skip(int n) {
+        while (n > 0) {
+            int step = channel == null ? n : Math.min(n, data.length);
+            ensure(step);
+            Arrays.fill(data, count, count + step, (byte) 0);
+            count += step;
+            n -= step;
+        }
+    }
+
+    void align(int alignment) {
+        skip((alignment - position() % alignment) % alignment);
+    }
+
+    void u1(int value) {
+        ensure(1);
+        data[count++] = (byte) value;
+    }
+
+    void u2(int value) {
+        ensure(2);
+        data[count++] = (byte) value;
+        data[count++] = (byte) (value >>> 8);
+    }
+
+    void u4(int value) {
+        ensure(4);
+        putU4(position(), value);
+        count += 4;
+    }
+
+    void uleb128(int value) {
+        while ((value & ~0x7F) != 0) {
+            u1((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        u1(value);
+    }
+
+    void bytes(byte[] bytes) {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, data, count, bytes.length);
+        count += bytes.length;
+    }
+
+    /**
+     * 回填 offset 处的字节，目标区域必须已经写过或跳过
+     */
+    void bytesAt(int offset, byte[] bytes) {
+        int flushed = Math.min(bytes.length, Math.max(0, base - offset)); // 已经写到文件中的部分
+        if (flushed > 0) {
+            writeAt(ByteBuffer.wrap(bytes, 0, flushed), offset);
+        }
+        if (flushed < bytes.length) {
+            System.arraycopy(bytes, flushed, data, offset + flushed - base, bytes.length - flushed);
+        }
+    }
+
+    void putU4(int offset, int value) {
+        if (offset >= base) {
+            int i = offset - base;
+            data[i] = (byte) value;
+            data[i + 1] = (byte) (value >>> 8);
+            data[i + 2] = (byte) (value >>> 16);
+            data[i + 3] = (byte) (value >>> 24);
+        } else {
+            putU4s(offset, new int[]{value});
+        }
+    }
+
+    /**
+     * 从 offset 开始连续回填一组 u4，用于一次写入整张 id 表
+     */
+    void putU4s(int offset, int[] values) {
+        ByteBuffer bytes = ByteBuffer.allocate(values.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+        bytes.asIntBuffer().put(values);
+        bytesAt(offset, bytes.array());
+    }
+
+    /**
+     * 文件模式下把缓冲区中剩余的数据写入文件
+     */
+    void flush() {
+        if (channel != null && count > 0) {
+            writeAt(ByteBuffer.wrap(data, 0, count), base);
+            base += count;
+            count = 0;
+        }
+    }
+
+    /**
+     * 内存模式下的全部数据：小端序、position 为 0、limit 为数据长度
+     *
+     * @throws IllegalStateException 如果是文件模式
+     */
+    ByteBuffer toByteBuffer() {
+        if (channel != null) {
+            throw new IllegalStateException("DexOutput writes to a file");
+        }
+        return ByteBuffer.wrap(data, 0, count).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private void ensure(int n) {
+        if (count + n <= data.length) {
+            return;
+        }
+        if (channel == null) {
+            if ((long) count + n > Integer.MAX_VALUE) {
+                throw new IllegalStateException("DEX output exceeds 2 GB");
+            }
+            data = Arrays.copyOf(data, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(count + n, data.length * 2L)));
+            return;
+        }
+        if ((long) position() + n > Integer.MAX_VALUE) {
+            throw new IllegalStateException("DEX output exceeds 2 GB");
+        }
+        flush();
+        if (n > data.length) {
+            data = new byte[n];
+        }
+    }
+
+    private void writeAt(ByteBuffer src, long offset) {
+        try {
+            while (src.hasRemaining()) {
+                offset += channel.write(src, offset);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package main.synthetic;
+
+/**
+ * DexProfile 描述 {@link SyntheticDexGenerator} 生成的 DEX 文件规模和形态。
+ *
+ * 预置的规模：
+ * - small：约 2 千个字符串、200 个类，用于快速测试；
+ * - medium：约 2 万个字符串、2 千个类；
+ * - 65k：方法数接近 65535 的上限，对应单个 DEX 的 64K 方法限制；
+ * - huge：在 65k 的基础上有 50 万个字符串（const-string/jumbo）、每个方法 1600 条指令，
+ *   文件约 400 MB，用于测试数百 MB 的最坏情况。
+ *
+ * 由于 type_ids、proto_ids、field_ids、method_ids 在指令和 id 表中以 16 位引用，
+ * 这些数量不能超过 65535。
+ */
+public class DexProfile {
+    private static final int MAX_16BIT_INDEX = 0xFFFF;
+
+    private int strings = 2000;
+    private int types = 300;
+    private int protos = 200;
+    private int fields = 1000;
+    private int methods = 1500;
+    private int classes = 200;
+    private int minStringLength = 1;
+    private int maxStringLength = 64;
+    private double nonAsciiRatio = 0.05;       // 随机字符串中每个字符为非 ASCII 的概率
+    private double classDataDensity = 0.8;     // 有 class_data 的类所占比例
+    private double interfaceDensity = 0.3;     // 实现（或继承）接口的类所占比例
+    private int instructionsPerMethod = 8;
+
+    public static DexProfile small() {
+        return new DexProfile();
+    }
+
+    public static DexProfile medium() {
+        DexProfile profile = new DexProfile();
+        profile.setStrings(20000);
+        profile.setTypes(3000);
+        profile.setProtos(2000);
+        profile.setFields(10000);
+        profile.setMethods(15000);
+        profile.setClasses(2000);
+        return profile;
+    }
+
+    public static DexProfile methods65k() {
+        DexProfile profile = new DexProfile();
+        profile.setStrings(60000);
+        profile.setTypes(9000);
+        profile.setProtos(6000);
+        profile.setFields(30000);
+        profile.setMethods(65000);
+        profile.setClasses(8000);
+        return profile;
+    }
+
+    public static DexProfile huge() {
+        DexProfile profile = methods65k();
+        profile.setStrings(500000);
+        profile.setMaxStringLength(256);
+        profile.setInstructionsPerMethod(1600);
+        return profile;
+    }
+
+    /**
+     * 按名称获取预置规模：small、medium、65k、huge
+     *
+     * @throws IllegalArgumentException 如果名称未知
+     */
+    public static DexProfile named(String name) {
+        switch (name) {
+            case "small":
+                return small();
+            case "medium":
+                return medium();
+            case "65k":
+                return methods65k();
+            case "huge":
+                return huge();
+            default:
+                throw new IllegalArgumentException("Unknown profile: " + name);
+        }
+    }
+
+    /**
+     * 检查配置是否能生成合法的 DEX 文件
+     *
+     * @throws IllegalArgumentException 如果某项配置越界
+     */
+    void validate() {
+        checkRange("types", types, 1, MAX_16BIT_INDEX);
+        checkRange("protos", protos, 1, MAX_16BIT_INDEX);
+        checkRange("fields", fields, 0, MAX_16BIT_INDEX);
+        checkRange("methods", methods, 0, MAX_16BIT_INDEX);
+        checkRange("classes", classes, 1, MAX_16BIT_INDEX);
+        checkRange("strings", strings, 0, Integer.MAX_VALUE);
+        checkRange("minStringLength", minStringLength, 0, maxStringLength);
+        checkRange("instructionsPerMethod", instructionsPerMethod, 0, 10000);
+        if (nonAsciiRatio < 0 || nonAsciiRatio > 1 || classDataDensity < 0 || classDataDensity > 1
+                || interfaceDensity < 0 || interfaceDensity > 1) {
+            throw new IllegalArgumentException("Ratios must be within [0, 1]");
+        }
+    }
+
+    private static void checkRange(String name, int value, int min, int max) {
+        if (value < min || value > max) {
+            throw new IllegalArgumentException(name + " must be within [" + min + ", " + max + "]: " + value);
+        }
+    }
+
+    public int getStrings() {
+        return strings;
+    }
+
+    public void setStrings(int strings) {
+        this.strings = strings;
+    }
+
+    public int getTypes() {
+        return types;
+    }
+
+    public void setTypes(int types) {
+        this.types = types;
+    }
+
+    public int getProtos() {
+        return protos;
+    }
+
+    public void setProtos(int protos) {
+        this.protos = protos;
+    }
+
+    public int getFields() {
+        return fields;
+    }
+
+    public void setFields(int fields) {
+        this.fields = fields;
+    }
+
+    public int getMethods() {
+        return methods;
+    }
+
+    public void setMethods(int methods) {
+        this.methods = methods;
+    }
+
+    public int getClasses() {
+        return classes;
+    }
+
+    public void setClasses(int classes) {
+        this.classes = classes;
+    }
+
+    public int getMinStringLength() {
+        return minStringLength;
+    }
+
+    public void setMinStringLength(int minStringLength) {
+        this.minStringLength = minStringLength;
+    }
+
+    public int getMaxStringLength() {
+        return maxStringLength;
+    }
+
+    public void setMaxStringLength(int maxStringLength) {
+        this.maxStringLength = maxStringLength;
+    }
+
+    public double getNonAsciiRatio() {
+        return nonAsciiRatio;
+    }
+
+    public void setNonAsciiRatio(double nonAsciiRatio) {
+        this.nonAsciiRatio = nonAsciiRatio;
+    }
+
+    public double getClassDataDensity() {
+        return classDataDensity;
+    }
+
+    public void setClassDataDensity(double classDataDensity) {
+        this.classDataDensity = classDataDensity;
+    }
+
+    public double getInterfaceDensity() {
+        return interfaceDensity;
+    }
+
+    public void setInterfaceDensity(double interfaceDensity) {
+        this.interfaceDensity = interfaceDensity;
+    }
+
+    public int getInstructionsPerMethod() {
+        return instructionsPerMethod;
+    }
+
+    public void setInstructionsPerMethod(int instructionsPerMethod) {
+        this.instructionsPerMethod = instructionsPerMethod;
+    }
+}
@@ -0,0 +1,861 @@
+package main.synthetic;
+
+import utils.Mutf8;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.Adler32;
+
+/**
+ * SyntheticDexGenerator 根据随机种子和规模配置（{@link DexProfile}）生成合法的 DEX 文件，
+ * 用于基准测试和压力测试，避免依赖真实的 APK。
+ *
+ * 相同的种子和配置总是生成逐字节相同的文件。生成的文件满足 DEX 格式的排序和对齐要求：
+ * - string_ids 按 UTF-16 内容排序，type_ids 按描述符索引排序；
+ * - proto_ids、field_ids、method_ids 按格式规定的键排序；
+ * - type_list、code_item、map_list 按 4 字节对齐；
+ * - header 中的 checksum（Adler-32）和 signature（SHA-1）按实际内容计算。
+ *
+ * 所有类都直接继承 java.lang.Object。约 1/16 的已定义类是接口，按 interfaceDensity 的比例，
+ * 接口继承排在它前面的接口、普通类实现若干接口（interfaces_off 指向的 type_list），接口继承关系无环。
+ * 有 class_data 的普通类包含 field_ids / method_ids 中属于它的全部成员，每个方法都有一个 code_item，
+ * 其中包含 const-string、const-class、sget 系列和 invoke-static 指令，最后按返回类型返回。
+ *
+ * {@link #writeTo(Path)} 边生成边写文件，内存占用与文件大小无关，可以生成数百 MB 的文件。
+ */
+public class SyntheticDexGenerator {
+    public static final byte[] DEX_MAGIC = {'d', 'e', 'x', '\n', '0', '3', '5', 0};
+
+    private static final int NO_INDEX = -1;
+    private static final int ACC_PUBLIC = 0x1;
+    private static final int ACC_STATIC = 0x8;
+    private static final int ACC_INTERFACE = 0x200;
+    private static final int ACC_ABSTRACT = 0x400;
+    private static final int ACC_CONSTRUCTOR = 0x10000;
+
+    // map_list 中的类型编码
+    private static final int TYPE_HEADER_ITEM = 0x0000;
+    private static final int TYPE_STRING_ID_ITEM = 0x0001;
+    private static final int TYPE_TYPE_ID_ITEM = 0x0002;
+    private static final int TYPE_PROTO_ID_ITEM = 0x0003;
+    private static final int TYPE_FIELD_ID_ITEM = 0x0004;
+    private static final int TYPE_METHOD_ID_ITEM = 0x0005;
+    private static final int TYPE_CLASS_DEF_ITEM = 0x0006;
+    private static final int TYPE_MAP_LIST = 0x1000;
+    private static final int TYPE_TYPE_LIST = 0x1001;
+    private static final int TYPE_CLASS_DATA_ITEM = 0x2000;
+    private static final int TYPE_CODE_ITEM = 0x2001;
+    private static final int TYPE_STRING_DATA_ITEM = 0x2002;
+
+    private static final String OBJECT = "Ljava/lang/Object;";
+    private static final String STRING = "Ljava/lang/String;";
+    private static final String[] BASIC_TYPES = {"I", "J", "V", "Z", OBJECT, STRING};
+
+    // 生成随机字符串时使用的非 ASCII 字符：两字节、三字节和代理对（补充平面字符）
+    private static final String NON_ASCII = "éßЖ中文😀\u0000";
+
+    private final long seed;
+    private final DexProfile profile;
+
+    public SyntheticDexGenerator(long seed, DexProfile profile) {
+        profile.validate();
+        this.seed = seed;
+        this.profile = profile;
+    }
+
+    /**
+     * 生成 DEX 文件并写入指定路径。各个 section 经过 1 MB 的缓冲区直接写入文件，
+     * 最后映射文件计算 signature 和 checksum，不在堆上保存整个文件。
+     */
+    public void writeTo(Path path) throws IOException {
+        Random random = new Random(seed);
+        Model model = buildModel(random);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            DexOutput out = new DexOutput(channel, 1 << 20);
+            int fileSize = layout(model, random, out);
+            out.flush();
+            sign(channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * 在内存中生成完整的 DEX 文件
+     *
+     * @return 小端序、position 为 0 的 DEX 数据
+     */
+    public ByteBuffer generate() {
+        Random random = new Random(seed);
+        Model model = buildModel(random);
+        DexOutput out = new DexOutput(1 << 16);
+        layout(model, random, out);
+        ByteBuffer dex = out.toByteBuffer();
+        sign(dex);
+        return dex;
+    }
+
+    // ------------------------------------------------------------------
+    // 模型：先确定所有字符串、类型、原型和成员，再统一分配索引
+    // ------------------------------------------------------------------
+
+    private static class Proto {
+        final String returnType;
+        final String[] params;
+        int returnTypeIdx;
+        int[] paramTypeIdxs;
+        int shortyIdx;
+        int index;
+
+        Proto(String returnType, String[] params) {
+            this.returnType = returnType;
+            this.params = params;
+        }
+
+        String key() {
+            return returnType + "(" + String.join(",", params) + ")";
+        }
+
+        String shorty() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(shortyChar(returnType));
+            for (String p : params) {
+                sb.append(shortyChar(p));
+            }
+            return sb.toString();
+        }
+
+        /**
+         * 参数占用的寄存器数（long / double 占两个）
+         */
+        int paramWords() {
+            int words = 0;
+            for (String p : params) {
+                words += p.equals("J") ? 2 : 1;
+            }
+            return words;
+        }
+
+        private static char shortyChar(String type) {
+            return type.charAt(0) == '[' ? 'L' : type.charAt(0);
+        }
+    }
+
+    private static class Member {
+        final String classType;
+        final String name;
+        final String typeOrProto; // 字段为类型描述符，方法为 Proto.key()
+        int classIdx;
+        int nameIdx;
+        int typeOrProtoIdx;
+
+        Member(String classType, String name, String typeOrProto) {
+            this.classType = classType;
+            this.name = name;
+            this.typeOrProto = typeOrProto;
+        }
+
+        String key() {
+            return classType + "->" + name + ":" + typeOrProto;
+        }
+    }
+
+    private static class Model {
+        String[] strings;
+        Map<String, Integer> stringIndex = new HashMap<>();
+        String[] types;
+        Map<String, Integer> typeIndex = new HashMap<>();
+        List<Proto> protos = new ArrayList<>();
+        Map<String, Proto> protoByKey = new HashMap<>();
+        List<Member> fields = new ArrayList<>();
+        List<Member> methods = new ArrayList<>();
+        int[] definedClassTypeIdxs;       // 按 type 索引排序的已定义类
+        int[] zeroArgMethods;             // 无参数方法，用作 invoke-static 的目标
+    }
+
+    private Model buildModel(Random random) {
+        Model model = new Model();
+        TreeSet<String> strings = new TreeSet<>(); // String.compareTo 即按 UTF-16 代码单元排序
+
+        // 类型：基本类型 + 生成的类
+        TreeSet<String> types = new TreeSet<>(Arrays.asList(BASIC_TYPES));
+        int classTypeCount = Math.max(profile.getClasses(), profile.getTypes() - BASIC_TYPES.length);
+        List<String> classTypes = new ArrayList<>(classTypeCount);
+        for (int i = 0; i < classTypeCount; i++) {
+            String descriptor = "Lgen/p" + (i % 64) + "/C" + i + ";";
+            classTypes.add(descriptor);
+            types.add(descriptor);
+        }
+        strings.addAll(types);
+
+        // 已定义的类：随机选出 classes 个
+        List<String> shuffled = new ArrayList<>(classTypes);
+        Collections.shuffle(shuffled, random);
+        List<String> definedClasses = new ArrayList<>(shuffled.subList(0, profile.getClasses()));
+        Set<String> definedSet = new HashSet<>(definedClasses);
+
+        // 原型：返回类型和参数从类型池中选取，始终包含 ()V
+        String[] typePool = types.toArray(new String[0]);
+        addProto(model, new Proto("V", new String[0]));
+        int attempts = 0;
+        while (model.protos.size() < profile.getProtos() && attempts++ < profile.getProtos() * 20) {
+            String ret = random.nextInt(3) == 0 ? "V" : pickType(random, typePool);
+            String[] params = new String[random.nextInt(4)];
+            for (int i = 0; i < params.length; i++) {
+                String t;
+                do {
+                    t = pickType(random, typePool);
+                } while (t.equals("V"));
+                params[i] = t;
+            }
+            addProto(model, new Proto(ret, params));
+        }
+        for (Proto proto : model.protos) {
+            strings.add(proto.shorty());
+        }
+        List<Proto> protoList = model.protos;
+
+        // 字段：70% 属于已定义的类
+        Set<String> memberKeys = new HashSet<>();
+        attempts = 0;
+        int fieldNames = Math.max(1, profile.getFields() / 4);
+        while (model.fields.size() < profile.getFields() && attempts++ < profile.getFields() * 20) {
+            String owner = random.nextInt(10) < 7 ? definedClasses.get(random.nextInt(definedClasses.size()))
+                    : classTypes.get(random.nextInt(classTypes.size()));
+            String type;
+            do {
+                type = pickType(random, typePool);
+            } while (type.equals("V"));
+            Member field = new Member(owner, "f" + random.nextInt(fieldNames), type);
+            if (memberKeys.add(field.key())) {
+                model.fields.add(field);
+                strings.add(field.name);
+            }
+        }
+
+        // 方法：80% 属于已定义的类，约 1/8 为构造方法
+        memberKeys.clear();
+        attempts = 0;
+        int methodNames = Math.max(1, profile.getMethods() / 4);
+        Proto voidProto = model.protoByKey.get("V()");
+        while (model.methods.size() < profile.getMethods() && attempts++ < profile.getMethods() * 20) {
+            String owner = random.nextInt(10) < 8 ? definedClasses.get(random.nextInt(definedClasses.size()))
+                    : classTypes.get(random.nextInt(classTypes.size()));
+            Member method;
+            if (random.nextInt(8) == 0) {
+                Proto proto = protoList.get(random.nextInt(protoList.size()));
+                if (!proto.returnType.equals("V")) {
+                    proto = voidProto;
+                }
+                method = new Member(owner, "<init>", proto.key());
+            } else {
+                Proto proto = protoList.get(random.nextInt(protoList.size()));
+                method = new Member(owner, "m" + random.nextInt(methodNames), proto.key());
+            }
+            if (memberKeys.add(method.key())) {
+                model.methods.add(method);
+                strings.add(method.name);
+            }
+        }
+
+        // 填充字符串，使字符串总数达到 profile.strings
+        attempts = 0;
+        while (strings.size() < profile.getStrings() && attempts++ < profile.getStrings() * 20) {
+            strings.add(randomString(random));
+        }
+
+        // 分配字符串索引
+        model.strings = strings.toArray(new String[0]);
+        for (int i = 0; i < model.strings.length; i++) {
+            model.stringIndex.put(model.strings[i], i);
+        }
+        // 类型按描述符排序即按字符串索引排序
+        model.types = types.toArray(new String[0]);
+        for (int i = 0; i < model.types.length; i++) {
+            model.typeIndex.put(model.types[i], i);
+        }
+
+        // 原型排序：先按返回类型索引，再按参数列表逐项比较
+        for (Proto proto : protoList) {
+            proto.returnTypeIdx = model.typeIndex.get(proto.returnType);
+            proto.paramTypeIdxs = new int[proto.params.length];
+            for (int i = 0; i < proto.params.length; i++) {
+                proto.paramTypeIdxs[i] = model.typeIndex.get(proto.params[i]);
+            }
+            proto.shortyIdx = model.stringIndex.get(proto.shorty());
+        }
+        protoList.sort((a, b) -> {
+            if (a.returnTypeIdx != b.returnTypeIdx) {
+                return Integer.compare(a.returnTypeIdx, b.returnTypeIdx);
+            }
+            return compareTypeLists(a.paramTypeIdxs, b.paramTypeIdxs);
+        });
+        for (int i = 0; i < protoList.size(); i++) {
+            protoList.get(i).index = i;
+        }
+
+        // 字段排序：class_idx, name_idx, type_idx
+        for (Member field : model.fields) {
+            field.classIdx = model.typeIndex.get(field.classType);
+            field.nameIdx = model.stringIndex.get(field.name);
+            field.typeOrProtoIdx = model.typeIndex.get(field.typeOrProto);
+        }
+        model.fields.sort(SyntheticDexGenerator::compareMembers);
+
+        // 方法排序：class_idx, name_idx, proto_idx
+        List<Integer> zeroArg = new ArrayList<>();
+        for (Member method : model.methods) {
+            method.classIdx = model.typeIndex.get(method.classType);
+            method.nameIdx = model.stringIndex.get(method.name);
+            method.typeOrProtoIdx = model.protoByKey.get(method.typeOrProto).index;
+        }
+        model.methods.sort(SyntheticDexGenerator::compareMembers);
+        for (int i = 0; i < model.methods.size(); i++) {
+            Member method = model.methods.get(i);
+            if (!method.name.equals("<init>") && protoList.get(method.typeOrProtoIdx).params.length == 0) {
+                zeroArg.add(i);
+            }
+        }
+        model.zeroArgMethods = zeroArg.stream().mapToInt(Integer::intValue).toArray();
+
+        model.definedClassTypeIdxs = definedClasses.stream().mapToInt(model.typeIndex::get).sorted().toArray();
+        return model;
+    }
+
+    private static void addProto(Model model, Proto proto) {
+        if (!model.protoByKey.containsKey(proto.key())) {
+            model.protoByKey.put(proto.key(), proto);
+            model.protos.add(proto);
+        }
+    }
+
+    private static String pickType(Random random, String[] typePool) {
+        // 一半概率选基本类型，使原型和字段类型有足够的重复
+        if (random.nextBoolean()) {
+            return BASIC_TYPES[random.nextInt(BASIC_TYPES.length)];
+        }
+        return typePool[random.nextInt(typePool.length)];
+    }
+
+    private static int compareTypeLists(int[] a, int[] b) {
+        int n = Math.min(a.length, b.length);
+        for (int i = 0; i < n; i++) {
+            if (a[i] != b[i]) {
+                return Integer.compare(a[i], b[i]);
+            }
+        }
+        return Integer.compare(a.length, b.length);
+    }
+
+    private static int compareMembers(Member a, Member b) {
+        if (a.classIdx != b.classIdx) {
+            return Integer.compare(a.classIdx, b.classIdx);
+        }
+        if (a.nameIdx != b.nameIdx) {
+            return Integer.compare(a.nameIdx, b.nameIdx);
+        }
+        return Integer.compare(a.typeOrProtoIdx, b.typeOrProtoIdx);
+    }
+
+    /**
+     * 生成随机字符串，长度在 [minStringLength, maxStringLength] 之间并偏向短字符串
+     */
+    private String randomString(Random random) {
+        int min = profile.getMinStringLength();
+        int max = profile.getMaxStringLength();
+        double r = random.nextDouble();
+        int len = min + (int) ((max - min) * r * r * r);
+        StringBuilder sb = new StringBuilder(len);
+        while (sb.length() < len) {
+            if (random.nextDouble() < profile.getNonAsciiRatio()) {
+                int i = random.nextInt(NON_ASCII.length());
+                char c = NON_ASCII.charAt(i);
+                if (Character.isHighSurrogate(c)) {
+                    sb.append(c).append(NON_ASCII.charAt(i + 1));
+                } else if (!Character.isLowSurrogate(c)) {
+                    sb.append(c);
+                }
+            } else {
+                sb.append((char) (' ' + random.nextInt(95)));
+            }
+        }
+        return sb.toString();
+    }
+
+    // ------------------------------------------------------------------
+    // 布局：header | ids | class_defs | data（type_list, code, string_data, class_data, map_list）
+    // ------------------------------------------------------------------
+
+    /**
+     * 把模型写入 out，header 中的 signature 和 checksum 留空
+     *
+     * @return 文件大小
+     */
+    private int layout(Model model, Random random, DexOutput out) {
+        int stringCount = model.strings.length;
+        int typeCount = model.types.length;
+        int protoCount = model.protos.size();
+        int fieldCount = model.fields.size();
+        int methodCount = model.methods.size();
+        int classCount = model.definedClassTypeIdxs.length;
+
+        out.skip(0x70); // header 最后回填
+
+        int stringIdsOff = out.position();
+        out.skip(stringCount * 4);
+        int typeIdsOff = out.position();
+        for (String type : model.types) {
+            out.u4(model.stringIndex.get(type));
+        }
+        int protoIdsOff = out.position();
+        out.skip(protoCount * 12);
+        int fieldIdsOff = out.position();
+        for (Member field : model.fields) {
+            out.u2(field.classIdx);
+            out.u2(field.typeOrProtoIdx);
+            out.u4(field.nameIdx);
+        }
+        int methodIdsOff = out.position();
+        for (Member method : model.methods) {
+            out.u2(method.classIdx);
+            out.u2(method.typeOrProtoIdx);
+            out.u4(method.nameIdx);
+        }
+        int classDefsOff = out.position();
+        out.skip(classCount * 32);
+        int dataOff = out.position();
+
+        // type_list：相同的参数列表 / 接口列表只写一次
+        int typeListsOff = out.position();
+        Map<String, Integer> typeListOffsets = new HashMap<>();
+        int[] protoIds = new int[protoCount * 3];
+        for (int i = 0; i < protoCount; i++) {
+            Proto proto = model.protos.get(i);
+            protoIds[i * 3] = proto.shortyIdx;
+            protoIds[i * 3 + 1] = proto.returnTypeIdx;
+            protoIds[i * 3 + 2] = writeTypeList(out, typeListOffsets, proto.paramTypeIdxs);
+        }
+        out.putU4s(protoIdsOff, protoIds);
+        boolean[] isInterface = new boolean[classCount];
+        int[][] interfaces = chooseInterfaces(model.definedClassTypeIdxs, isInterface);
+        int[] interfacesOffs = new int[classCount];
+        for (int c = 0; c < classCount; c++) {
+            if (interfaces[c] != null) {
+                interfacesOffs[c] = writeTypeList(out, typeListOffsets, interfaces[c]);
+            }
+        }
+        int typeListCount = typeListOffsets.size();
+
+        // 决定哪些类有 class_data，以及每个成员是 static / direct 还是 instance / virtual
+        int[] fieldRanges = memberRanges(model.fields, model.definedClassTypeIdxs);
+        int[] methodRanges = memberRanges(model.methods, model.definedClassTypeIdxs);
+        boolean[] hasClassData = new boolean[classCount];
+        boolean[] fieldStatic = new boolean[fieldCount];
+        boolean[] methodDirect = new boolean[methodCount];
+        boolean[] methodStatic = new boolean[methodCount];
+        for (int c = 0; c < classCount; c++) {
+            // 接口不带 class_data，但仍然消耗随机数，使其余内容与接口比例无关
+            hasClassData[c] = random.nextDouble() < profile.getClassDataDensity() && !isInterface[c];
+        }
+        for (int i = 0; i < fieldCount; i++) {
+            fieldStatic[i] = random.nextInt(10) < 3;
+        }
+        for (int i = 0; i < methodCount; i++) {
+            boolean ctor = model.methods.get(i).name.equals("<init>");
+            methodStatic[i] = !ctor && random.nextInt(10) < 3;
+            methodDirect[i] = ctor || methodStatic[i];
+        }
+
+        // code_item
+        out.align(4);
+        int codeItemsOff = out.position();
+        int codeItemCount = 0;
+        int[] codeOffs = new int[methodCount];
+        for (int c = 0; c < classCount; c++) {
+            if (!hasClassData[c]) {
+                continue;
+            }
+            for (int m = methodRanges[c * 2]; m < methodRanges[c * 2 + 1]; m++) {
+                out.align(4);
+                codeOffs[m] = out.position();
+                writeCodeItem(out, model, model.methods.get(m), methodStatic[m], random);
+                codeItemCount++;
+            }
+        }
+
+        // string_data_item
+        int stringDataOff = out.position();
+        int[] stringDataOffs = new int[stringCount];
+        for (int i = 0; i < stringCount; i++) {
+            stringDataOffs[i] = out.position();
+            String s = model.strings[i];
+            out.uleb128(s.length());
+            out.bytes(Mutf8.encode(s));
+            out.u1(0);
+        }
+        out.putU4s(stringIdsOff, stringDataOffs);
+
+        // class_data_item 与 class_def_item
+        int classDataOff = out.position();
+        int classDataCount = 0;
+        int objectIdx = model.typeIndex.get(OBJECT);
+        int[] classDefs = new int[classCount * 8];
+        for (int c = 0; c < classCount; c++) {
+            int classDataItemOff = 0;
+            if (hasClassData[c]) {
+                classDataItemOff = out.position();
+                writeClassData(out, fieldRanges[c * 2], fieldRanges[c * 2 + 1], methodRanges[c * 2], methodRanges[c * 2 + 1],
+                        fieldStatic, methodDirect, methodStatic, model, codeOffs);
+                classDataCount++;
+            }
+            int def = c * 8;
+            classDefs[def] = model.definedClassTypeIdxs[c];
+            classDefs[def + 1] = isInterface[c] ? ACC_PUBLIC | ACC_INTERFACE | ACC_ABSTRACT : ACC_PUBLIC;
+            classDefs[def + 2] = objectIdx;
+            classDefs[def + 3] = interfacesOffs[c];
+            classDefs[def + 4] = NO_INDEX;
+            classDefs[def + 5] = 0;
+            classDefs[def + 6] = classDataItemOff;
+            classDefs[def + 7] = 0;
+        }
+        out.putU4s(classDefsOff, classDefs);
+
+        // map_list
+        out.align(4);
+        int mapOff = out.position();
+        List<int[]> map = new ArrayList<>();
+        map.add(new int[]{TYPE_HEADER_ITEM, 1, 0});
+        addMapItem(map, TYPE_STRING_ID_ITEM, stringCount, stringIdsOff);
+        addMapItem(map, TYPE_TYPE_ID_ITEM, typeCount, typeIdsOff);
+        addMapItem(map, TYPE_PROTO_ID_ITEM, protoCount, protoIdsOff);
+        addMapItem(map, TYPE_FIELD_ID_ITEM, fieldCount, fieldIdsOff);
+        addMapItem(map, TYPE_METHOD_ID_ITEM, methodCount, methodIdsOff);
+        addMapItem(map, TYPE_CLASS_DEF_ITEM, classCount, classDefsOff);
+        addMapItem(map, TYPE_TYPE_LIST, typeListCount, alignUp(typeListsOff, 4));
+        addMapItem(map, TYPE_CODE_ITEM, codeItemCount, codeItemsOff);
+        addMapItem(map, TYPE_STRING_DATA_ITEM, stringCount, stringDataOff);
+        addMapItem(map, TYPE_CLASS_DATA_ITEM, classDataCount, classDataOff);
+        map.add(new int[]{TYPE_MAP_LIST, 1, mapOff});
+        out.u4(map.size());
+        for (int[] item : map) {
+            out.u2(item[0]);
+            out.u2(0);
+            out.u4(item[1]);
+            out.u4(item[2]);
+        }
+        out.align(4);
+        int fileSize = out.position();
+
+        // header
+        out.bytesAt(0, DEX_MAGIC);
+        out.putU4(32, fileSize);
+        out.putU4(36, 0x70);
+        out.putU4(40, 0x12345678);
+        out.putU4(44, 0);
+        out.putU4(48, 0);
+        out.putU4(52, mapOff);
+        putSection(out, 56, stringCount, stringIdsOff);
+        putSection(out, 64, typeCount, typeIdsOff);
+        putSection(out, 72, protoCount, protoIdsOff);
+        putSection(out, 80, fieldCount, fieldIdsOff);
+        putSection(out, 88, methodCount, methodIdsOff);
+        putSection(out, 96, classCount, classDefsOff);
+        out.putU4(104, fileSize - dataOff);
+        out.putU4(108, dataOff);
+        return fileSize;
+    }
+
+    /**
+     * 计算并写入 header 中的 signature（SHA-1）和 checksum（Adler-32）
+     *
+     * @param dex 完整的 DEX 数据，position 为 0
+     */
+    private static void sign(ByteBuffer dex) {
+        try {
+            MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+            ByteBuffer body = dex.duplicate();
+            body.position(32);
+            sha1.update(body);
+            ByteBuffer signature = dex.duplicate();
+            signature.position(12);
+            signature.put(sha1.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        Adler32 adler = new Adler32();
+        ByteBuffer body = dex.duplicate();
+        body.position(12);
+        adler.update(body);
+        dex.duplicate().order(ByteOrder.LITTLE_ENDIAN).putInt(8, (int) adler.getValue());
+    }
+
+    /**
+     * 写入一个 type_list，内容相同的列表复用已写入的偏移
+     *
+     * @return type_list 的偏移，列表为空时为 0
+     */
+    private static int writeTypeList(DexOutput out, Map<String, Integer> typeListOffsets, int[] typeIdxs) {
+        if (typeIdxs.length == 0) {
+            return 0;
+        }
+        String key = Arrays.toString(typeIdxs);
+        Integer existing = typeListOffsets.get(key);
+        if (existing == null) {
+            out.align(4);
+            existing = out.position();
+            out.u4(typeIdxs.length);
+            for (int idx : typeIdxs) {
+                out.u2(idx);
+            }
+            typeListOffsets.put(key, existing);
+        }
+        return existing;
+    }
+
+    /**
+     * 选出接口并决定每个类实现的接口。
+     *
+     * 使用由种子派生的独立随机序列，因此接口比例不影响其余内容。约 1/16 的已定义类成为接口；
+     * 按 interfaceDensity 的比例，接口继承 1~3 个排在它前面的接口（保证无环），普通类实现 1~3 个接口。
+     *
+     * @param isInterface 输出参数，标记哪些类是接口
+     * @return 每个类的接口 type 索引，没有接口时为 null
+     */
+    private int[][] chooseInterfaces(int[] definedClassTypeIdxs, boolean[] isInterface) {
+        int classCount = definedClassTypeIdxs.length;
+        int[][] interfaces = new int[classCount][];
+        if (profile.getInterfaceDensity() == 0 || classCount < 2) {
+            return interfaces;
+        }
+        Random random = new Random(seed ^ 0x1F7E3A5CL);
+        int[] pool = random.ints(0, classCount).distinct().limit(Math.max(1, classCount / 16)).toArray();
+        for (int p = 0; p < pool.length; p++) {
+            isInterface[pool[p]] = true;
+            if (p > 0 && random.nextDouble() < profile.getInterfaceDensity()) {
+                interfaces[pool[p]] = pickInterfaces(random, definedClassTypeIdxs, pool, p);
+            }
+        }
+        for (int c = 0; c < classCount; c++) {
+            if (!isInterface[c] && random.nextDouble() < profile.getInterfaceDensity()) {
+                interfaces[c] = pickInterfaces(random, definedClassTypeIdxs, pool, pool.length);
+            }
+        }
+        return interfaces;
+    }
+
+    /**
+     * 从 pool 的前 limit 个接口中不重复地选出 1~3 个，返回它们的 type 索引
+     */
+    private static int[] pickInterfaces(Random random, int[] definedClassTypeIdxs, int[] pool, int limit) {
+        int count = Math.min(limit, 1 + random.nextInt(3));
+        return random.ints(0, limit).distinct().limit(count).map(p -> definedClassTypeIdxs[pool[p]]).toArray();
+    }
+
+    /**
+     * 已排序的成员列表中，每个已定义类的成员区间为 [ranges[2c], ranges[2c+1])
+     */
+    private static int[] memberRanges(List<Member> members, int[] definedClassTypeIdxs) {
+        int[] ranges = new int[definedClassTypeIdxs.length * 2];
+        int m = 0;
+        for (int c = 0; c < definedClassTypeIdxs.length; c++) {
+            while (m < members.size() && members.get(m).classIdx < definedClassTypeIdxs[c]) {
+                m++;
+            }
+            ranges[c * 2] = m;
+            while (m < members.size() && members.get(m).classIdx == definedClassTypeIdxs[c]) {
+                m++;
+            }
+            ranges[c * 2 + 1] = m;
+        }
+        return ranges;
+    }
+
+    private void writeClassData(DexOutput out, int fieldFrom, int fieldTo, int methodFrom, int methodTo,
+                                boolean[] fieldStatic, boolean[] methodDirect, boolean[] methodStatic,
+                                Model model, int[] codeOffs) {
+        int staticFields = 0;
+        int directMethods = 0;
+        for (int f = fieldFrom; f < fieldTo; f++) {
+            if (fieldStatic[f]) {
+                staticFields++;
+            }
+        }
+        for (int m = methodFrom; m < methodTo; m++) {
+            if (methodDirect[m]) {
+                directMethods++;
+            }
+        }
+        out.uleb128(staticFields);
+        out.uleb128(fieldTo - fieldFrom - staticFields);
+        out.uleb128(directMethods);
+        out.uleb128(methodTo - methodFrom - directMethods);
+
+        for (int pass = 0; pass < 2; pass++) {
+            int prev = 0;
+            for (int f = fieldFrom; f < fieldTo; f++) {
+                if (fieldStatic[f] == (pass == 0)) {
+                    out.uleb128(f - prev);
+                    out.uleb128(pass == 0 ? ACC_PUBLIC | ACC_STATIC : ACC_PUBLIC);
+                    prev = f;
+                }
+            }
+        }
+        for (int pass = 0; pass < 2; pass++) {
+            int prev = 0;
+            for (int m = methodFrom; m < methodTo; m++) {
+                if (methodDirect[m] == (pass == 0)) {
+                    int flags = ACC_PUBLIC;
+                    if (methodStatic[m]) {
+                        flags |= ACC_STATIC;
+                    } else if (model.methods.get(m).name.equals("<init>")) {
+                        flags |= ACC_CONSTRUCTOR;
+                    }
+                    out.uleb128(m - prev);
+                    out.uleb128(flags);
+                    out.uleb128(codeOffs[m]);
+                    prev = m;
+                }
+            }
+        }
+    }
+
+    /**
+     * 写入一个 code_item。寄存器布局：v0、v1 为局部变量，参数（含 this）位于最后 ins_size 个寄存器。
+     */
+    private void writeCodeItem(DexOutput out, Model model, Member method, boolean isStatic, Random random) {
+        Proto proto = model.protos.get(method.typeOrProtoIdx);
+        int ins = proto.paramWords() + (isStatic ? 0 : 1);
+        int registers = 2 + ins;
+        boolean hasInvoke = model.zeroArgMethods.length > 0;
+
+        out.u2(registers);
+        out.u2(ins);
+        out.u2(0);       // outs_size：invoke-static {} 不传参数
+        out.u2(0);       // tries_size
+        out.u4(0);       // debug_info_off
+        int insnsSizeOff = out.position();
+        out.u4(0);       // insns_size，稍后回填
+        int insnsStart = out.position();
+
+        int count = profile.getInstructionsPerMethod();
+        for (int i = 0; i < count; i++) {
+            switch (random.nextInt(hasInvoke ? 4 : 3)) {
+                case 0: // const-string v0, string@BBBB（21c）
+                    int stringIdx = random.nextInt(model.strings.length);
+                    if (stringIdx > 0xFFFF) {
+                        out.u2(0x1b);      // const-string/jumbo v0, string@BBBBBBBB（31c）
+                        out.u4(stringIdx);
+                    } else {
+                        out.u2(0x1a);
+                        out.u2(stringIdx);
+                    }
+                    break;
+                case 1: // const-class v0, type@BBBB（21c）
+                    out.u2(0x1c);
+                    out.u2(random.nextInt(model.types.length));
+                    break;
+                case 2: // sget 系列 v0, field@BBBB（21c），按字段类型选择指令
+                    if (model.fields.isEmpty()) {
+                        out.u2(0x00); // nop
+                        break;
+                    }
+                    int fieldIdx = random.nextInt(model.fields.size());
+                    out.u2(sgetOpcode(model.fields.get(fieldIdx).typeOrProto));
+                    out.u2(fieldIdx);
+                    break;
+                default: // invoke-static {}, method@BBBB（35c，参数个数为 0）
+                    out.u2(0x71);
+                    out.u2(model.zeroArgMethods[random.nextInt(model.zeroArgMethods.length)]);
+                    out.u2(0);
+                    break;
+            }
+        }
+
+        // 按返回类型返回
+        switch (proto.returnType.charAt(0)) {
+            case 'V':
+                out.u2(0x0e);          // return-void
+                break;
+            case 'J':
+                out.u2(0x16);          // const-wide/16 v0, #0
+                out.u2(0);
+                out.u2(0x10);          // return-wide v0
+                break;
+            case 'I':
+            case 'Z':
+                out.u2(0x12);          // const/4 v0, #0
+                out.u2(0x0f);          // return v0
+                break;
+            default:
+                out.u2(0x12);          // const/4 v0, #0（null）
+                out.u2(0x11);          // return-object v0
+                break;
+        }
+        out.putU4(insnsSizeOff, (out.position() - insnsStart) / 2);
+    }
+
+    private static int sgetOpcode(String type) {
+        switch (type.charAt(0)) {
+            case 'J':
+                return 0x61; // sget-wide
+            case 'Z':
+                return 0x63; // sget-boolean
+            case 'L':
+            case '[':
+                return 0x62; // sget-object
+            default:
+                return 0x60; // sget
+        }
+    }
+
+    private static void addMapItem(List<int[]> map, int type, int size, int offset) {
+        if (size > 0) {
+            map.add(new int[]{type, size, offset});
+        }
+    }
+
+    private static void putSection(DexOutput out, int headerOff, int size, int offset) {
+        out.putU4(headerOff, size);
+        out.putU4(headerOff + 4, size == 0 ? 0 : offset);
+    }
+
+    private static int alignUp(int value, int alignment) {
+        return (value + alignment - 1) & -alignment;
+    }
+
+    /**
+     * 用法：SyntheticDexGenerator &lt;profile: small|medium|65k|huge&gt; &lt;seed&gt; &lt;output.dex&gt;
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: SyntheticDexGenerator <small|medium|65k|huge> <seed> <output.dex>");
+            System.exit(1);
+        }
+        DexProfile profile = DexProfile.named(args[0]);
+        long seed = Long.parseLong(args[1]);
+        Path output = Paths.get(args[2]);
+        long start = System.nanoTime();
+        new SyntheticDexGenerator(seed, profile).writeTo(output);
+        System.out.println("Generated " + output + " (" + output.toFile().length() + " bytes) in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+}
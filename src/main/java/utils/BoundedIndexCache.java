@@ -0,0 +1,140 @@
+package utils;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.ToLongFunction;
+
+/**
+ * BoundedIndexCache 是一个以连续整数索引（0 ~ capacity-1）为键的有界缓存。
+ *
+ * DEX 中的字符串、类定义等都以稠密的下标引用，因此这里直接用数组槽位存放缓存值，
+ * 不需要 HashMap 的装箱键和链表节点。缓存总量按 weigher 估算的字节数限制，
+ * 超出上限时使用 CLOCK（二次机会）算法淘汰最近未被访问的槽位。
+ *
+ * 读取不加锁；写入和淘汰在 this 上同步，批量写入（putAll）整批只加一次锁。
+ */
+public class BoundedIndexCache<V> {
+    private final AtomicReferenceArray<V> slots;
+    private final boolean[] referenced;          // CLOCK 访问位，读取时设置（允许良性竞争）
+    private final ToLongFunction<? super V> weigher;
+    private final long maxWeight;
+
+    private long weight;                         // 当前缓存总量，受 this 保护
+    private int hand;                            // CLOCK 指针，受 this 保护
+
+    /**
+     * @param capacity  索引空间大小
+     * @param maxWeight 缓存总量上限（与 weigher 的单位一致），小于等于 0 表示不缓存
+     * @param weigher   估算单个缓存值占用量的函数
+     */
+    public BoundedIndexCache(int capacity, long maxWeight, ToLongFunction<? super V> weigher) {
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.referenced = new boolean[capacity];
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    /**
+     * 获取缓存值，未命中时返回 null
+     */
+    public V get(int index) {
+        V value = slots.get(index);
+        if (value != null) {
+            referenced[index] = true;
+        }
+        return value;
+    }
+
+    /**
+     * 放入缓存值。若该槽位已被其他线程填充，则返回已有的值，保证同一索引只对外暴露一个实例。
+     *
+     * @return 实际缓存（或调用方应使用）的值
+     */
+    public V put(int index, V value) {
+        long w = weigher.applyAsLong(value);
+        if (w > maxWeight) {
+            return value; // 单个值超过上限，不缓存
+        }
+        synchronized (this) {
+            V existing = slots.get(index);
+            if (existing != null) {
+                return existing;
+            }
+            while (weight + w > maxWeight) {
+                evictOne();
+            }
+            slots.set(index, value);
+            referenced[index] = false;
+            weight += w;
+        }
+        return value;
+    }
+
+    /**
+     * 批量放入 values[i] 到索引 from + i，整批只加一次锁。
+     * values 中为 null 的元素跳过；槽位已被填充时保留已有的值。
+     */
+    public void putAll(int from, V[] values) {
+        long[] weights = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                weights[i] = weigher.applyAsLong(values[i]);
+            }
+        }
+        synchronized (this) {
+            for (int i = 0; i < values.length; i++) {
+                long w = weights[i];
+                if (values[i] == null || w > maxWeight || slots.get(from + i) != null) {
+                    continue;
+                }
+                while (weight + w > maxWeight) {
+                    evictOne();
+                }
+                slots.set(from + i, values[i]);
+                referenced[from + i] = false;
+                weight += w;
+            }
+        }
+    }
+
+    /**
+     * 清空所有缓存值
+     */
+    public synchronized void clear() {
+        for (int i = 0; i < slots.length(); i++) {
+            slots.set(i, null);
+            referenced[i] = false;
+        }
+        weight = 0;
+        hand = 0;
+    }
+
+    /**
+     * 获取当前缓存总量
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    public int getCapacity() {
+        return slots.length();
+    }
+
+    private void evictOne() {
+        int capacity = slots.length();
+        while (true) {
+            int i = hand;
+            hand = (hand + 1) % capacity;
+            V victim = slots.get(i);
+            if (victim == null) {
+                continue;
+            }
+            if (referenced[i]) {
+                referenced[i] = false; // 给一次机会
+                continue;
+            }
+            slots.set(i, null);
+            weight -= weigher.applyAsLong(victim);
+            return;
+        }
+    }
+}
@@ -44,6 +44,131 @@ public class DexdumpUtils {
         return result;
     }
 
+    /**
+     * LEB128 编码的最大字节数（32 位值）
+     */
+    public static final int MAX_LEB128_BYTES = 5;
+
+    /**
+     * 从 ByteBuffer 的绝对偏移处读取一个无符号 LEB128 编码整数，不修改 buffer 的 position。
+     *
+     * 为了不分配对象，返回值把解析结果和占用的字节数打包在一个 long 中：
+     * 低 32 位为数值，高 32 位为长度，分别用 {@link #lebValue(long)} 和 {@link #lebLength(long)} 取出。
+     *
+     * DEX 中绝大多数 ULEB128（索引增量、访问标志、计数）只占 1~2 个字节，这两种情况直接展开处理，
+     * 其余情况才进入逐字节循环。
+     *
+     * @param buffer 包含 LEB128 编码数据的 ByteBuffer
+     * @param offset 编码数据的绝对偏移
+     * @return 打包后的（长度, 数值）
+     * @throws RuntimeException 如果 ByteBuffer 中的数据不足或编码超过 5 个字节
+     */
+    public static long readUnsignedLeb128At(ByteBuffer buffer, int offset) {
+        if (offset + 2 <= buffer.limit()) {
+            int b = buffer.get(offset);
+            if (b >= 0) {
+                return (1L << 32) | b;
+            }
+            int b1 = buffer.get(offset + 1);
+            if (b1 >= 0) {
+                return (2L << 32) | ((b & 0x7F) | (b1 << 7));
+            }
+        }
+        return readUnsignedLeb128Slow(buffer, offset);
+    }
+
+    /**
+     * 3 个字节以上或位于 buffer 末尾的情况，逐字节检查边界。
+     * 单独成方法可以让快速路径足够小，被 JIT 内联到调用方的循环中。
+     */
+    private static long readUnsignedLeb128Slow(ByteBuffer buffer, int offset) {
+        int limit = buffer.limit();
+        int result = 0;
+        int shift = 0;
+        int pos = offset;
+        while (true) {
+            if (pos >= limit) {
+                throw new RuntimeException("Buffer underflow: insufficient data for LEB128");
+            }
+            if (pos - offset == MAX_LEB128_BYTES) {
+                throw new RuntimeException("Invalid LEB128 at offset " + offset + ": more than 5 bytes");
+            }
+            int b = buffer.get(pos++) & 0xFF;
+            result |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+            shift += 7;
+        }
+        return ((long) (pos - offset) << 32) | (result & 0xFFFFFFFFL);
+    }
+
+    /**
+     * 从绝对偏移处读取一个有符号 LEB128（SLEB128）编码整数，最后一个字节的第 7 位为符号位。
+     * 返回值格式与 {@link #readUnsignedLeb128At(ByteBuffer, int)} 相同。
+     */
+    public static long readSignedLeb128At(ByteBuffer buffer, int offset) {
+        long leb = readUnsignedLeb128At(buffer, offset);
+        int length = lebLength(leb);
+        int shift = 7 * length;
+        int value = lebValue(leb);
+        if (shift < 32) {
+            // 按最后一个字节的符号位做符号扩展
+            value = (value << (32 - shift)) >> (32 - shift);
+        }
+        return ((long) length << 32) | (value & 0xFFFFFFFFL);
+    }
+
+    /**
+     * 从绝对偏移处读取一个 ULEB128p1 编码整数（编码值为实际值加 1，因此 -1 编码为单字节 0），
+     * 用于 debug_info 中的 NO_INDEX 可选索引。返回值格式与 {@link #readUnsignedLeb128At(ByteBuffer, int)} 相同。
+     */
+    public static long readUnsignedLeb128p1At(ByteBuffer buffer, int offset) {
+        long leb = readUnsignedLeb128At(buffer, offset);
+        return (leb & 0xFFFFFFFF00000000L) | ((lebValue(leb) - 1) & 0xFFFFFFFFL);
+    }
+
+    /**
+     * 从绝对偏移处连续读取 count 个无符号 LEB128，写入 dst[dstOff ... dstOff+count)。
+     *
+     * @return 最后一个值之后的绝对偏移
+     * @throws RuntimeException 如果 ByteBuffer 中的数据不足或编码非法
+     */
+    public static int readUnsignedLeb128s(ByteBuffer buffer, int offset, int[] dst, int dstOff, int count) {
+        int pos = offset;
+        int end = dstOff + count;
+        int limit = buffer.limit();
+        for (int i = dstOff; i < end; i++) {
+            // 单字节值直接处理，其余交给通用路径
+            if (pos < limit) {
+                int b = buffer.get(pos);
+                if (b >= 0) {
+                    dst[i] = b;
+                    pos++;
+                    continue;
+                }
+            }
+            long leb = readUnsignedLeb128At(buffer, pos);
+            dst[i] = lebValue(leb);
+            pos += lebLength(leb);
+        }
+        return pos;
+    }
+
+    /**
+     * 取出 readUnsignedLeb128At 结果中的数值
+     */
+    public static int lebValue(long packed) {
+        return (int) packed;
+    }
+
+    /**
+     * 取出 readUnsignedLeb128At 结果中占用的字节数
+     */
+    public static int lebLength(long packed) {
+        return (int) (packed >>> 32);
+    }
+
     public static void main(String[] args) {
         // 构造一个 ByteBuffer，其中包含一个无符号 LEB128 编码的数字
         // 例如，编码数字 624485 应该是 0xE5 0x8E 0x26
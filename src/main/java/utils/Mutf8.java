@@ -0,0 +1,212 @@
+package utils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Mutf8 用于解码 DEX 文件中的 MUTF-8（Modified UTF-8）字符串。
+ *
+ * 与标准 UTF-8 的区别：
+ * - U+0000 编码为两字节 0xC0 0x80，因此字符串内部不会出现 0 字节；
+ * - 补充平面字符按 UTF-16 代理对分别编码为两个三字节序列，而不是一个四字节序列。
+ *
+ * string_data_item 的结构为 [ utf16_size (uleb128) | MUTF-8 数据 | 0 ]，
+ * utf16_size 即解码后的 UTF-16 代码单元个数，可以用来一次性确定 char 缓冲区大小。
+ * 解码直接使用 ByteBuffer 的绝对读取，不修改 position，也不产生中间字节数组。
+ */
+public class Mutf8 {
+    /**
+     * 线程内复用的 char 缓冲区上限，超过此长度的字符串使用临时缓冲区，避免长期占用大数组
+     */
+    private static final int MAX_SCRATCH_CHARS = 64 * 1024;
+
+    private static final ThreadLocal<char[]> SCRATCH = ThreadLocal.withInitial(() -> new char[256]);
+
+    private Mutf8() {}
+
+    /**
+     * 解码一个完整的 string_data_item
+     *
+     * @param buffer         DEX 文件数据
+     * @param stringDataOff  string_data_item 的绝对偏移
+     * @return 解码后的字符串
+     */
+    public static String readStringData(ByteBuffer buffer, int stringDataOff) {
+        long leb = DexdumpUtils.readUnsignedLeb128At(buffer, stringDataOff);
+        return decode(buffer, stringDataOff + DexdumpUtils.lebLength(leb), DexdumpUtils.lebValue(leb));
+    }
+
+    /**
+     * 从绝对偏移处解码 utf16Size 个 UTF-16 代码单元
+     *
+     * @param buffer    DEX 文件数据
+     * @param offset    MUTF-8 数据的绝对偏移
+     * @param utf16Size 解码后的 UTF-16 长度
+     * @return 解码后的字符串
+     * @throws RuntimeException 如果数据不是合法的 MUTF-8，或 utf16Size 超出剩余数据
+     */
+    public static String decode(ByteBuffer buffer, int offset, int utf16Size) {
+        if (utf16Size == 0) {
+            return "";
+        }
+        // 每个 UTF-16 代码单元至少占一个字节，先检查长度再分配缓冲区，避免损坏的 utf16_size 导致巨大的分配
+        if (utf16Size < 0 || offset < 0 || utf16Size > buffer.limit() - offset) {
+            throw new RuntimeException("Invalid MUTF-8: utf16_size " + utf16Size + " at offset " + offset
+                    + " exceeds file size " + buffer.limit());
+        }
+        char[] chars = scratch(utf16Size);
+        int pos = offset;
+        int i = 0;
+
+        // ASCII 快速路径：0x01 ~ 0x7F 直接转成 char
+        while (i < utf16Size) {
+            byte b = buffer.get(pos);
+            if (b <= 0) {
+                break;
+            }
+            chars[i++] = (char) b;
+            pos++;
+        }
+
+        while (i < utf16Size) {
+            int a = buffer.get(pos++) & 0xFF;
+            if (a < 0x80) {
+                if (a == 0) {
+                    throw new RuntimeException("Invalid MUTF-8: unexpected NUL at offset " + (pos - 1));
+                }
+                chars[i++] = (char) a;
+            } else if ((a & 0xE0) == 0xC0) {
+                int b = buffer.get(pos++) & 0xFF;
+                if ((b & 0xC0) != 0x80) {
+                    throw new RuntimeException("Invalid MUTF-8: bad continuation byte at offset " + (pos - 1));
+                }
+                chars[i++] = (char) (((a & 0x1F) << 6) | (b & 0x3F));
+            } else if ((a & 0xF0) == 0xE0) {
+                int b = buffer.get(pos++) & 0xFF;
+                int c = buffer.get(pos++) & 0xFF;
+                if ((b & 0xC0) != 0x80 || (c & 0xC0) != 0x80) {
+                    throw new RuntimeException("Invalid MUTF-8: bad continuation byte at offset " + (pos - 2));
+                }
+                chars[i++] = (char) (((a & 0x0F) << 12) | ((b & 0x3F) << 6) | (c & 0x3F));
+            } else {
+                throw new RuntimeException("Invalid MUTF-8: bad lead byte 0x"
+                        + Integer.toHexString(a) + " at offset " + (pos - 1));
+            }
+        }
+        return new String(chars, 0, utf16Size);
+    }
+
+    /**
+     * 按 UTF-16 代码单元比较 buffer 中的 MUTF-8 数据与给定字符串，顺序与 String.compareTo 一致，
+     * 也就是 DEX 中 string_ids 的排序顺序。比较时直接读取字节，不创建 String。
+     *
+     * @param buffer    DEX 文件数据
+     * @param offset    MUTF-8 数据的绝对偏移
+     * @param utf16Size buffer 中字符串的 UTF-16 长度
+     * @param s         要比较的字符串
+     * @return 小于 0、等于 0、大于 0 分别表示 buffer 中的字符串小于、等于、大于 s
+     */
+    public static int compare(ByteBuffer buffer, int offset, int utf16Size, CharSequence s) {
+        int len = s.length();
+        int n = Math.min(utf16Size, len);
+        int pos = offset;
+        for (int i = 0; i < n; i++) {
+            int a = buffer.get(pos++) & 0xFF;
+            int c;
+            if (a < 0x80) {
+                c = a;
+            } else if ((a & 0xE0) == 0xC0) {
+                c = ((a & 0x1F) << 6) | (buffer.get(pos++) & 0x3F);
+            } else {
+                c = ((a & 0x0F) << 12) | ((buffer.get(pos) & 0x3F) << 6) | (buffer.get(pos + 1) & 0x3F);
+                pos += 2;
+            }
+            int diff = c - s.charAt(i);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return utf16Size - len;
+    }
+
+    /**
+     * 按 UTF-16 代码单元比较两段 MUTF-8 数据（可以来自不同的 DEX 文件），顺序与 String.compareTo 一致。
+     * 两边都是 ASCII 时逐字节比较，否则按字符解码后比较，不创建 String。
+     *
+     * @return 小于 0、等于 0、大于 0 分别表示 a 中的字符串小于、等于、大于 b 中的字符串
+     */
+    public static int compare(ByteBuffer a, int offsetA, int utf16SizeA, ByteBuffer b, int offsetB, int utf16SizeB) {
+        int n = Math.min(utf16SizeA, utf16SizeB);
+        int posA = offsetA;
+        int posB = offsetB;
+        for (int i = 0; i < n; i++) {
+            int x = a.get(posA++) & 0xFF;
+            int y = b.get(posB++) & 0xFF;
+            if (x < 0x80 && y < 0x80) {
+                if (x != y) {
+                    return x - y;
+                }
+                continue;
+            }
+            if (x >= 0x80) {
+                if ((x & 0xE0) == 0xC0) {
+                    x = ((x & 0x1F) << 6) | (a.get(posA++) & 0x3F);
+                } else {
+                    x = ((x & 0x0F) << 12) | ((a.get(posA) & 0x3F) << 6) | (a.get(posA + 1) & 0x3F);
+                    posA += 2;
+                }
+            }
+            if (y >= 0x80) {
+                if ((y & 0xE0) == 0xC0) {
+                    y = ((y & 0x1F) << 6) | (b.get(posB++) & 0x3F);
+                } else {
+                    y = ((y & 0x0F) << 12) | ((b.get(posB) & 0x3F) << 6) | (b.get(posB + 1) & 0x3F);
+                    posB += 2;
+                }
+            }
+            if (x != y) {
+                return x - y;
+            }
+        }
+        return utf16SizeA - utf16SizeB;
+    }
+
+    /**
+     * 将字符串编码为 MUTF-8 字节（不包含 utf16_size 前缀和结尾的 0）
+     */
+    public static byte[] encode(CharSequence s) {
+        int len = s.length();
+        int size = 0;
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            size += (c != 0 && c < 0x80) ? 1 : (c < 0x800 ? 2 : 3);
+        }
+        byte[] out = new byte[size];
+        int pos = 0;
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            if (c != 0 && c < 0x80) {
+                out[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                out[pos++] = (byte) (0xC0 | (c >> 6));
+                out[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else {
+                out[pos++] = (byte) (0xE0 | (c >> 12));
+                out[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                out[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return out;
+    }
+
+    private static char[] scratch(int size) {
+        if (size > MAX_SCRATCH_CHARS) {
+            return new char[size];
+        }
+        char[] chars = SCRATCH.get();
+        if (chars.length < size) {
+            chars = new char[Math.max(size, chars.length * 2)];
+            SCRATCH.set(chars);
+        }
+        return chars;
+    }
+}
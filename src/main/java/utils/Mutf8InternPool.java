@@ -0,0 +1,190 @@
+package utils;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Mutf8InternPool 是跨 DEX 文件共享的字符串驻留池，以 MUTF-8 字节内容为键，值为弱引用。
+ *
+ * 多 dex（classes.dex ~ classesN.dex）或同一应用的多个版本中，框架类型描述符、成员名等字符串大量重复。
+ * 各个 DexStringIds 使用同一个池时，内容相同的字符串只保留一个 String 实例：
+ * - 查找时直接对 buffer 中的 MUTF-8 字节计算哈希，并用 {@link Mutf8#compare} 与候选字符串逐字比较，
+ *   命中时不解码，也不创建临时的键对象；
+ * - 只有未命中时才解码并放入池中。
+ *
+ * 池本身只弱引用字符串，不会延长其生命周期：所有 DexStringIds 的缓存都不再引用某个字符串后，
+ * 对应的项在 GC 后被清除。
+ *
+ * 哈希表按哈希值分成若干段，每段独立加锁，多个线程可以同时驻留不同段中的字符串。
+ */
+public class Mutf8InternPool {
+    private static final int SEGMENT_SHIFT = 6;
+    private static final int SEGMENT_COUNT = 1 << SEGMENT_SHIFT;
+    private static final int INITIAL_SEGMENT_CAPACITY = 256;
+
+    private final Segment[] segments = new Segment[SEGMENT_COUNT];
+    private final ReferenceQueue<String> queue = new ReferenceQueue<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public Mutf8InternPool() {
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * 驻留一个完整的 string_data_item，相当于 Mutf8.readStringData 之后再驻留
+     *
+     * @param buffer        DEX 文件数据
+     * @param stringDataOff string_data_item 的绝对偏移
+     * @return 池中与该内容相同的字符串实例
+     */
+    public String intern(ByteBuffer buffer, int stringDataOff) {
+        long leb = DexdumpUtils.readUnsignedLeb128At(buffer, stringDataOff);
+        return intern(buffer, stringDataOff + DexdumpUtils.lebLength(leb), DexdumpUtils.lebValue(leb));
+    }
+
+    /**
+     * 驻留从绝对偏移开始、以 0 结尾的 MUTF-8 数据
+     *
+     * @param buffer    DEX 文件数据
+     * @param offset    MUTF-8 数据的绝对偏移
+     * @param utf16Size 解码后的 UTF-16 长度
+     * @return 池中与该内容相同的字符串实例
+     */
+    public String intern(ByteBuffer buffer, int offset, int utf16Size) {
+        // MUTF-8 数据内部不会出现 0 字节，哈希一直计算到结尾的 0
+        int hash = utf16Size;
+        int limit = buffer.limit();
+        for (int pos = offset; pos < limit; pos++) {
+            byte b = buffer.get(pos);
+            if (b == 0) {
+                break;
+            }
+            hash = hash * 31 + b;
+        }
+        hash ^= hash >>> 16;
+
+        expungeStaleEntries();
+        Segment segment = segments[hash >>> (32 - SEGMENT_SHIFT)];
+        synchronized (segment) {
+            Entry[] table = segment.table;
+            int slot = hash & (table.length - 1);
+            for (Entry e = table[slot]; e != null; e = e.next) {
+                if (e.hash == hash && e.utf16Size == utf16Size) {
+                    String s = e.get();
+                    if (s != null && Mutf8.compare(buffer, offset, utf16Size, s) == 0) {
+                        hits.increment();
+                        return s;
+                    }
+                }
+            }
+            // 未命中：解码后放入池中。解码在锁内进行，保证同一内容只产生一个实例
+            String s = Mutf8.decode(buffer, offset, utf16Size);
+            table[slot] = new Entry(s, queue, hash, utf16Size, table[slot]);
+            if (++segment.count > table.length * 3 / 4) {
+                segment.resize();
+            }
+            misses.increment();
+            return s;
+        }
+    }
+
+    /**
+     * 池中的项数（包括已被回收但尚未清除的项）
+     */
+    public int size() {
+        expungeStaleEntries();
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.count;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * 命中次数，即没有解码、直接返回已有实例的次数
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * 未命中次数，即解码并新放入池中的次数
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * 从所在段中移除已被 GC 回收的项
+     */
+    private void expungeStaleEntries() {
+        Object ref;
+        while ((ref = queue.poll()) != null) {
+            Entry stale = (Entry) ref;
+            Segment segment = segments[stale.hash >>> (32 - SEGMENT_SHIFT)];
+            synchronized (segment) {
+                segment.remove(stale);
+            }
+        }
+    }
+
+    private static final class Entry extends WeakReference<String> {
+        final int hash;      // MUTF-8 字节的哈希
+        final int utf16Size;
+        Entry next;
+
+        Entry(String value, ReferenceQueue<String> queue, int hash, int utf16Size, Entry next) {
+            super(value, queue);
+            this.hash = hash;
+            this.utf16Size = utf16Size;
+            this.next = next;
+        }
+    }
+
+    /**
+     * 一个哈希段：链地址法的哈希表，所有访问都在段对象上同步
+     */
+    private static final class Segment {
+        Entry[] table = new Entry[INITIAL_SEGMENT_CAPACITY];
+        int count;
+
+        void resize() {
+            Entry[] old = table;
+            Entry[] grown = new Entry[old.length * 2];
+            for (Entry head : old) {
+                Entry e = head;
+                while (e != null) {
+                    Entry next = e.next;
+                    int slot = e.hash & (grown.length - 1);
+                    e.next = grown[slot];
+                    grown[slot] = e;
+                    e = next;
+                }
+            }
+            table = grown;
+        }
+
+        void remove(Entry stale) {
+            int slot = stale.hash & (table.length - 1);
+            Entry prev = null;
+            for (Entry e = table[slot]; e != null; prev = e, e = e.next) {
+                if (e == stale) {
+                    if (prev == null) {
+                        table[slot] = e.next;
+                    } else {
+                        prev.next = e.next;
+                    }
+                    count--;
+                    return;
+                }
+            }
+        }
+    }
+}